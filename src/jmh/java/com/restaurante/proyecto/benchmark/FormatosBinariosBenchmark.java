@@ -0,0 +1,66 @@
+package com.restaurante.proyecto.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.restaurante.proyecto.model.Reserva;
+
+// Microbenchmark de la codificación de listas grandes de reservas en JSON, CBOR y Smile
+// Los mapeadores binarios se copian del ObjectMapper JSON, como en ApplicationConfig, para codificar los mismos campos
+// Al preparar cada combinación se imprime el tamaño de la respuesta para comparar los bytes enviados además del tiempo
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormatosBinariosBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String formato;
+
+    @Param({"500", "5000"})
+    private int elementos;
+
+    private ObjectMapper objectMapper;
+    private List<Reserva> reservas;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        objectMapper = switch (formato) {
+            case "cbor" -> json.copyWith(new CBORFactory());
+            case "smile" -> json.copyWith(new SmileFactory());
+            default -> json;
+        };
+        LocalDateTime fecha = LocalDateTime.of(2025, 5, 10, 20, 0);
+        reservas = IntStream.range(0, elementos)
+            .mapToObj(i -> {
+                Reserva reserva = new Reserva("usuario" + i, "10000" + i, "Cliente " + i, fecha.plusMinutes(30L * i), 1 + i % 8);
+                reserva.setId("01JTV8Z5Q7" + String.format("%016d", i));
+                reserva.setVersion(0L);
+                return reserva;
+            })
+            .toList();
+        System.out.printf("%n%s con %d reservas: %d bytes%n", formato, elementos, codificarReservas().length);
+    }
+
+    @Benchmark
+    public byte[] codificarReservas() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(reservas);
+    }
+}
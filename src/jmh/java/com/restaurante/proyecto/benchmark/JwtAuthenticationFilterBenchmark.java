@@ -0,0 +1,59 @@
+package com.restaurante.proyecto.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.WebFilterChain;
+
+import com.restaurante.proyecto.filters.JwtAuthenticationFilter;
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.repository.UsuarioRepositoryEnMemoria;
+import com.restaurante.proyecto.service.JwtUtil;
+import com.restaurante.proyecto.service.TokenRevocationService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Microbenchmark del filtro de autenticación JWT para una petición con token válido
+// El rol va en el token y la versión vigente del usuario se lee de la caché de revocación, que solo consulta el repositorio
+// (en memoria) en la primera petición, así que se mide el camino habitual sin base de datos
+// La cadena de filtros siguiente solo lee la autenticación del contexto, como haría un controlador
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthenticationFilterBenchmark {
+
+    private JwtAuthenticationFilter filtro;
+    private String cabecera;
+    private WebFilterChain cadena;
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil(JwtBenchmark.SECRET, 3_600_000, 10_000);
+        UsuarioRepositoryEnMemoria usuarioRepository = new UsuarioRepositoryEnMemoria();
+        Usuario usuario = usuarioRepository.save(new Usuario("1234567890", "usuario", "hash", "ROLE_USER")).block();
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(usuarioRepository, 100_000, Duration.ofMinutes(5));
+        filtro = new JwtAuthenticationFilter(jwtUtil, tokenRevocationService, new SimpleMeterRegistry());
+        cabecera = "Bearer " + jwtUtil.generateToken(usuario);
+        cadena = exchange -> ReactiveSecurityContextHolder.getContext().then();
+    }
+
+    @Benchmark
+    public Object filtrar() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+            MockServerHttpRequest.get("/reservas").header(HttpHeaders.AUTHORIZATION, cabecera));
+        filtro.filter(exchange, cadena).block();
+        return exchange;
+    }
+}
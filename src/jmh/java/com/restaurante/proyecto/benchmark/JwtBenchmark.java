@@ -0,0 +1,48 @@
+package com.restaurante.proyecto.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.service.JwtUtil;
+
+import io.jsonwebtoken.Claims;
+
+// Microbenchmark de la generación y lectura de tokens JWT
+// La lectura se mide desde la caché de tokens verificados, que es el caso habitual en peticiones con el mismo token
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtBenchmark {
+
+    static final String SECRET = "MugbvXMWoJKJsZYNuU9HvEuJk7y9tC0Fuh01Lo9UZkY=";
+
+    private JwtUtil jwtUtil;
+    private Usuario usuario;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 3_600_000, 10_000);
+        usuario = new Usuario("1234567890", "usuario", "hash", "ROLE_USER");
+        token = jwtUtil.generateToken(usuario);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(usuario);
+    }
+
+    @Benchmark
+    public String extractClaim() {
+        return jwtUtil.extractClaim(token, Claims::getSubject);
+    }
+}
@@ -0,0 +1,66 @@
+package com.restaurante.proyecto.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.context.MessageSource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.proyecto.config.ApplicationConfig;
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.model.Mensaje;
+
+// Microbenchmark de la búsqueda de mensajes localizados en los tres idiomas incluidos
+// La fuente de mensajes es la misma que configura la aplicación
+// Se compara la búsqueda en la fuente de mensajes con la tabla precalculada que usan los controladores,
+// y el cuerpo JSON serializado con Jackson en cada respuesta con el JSON precalculado del mensaje
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MensajesBenchmark {
+
+    @Param({"en", "es", "fr"})
+    private String idioma;
+
+    private MessageSource messageSource;
+    private Mensajes mensajes;
+    private ObjectMapper objectMapper;
+    private Locale locale;
+
+    @Setup
+    public void setUp() {
+        messageSource = new ApplicationConfig().messageSource();
+        objectMapper = new ObjectMapper();
+        mensajes = new Mensajes(messageSource, objectMapper, false);
+        locale = Locale.forLanguageTag(idioma);
+    }
+
+    @Benchmark
+    public String getMessage() {
+        return messageSource.getMessage("reservation.success", null, locale);
+    }
+
+    @Benchmark
+    public Mensaje mensajePrecalculado() {
+        return mensajes.get("reservation.success", locale);
+    }
+
+    @Benchmark
+    public byte[] cuerpoConJackson() throws Exception {
+        return objectMapper.writeValueAsBytes(mensajes.get("reservation.success", locale));
+    }
+
+    @Benchmark
+    public byte[] cuerpoPrecalculado() {
+        return mensajes.get("reservation.success", locale).getJson();
+    }
+}
@@ -0,0 +1,276 @@
+package com.restaurante.proyecto.benchmark;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.restaurante.proyecto.ProyectoApplication;
+import com.restaurante.proyecto.model.AuthResponse;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+// Prueba de carga de extremo a extremo de la API: inicio de sesión, creación, consulta, actualización y eliminación
+// de reservas y listado paginado de administrador, con un número configurable de clientes simultáneos
+// Sin el parámetro "url" se arranca la aplicación en este mismo proceso con el perfil "memoria", de modo que se mide
+// el coste de WebFlux, la seguridad y los controladores sin el de MongoDB
+// Al terminar se muestran, por operación, las peticiones por segundo y las latencias p50, p99 y p999
+//
+// Parámetros (-clave=valor): concurrencia (32), duracion (30s), calentamiento (5s), login-cada (50 iteraciones), url
+
+public final class PruebaDeCarga {
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> LISTA =
+        new ParameterizedTypeReference<>() { };
+
+    private final WebClient cliente;
+    private final int concurrencia;
+    private final int loginCada;
+    private final String prefijo = Long.toString(System.currentTimeMillis(), 36);
+
+    private String tokenAdmin;
+
+    private PruebaDeCarga(WebClient cliente, int concurrencia, int loginCada) {
+        this.cliente = cliente;
+        this.concurrencia = concurrencia;
+        this.loginCada = loginCada;
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> opciones = leerOpciones(args);
+        int concurrencia = Integer.parseInt(opciones.getOrDefault("concurrencia", "32"));
+        Duration duracion = DurationStyle.detectAndParse(opciones.getOrDefault("duracion", "30s"));
+        Duration calentamiento = DurationStyle.detectAndParse(opciones.getOrDefault("calentamiento", "5s"));
+        int loginCada = Integer.parseInt(opciones.getOrDefault("login-cada", "50"));
+
+        ConfigurableApplicationContext aplicacion = null;
+        String url = opciones.get("url");
+        if (url == null) {
+            aplicacion = new SpringApplicationBuilder(ProyectoApplication.class)
+                .profiles("memoria")
+                .run("--server.port=0", "--logging.level.root=WARN");
+            url = "http://localhost:" + ((ReactiveWebServerApplicationContext) aplicacion).getWebServer().getPort();
+        }
+
+        ConnectionProvider conexiones = ConnectionProvider.builder("prueba-de-carga")
+            .maxConnections(concurrencia * 2)
+            .pendingAcquireMaxCount(-1)
+            .build();
+        WebClient cliente = WebClient.builder()
+            .baseUrl(url)
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create(conexiones)))
+            .build();
+
+        try {
+            PruebaDeCarga prueba = new PruebaDeCarga(cliente, concurrencia, loginCada);
+            List<Cliente> clientes = prueba.preparar();
+            System.out.printf("Destino %s, %d clientes simultáneos, calentamiento %s, medición %s%n",
+                url, concurrencia, calentamiento, duracion);
+            prueba.ejecutar(clientes, calentamiento, new Metricas());
+            Metricas metricas = new Metricas();
+            long inicio = System.nanoTime();
+            prueba.ejecutar(clientes, duracion, metricas);
+            metricas.imprimir(System.nanoTime() - inicio);
+        } finally {
+            conexiones.disposeLater().block();
+            if (aplicacion != null) {
+                aplicacion.close();
+            }
+        }
+    }
+
+    // Registra un usuario por cliente simultáneo y un administrador, e inicia sesión con todos ellos
+
+    private List<Cliente> preparar() {
+        registrar(new Usuario("A" + prefijo, "admin-" + prefijo, "carga", "admin")).block();
+        tokenAdmin = login("admin-" + prefijo).block();
+        return Flux.range(0, concurrencia)
+            .map(i -> new Cliente(prefijo + "-" + i, "C" + prefijo + i))
+            .flatMap(c -> registrar(new Usuario(c.cedula, c.username, "carga", "user"))
+                .then(login(c.username))
+                .doOnNext(token -> c.token = token)
+                .thenReturn(c), 4)
+            .collectList()
+            .block();
+    }
+
+    private void ejecutar(List<Cliente> clientes, Duration duracion, Metricas metricas) {
+        long fin = System.nanoTime() + duracion.toNanos();
+        Flux.fromIterable(clientes)
+            .flatMap(c -> Mono.defer(() -> iteracion(c, metricas)).repeat(() -> System.nanoTime() < fin), concurrencia)
+            .blockLast();
+    }
+
+    // Una iteración de un cliente: crear una reserva, consultarla, actualizarla, eliminarla y listar como administrador
+    // Cada "login-cada" iteraciones el cliente vuelve a iniciar sesión
+
+    private Mono<Void> iteracion(Cliente c, Metricas metricas) {
+        c.iteraciones++;
+        Mono<Void> login = c.iteraciones % loginCada == 0
+            ? medir("login", metricas, login(c.username).doOnNext(token -> c.token = token)).then()
+            : Mono.empty();
+        LocalDateTime fecha = LocalDateTime.of(2030, 1, 1, 20, 0)
+            .plusDays(ThreadLocalRandom.current().nextInt(3650));
+
+        return login
+            .then(medir("crear", metricas, peticion(cliente.post().uri("/reservas"), c.token)
+                .bodyValue(new Reserva(null, null, "Carga", fecha, 2))
+                .exchangeToMono(PruebaDeCarga::estado)))
+            .then(medir("consultar", metricas, peticion(cliente.get().uri("/reservas/{cedula}", c.cedula), c.token)
+                .retrieve()
+                .bodyToMono(LISTA)))
+            .flatMap(reservas -> {
+                Map<String, Object> reserva = reservas.get(reservas.size() - 1);
+                String id = (String) reserva.get("id");
+                Reserva cambios = new Reserva(null, null, "Carga", fecha.plusMinutes(30), 3);
+                cambios.setVersion(((Number) reserva.get("version")).longValue());
+                return medir("actualizar", metricas, peticion(cliente.put().uri("/reservas/{id}", id), c.token)
+                        .bodyValue(cambios)
+                        .exchangeToMono(PruebaDeCarga::estado))
+                    .then(medir("eliminar", metricas, peticion(cliente.delete().uri("/reservas/{id}", id), c.token)
+                        .exchangeToMono(PruebaDeCarga::estado)));
+            })
+            .then(medir("listar", metricas, peticion(cliente.get().uri("/reservas?limite=50"), tokenAdmin)
+                .exchangeToMono(PruebaDeCarga::estado)))
+            .onErrorResume(e -> Mono.empty())
+            .then();
+    }
+
+    private Mono<Void> registrar(Usuario usuario) {
+        return cliente.post().uri("/usuarios/registro").bodyValue(usuario).retrieve().toBodilessEntity().then();
+    }
+
+    private Mono<String> login(String username) {
+        return cliente.post().uri("/usuarios/login")
+            .headers(h -> h.setBasicAuth(username, "carga"))
+            .retrieve()
+            .bodyToMono(AuthResponse.class)
+            .map(AuthResponse::getToken);
+    }
+
+    private static <S extends WebClient.RequestHeadersSpec<?>> S peticion(S spec, String token) {
+        spec.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        return spec;
+    }
+
+    // Las respuestas que no son 2xx se convierten en error para contarlas como fallidas
+
+    private static Mono<Integer> estado(ClientResponse respuesta) {
+        return respuesta.releaseBody().then(respuesta.statusCode().is2xxSuccessful()
+            ? Mono.just(respuesta.statusCode().value())
+            : Mono.error(new IllegalStateException("HTTP " + respuesta.statusCode().value())));
+    }
+
+    private static <T> Mono<T> medir(String operacion, Metricas metricas, Mono<T> peticion) {
+        return Mono.defer(() -> {
+            long inicio = System.nanoTime();
+            return peticion
+                .doOnSuccess(r -> metricas.registrar(operacion, System.nanoTime() - inicio, true))
+                .doOnError(e -> metricas.registrar(operacion, System.nanoTime() - inicio, false));
+        });
+    }
+
+    private static Map<String, String> leerOpciones(String[] args) {
+        Map<String, String> opciones = new LinkedHashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (arg.startsWith("-") && igual > 0) {
+                opciones.put(arg.substring(arg.startsWith("--") ? 2 : 1, igual), arg.substring(igual + 1));
+            } else {
+                System.err.println("Se ignora el parámetro " + arg);
+            }
+        }
+        return opciones;
+    }
+
+    private static final class Cliente {
+        private final String username;
+        private final String cedula;
+        private volatile String token;
+        private long iteraciones;
+
+        private Cliente(String username, String cedula) {
+            this.username = username;
+            this.cedula = cedula;
+        }
+    }
+
+    // Latencias registradas por operación; se guardan todas para calcular percentiles exactos al final
+
+    private static final class Metricas {
+        private final Map<String, Registro> registros = new LinkedHashMap<>();
+
+        private void registrar(String operacion, long nanos, boolean correcta) {
+            Registro registro;
+            synchronized (registros) {
+                registro = registros.computeIfAbsent(operacion, k -> new Registro());
+            }
+            registro.registrar(nanos, correcta);
+        }
+
+        private void imprimir(long nanosTotales) {
+            double segundos = nanosTotales / 1e9;
+            System.out.printf("%n%-11s %10s %8s %10s %9s %9s %9s %9s%n",
+                "operación", "peticiones", "errores", "req/s", "p50 ms", "p99 ms", "p999 ms", "máx ms");
+            long total = 0;
+            for (Map.Entry<String, Registro> entrada : registros.entrySet()) {
+                Registro r = entrada.getValue();
+                long[] valores = r.ordenadas();
+                total += valores.length;
+                System.out.printf("%-11s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    entrada.getKey(), valores.length, r.errores, valores.length / segundos,
+                    percentil(valores, 0.50), percentil(valores, 0.99), percentil(valores, 0.999),
+                    valores.length == 0 ? 0 : valores[valores.length - 1] / 1e6);
+            }
+            System.out.printf("%-11s %10d %8s %10.1f%n", "total", total, "", total / segundos);
+        }
+
+        private static double percentil(long[] ordenadas, double q) {
+            if (ordenadas.length == 0) {
+                return 0;
+            }
+            int posicion = (int) Math.ceil(q * ordenadas.length) - 1;
+            return ordenadas[Math.max(posicion, 0)] / 1e6;
+        }
+    }
+
+    private static final class Registro {
+        private long[] latencias = new long[1024];
+        private int cantidad;
+        private int errores;
+
+        private synchronized void registrar(long nanos, boolean correcta) {
+            if (cantidad == latencias.length) {
+                latencias = Arrays.copyOf(latencias, cantidad * 2);
+            }
+            latencias[cantidad++] = nanos;
+            if (!correcta) {
+                errores++;
+            }
+        }
+
+        private synchronized long[] ordenadas() {
+            long[] copia = Arrays.copyOf(latencias, cantidad);
+            Arrays.sort(copia);
+            return copia;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.restaurante.proyecto.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.service.GeneradorIdentificadores;
+import com.restaurante.proyecto.service.GeneradorIdentificadoresOrdenados;
+
+// Microbenchmark de la creación de reservas y de la generación de sus identificadores
+// La generación se mide también con varios hilos para detectar contención entre peticiones concurrentes
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReservaBenchmark {
+
+    private static final LocalDateTime FECHA = LocalDateTime.of(2025, 5, 10, 20, 0);
+
+    private final GeneradorIdentificadores generador = new GeneradorIdentificadoresOrdenados();
+
+    @Benchmark
+    public Reserva crearReserva() {
+        return new Reserva("usuario", "1234567890", "Cliente", FECHA, 4);
+    }
+
+    @Benchmark
+    public String generarId() {
+        return generador.nuevoId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generarIdConcurrente() {
+        return generador.nuevoId();
+    }
+}
@@ -0,0 +1,64 @@
+package com.restaurante.proyecto.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+
+// Microbenchmark de la serialización JSON de las listas de reservas y usuarios que devuelven los listados
+// Se usa un ObjectMapper configurado como el de Spring Boot (con soporte de fechas de java.time)
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializacionBenchmark {
+
+    @Param({"50", "500"})
+    private int elementos;
+
+    private ObjectMapper objectMapper;
+    private List<Reserva> reservas;
+    private List<Usuario> usuarios;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        LocalDateTime fecha = LocalDateTime.of(2025, 5, 10, 20, 0);
+        reservas = IntStream.range(0, elementos)
+            .mapToObj(i -> {
+                Reserva reserva = new Reserva("usuario" + i, "10000" + i, "Cliente " + i, fecha.plusMinutes(30L * i), 1 + i % 8);
+                reserva.setId("01JTV8Z5Q7" + String.format("%016d", i));
+                reserva.setVersion(0L);
+                return reserva;
+            })
+            .toList();
+        usuarios = IntStream.range(0, elementos)
+            .mapToObj(i -> new Usuario("10000" + i, "usuario" + i, "$2a$10$hash" + i, "ROLE_USER"))
+            .toList();
+    }
+
+    @Benchmark
+    public byte[] serializarReservas() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(reservas);
+    }
+
+    @Benchmark
+    public byte[] serializarUsuarios() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(usuarios);
+    }
+}
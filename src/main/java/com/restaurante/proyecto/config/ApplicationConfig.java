@@ -2,18 +2,35 @@ package com.restaurante.proyecto.config;
 
 import java.util.Locale;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.util.MimeType;
 import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
 import org.springframework.web.server.i18n.LocaleContextResolver;
 
-// Configuración de la aplicación para internacionalización
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.restaurante.proyecto.service.GeneradorIdentificadores;
+import com.restaurante.proyecto.service.GeneradorIdentificadoresOrdenados;
+
+// Configuración de la aplicación para internacionalización, codificadores de las respuestas y generación de identificadores
 
 @Configuration
 public class ApplicationConfig {
 
+    @Value("${mensajes.recarga:false}")
+    private boolean recargaMensajes;
+
     // Resolver de contexto de localización para aceptar la localización de la cabecera HTTP Accept-Language
 
     @Bean
@@ -24,12 +41,48 @@ public class ApplicationConfig {
     }
 
     // Configuración de la fuente de mensajes para cargar los mensajes de los archivos de propiedades
+    // Los archivos solo se vuelven a leer (cada segundo) si está activada la recarga de mensajes para desarrollo
 
     @Bean
     public MessageSource messageSource() {
         ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
         messageSource.setBasename("classpath:messages/messages");
         messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setCacheSeconds(recargaMensajes ? 1 : -1);
         return messageSource;
     }
-}
\ No newline at end of file
+
+    // Codificador de los mensajes localizados con su JSON precalculado, registrado antes que el codificador JSON general
+
+    @Bean
+    public CodecCustomizer mensajeCodecCustomizer() {
+        return configurer -> configurer.customCodecs().register(new MensajeEncoder());
+    }
+
+    // Codificadores CBOR y Smile para los clientes que piden un formato binario con la cabecera Accept
+    // Se crean a partir del ObjectMapper de la aplicación para codificar las fechas y los campos igual que en JSON
+    // El decodificador CBOR de Spring solo decodifica valores completos, suficiente para los cuerpos de las peticiones
+    // Los codificadores propios van delante de los de Spring, por lo que se registra antes un codificador JSON
+    // para que JSON siga siendo el formato de las respuestas sin Accept y de los cuerpos enviados sin Content-Type
+
+    @Bean
+    public CodecCustomizer formatosBinariosCodecCustomizer(ObjectMapper objectMapper) {
+        ObjectMapper cbor = objectMapper.copyWith(new CBORFactory());
+        ObjectMapper smile = objectMapper.copyWith(new SmileFactory());
+        MimeType[] tiposSmile = {MimeType.valueOf(FormatosBinarios.SMILE), MimeType.valueOf(FormatosBinarios.SMILE_FLUJO)};
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+            configurer.customCodecs().register(new CborEncoder(cbor));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cbor, MediaType.APPLICATION_CBOR));
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smile, tiposSmile));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smile, tiposSmile));
+        };
+    }
+
+    // Generador de identificadores de las reservas, ordenados por fecha de creación
+
+    @Bean
+    public GeneradorIdentificadores generadorIdentificadores() {
+        return new GeneradorIdentificadoresOrdenados();
+    }
+}
@@ -0,0 +1,32 @@
+package com.restaurante.proyecto.config;
+
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+// Codificador CBOR con Jackson que, a diferencia del de Spring, también codifica flujos
+// Con "application/cbor" los flujos se escriben como un array, y con "application/cbor-seq" como una secuencia CBOR:
+// cada elemento es un objeto CBOR completo que se envía en cuanto está listo, sin separadores entre objetos
+
+public class CborEncoder extends AbstractJackson2Encoder {
+
+    private static final byte[] SIN_SEPARADOR = new byte[0];
+
+    public CborEncoder(ObjectMapper objectMapper) {
+        super(objectMapper, MimeType.valueOf(FormatosBinarios.CBOR), MimeType.valueOf(FormatosBinarios.CBOR_SECUENCIA));
+        if (!(objectMapper.getFactory() instanceof CBORFactory)) {
+            throw new IllegalArgumentException("El ObjectMapper del codificador CBOR debe usar CBORFactory");
+        }
+        setStreamingMediaTypes(List.of(MediaType.valueOf(FormatosBinarios.CBOR_SECUENCIA)));
+    }
+
+    @Override
+    protected byte[] getStreamingMediaTypeSeparator(MimeType mimeType) {
+        return SIN_SEPARADOR;
+    }
+}
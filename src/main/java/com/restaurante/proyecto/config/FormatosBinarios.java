@@ -0,0 +1,17 @@
+package com.restaurante.proyecto.config;
+
+// Tipos de contenido de los formatos binarios que se pueden pedir con la cabecera Accept en lugar de JSON
+// CBOR y Smile codifican los mismos objetos que el JSON de la API con menos bytes y sin convertir números ni textos
+// Los listados se envían como un único array; los endpoints en streaming envían un objeto tras otro
+// como secuencia CBOR (RFC 8742) o como flujo Smile, igual que las líneas de NDJSON
+
+public final class FormatosBinarios {
+
+    public static final String CBOR = "application/cbor";
+    public static final String CBOR_SECUENCIA = "application/cbor-seq";
+    public static final String SMILE = "application/x-jackson-smile";
+    public static final String SMILE_FLUJO = "application/stream+x-jackson-smile";
+
+    private FormatosBinarios() {
+    }
+}
@@ -0,0 +1,43 @@
+package com.restaurante.proyecto.config;
+
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+import com.restaurante.proyecto.model.Mensaje;
+
+import reactor.core.publisher.Flux;
+
+// Codificador de las respuestas con mensajes localizados
+// Escribe el JSON precalculado del mensaje envolviendo el array de bytes, sin pasar por Jackson ni copiar el contenido
+
+public class MensajeEncoder extends AbstractEncoder<Mensaje> {
+
+    public MensajeEncoder() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return Mensaje.class.isAssignableFrom(elementType.toClass()) && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends Mensaje> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return Flux.from(inputStream).map(mensaje -> encodeValue(mensaje, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(Mensaje mensaje, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return bufferFactory.wrap(mensaje.getJson());
+    }
+}
@@ -0,0 +1,117 @@
+package com.restaurante.proyecto.config;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.proyecto.model.Mensaje;
+
+// Mensajes localizados de las respuestas de la aplicación
+// Al iniciar se resuelven todos los mensajes de los archivos messages_*.properties para cada idioma incluido
+// y se guardan en una tabla inmutable por idioma, con el cuerpo JSON de la respuesta ya codificado
+// Las peticiones en un idioma no incluido reciben los mensajes del idioma por defecto (inglés)
+// Con "mensajes.recarga=true" (solo para desarrollo) los mensajes se resuelven en cada petición para ver los cambios sin reiniciar
+
+@Component
+public class Mensajes {
+
+    private static final String ARCHIVOS = "classpath*:messages/messages_*.properties";
+    private static final Locale POR_DEFECTO = Locale.ENGLISH;
+
+    private final MessageSource messageSource;
+    private final ObjectMapper objectMapper;
+    private final boolean recarga;
+    private final Map<String, Map<String, Mensaje>> porIdioma;
+
+    public Mensajes(MessageSource messageSource, ObjectMapper objectMapper,
+                    @Value("${mensajes.recarga:false}") boolean recarga) {
+        this.messageSource = messageSource;
+        this.objectMapper = objectMapper;
+        this.recarga = recarga;
+        this.porIdioma = recarga ? Map.of() : precalcular();
+    }
+
+    // Mensaje con el código indicado en el idioma de la petición
+
+    public Mensaje get(String codigo, Locale locale) {
+        // Los filtros que responden antes de resolver el idioma de la petición pueden no tener idioma
+        if (locale == null) {
+            locale = POR_DEFECTO;
+        }
+        if (recarga) {
+            return crear(codigo, locale);
+        }
+        Map<String, Mensaje> tabla = porIdioma.get(locale.getLanguage());
+        Mensaje mensaje = tabla == null ? null : tabla.get(codigo);
+        if (mensaje == null) {
+            mensaje = porIdioma.getOrDefault(POR_DEFECTO.getLanguage(), Map.of()).get(codigo);
+        }
+        if (mensaje == null) {
+            throw new IllegalArgumentException("No existe el mensaje " + codigo);
+        }
+        return mensaje;
+    }
+
+    // Texto del mensaje con el código indicado en el idioma de la petición
+
+    public String texto(String codigo, Locale locale) {
+        return get(codigo, locale).getMensaje();
+    }
+
+    private Map<String, Map<String, Mensaje>> precalcular() {
+        Set<String> idiomas = new TreeSet<>();
+        Set<String> codigos = new TreeSet<>();
+        try {
+            for (Resource archivo : new PathMatchingResourcePatternResolver().getResources(ARCHIVOS)) {
+                String nombre = archivo.getFilename();
+                idiomas.add(nombre.substring("messages_".length(), nombre.length() - ".properties".length()));
+                Properties propiedades = new Properties();
+                try (Reader lector = new InputStreamReader(archivo.getInputStream(), StandardCharsets.UTF_8)) {
+                    propiedades.load(lector);
+                }
+                codigos.addAll(propiedades.stringPropertyNames());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron leer los archivos de mensajes", e);
+        }
+        Map<String, Map<String, Mensaje>> tablas = new HashMap<>();
+        for (String idioma : idiomas) {
+            Locale locale = Locale.forLanguageTag(idioma);
+            Map<String, Mensaje> tabla = new HashMap<>();
+            for (String codigo : codigos) {
+                tabla.put(codigo, crear(codigo, locale));
+            }
+            tablas.put(locale.getLanguage(), Map.copyOf(tabla));
+        }
+        return Map.copyOf(tablas);
+    }
+
+    private Mensaje crear(String codigo, Locale locale) {
+        String texto = messageSource.getMessage(codigo, null, locale);
+        Map<String, String> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("codigo", codigo);
+        cuerpo.put("mensaje", texto);
+        try {
+            return new Mensaje(codigo, texto, objectMapper.writeValueAsBytes(cuerpo));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo codificar el mensaje " + codigo, e);
+        }
+    }
+}
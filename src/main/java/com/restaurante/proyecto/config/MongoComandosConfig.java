@@ -0,0 +1,71 @@
+package com.restaurante.proyecto.config;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.mongodb.RequestContext;
+import com.mongodb.reactivestreams.client.ReactiveContextProvider;
+
+import reactor.core.CoreSubscriber;
+import reactor.util.context.ContextView;
+
+// Configuración del cliente de MongoDB para trazar los comandos de cada petición
+// Se registra el listener de comandos y un proveedor de contexto que pasa al driver el contexto de Reactor
+// de quien se suscribe a la consulta, de modo que cada comando se puede asociar a la petición HTTP que lo originó
+
+@Configuration
+public class MongoComandosConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoComandosCustomizer(MongoComandosListener listener) {
+        return settings -> settings
+            .addCommandListener(listener)
+            .contextProvider((ReactiveContextProvider) subscriber -> subscriber instanceof CoreSubscriber<?> core
+                ? new ContextoReactor(core.currentContext())
+                : null);
+    }
+
+    // Vista de solo lectura del contexto de Reactor como contexto de petición del driver
+
+    private record ContextoReactor(ContextView contexto) implements RequestContext {
+
+        @Override
+        public <T> T get(Object key) {
+            return contexto.get(key);
+        }
+
+        @Override
+        public boolean hasKey(Object key) {
+            return contexto.hasKey(key);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return contexto.isEmpty();
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            throw new UnsupportedOperationException("El contexto de la petición es de solo lectura");
+        }
+
+        @Override
+        public void delete(Object key) {
+            throw new UnsupportedOperationException("El contexto de la petición es de solo lectura");
+        }
+
+        @Override
+        public int size() {
+            return contexto.size();
+        }
+
+        @Override
+        public Stream<Map.Entry<Object, Object>> stream() {
+            return contexto.stream();
+        }
+    }
+}
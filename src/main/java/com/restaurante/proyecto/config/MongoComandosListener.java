@@ -0,0 +1,174 @@
+package com.restaurante.proyecto.config;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.RequestContext;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+// Listener de los comandos que la aplicación envía a MongoDB
+// Cada comando terminado se suma al resumen de la petición HTTP que lo originó (si lo hay en el contexto de Reactor)
+// y los comandos que superan el umbral configurado se registran en el log como lentos
+// Por defecto (mongo.comandos.forma-filtro) se muestra también la forma del filtro del comando lento: los campos y
+// operadores, con los valores sustituidos por "?", para no escribir en el log cédulas ni otros datos de los clientes
+// Al empezar cada comando solo se copian la colección, el filtro y la ordenación; la forma se construye únicamente
+// para los comandos que resultan lentos
+// La duración de todos los comandos se publica además en la métrica "mongodb.driver.commands" de Spring Boot
+
+@Component
+public class MongoComandosListener implements CommandListener {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoComandosListener.class);
+
+    private final long umbralNanos;
+    private final boolean formaFiltro;
+    private final Map<Integer, BsonDocument> filtrosEnCurso = new ConcurrentHashMap<>();
+
+    public MongoComandosListener(@Value("${mongo.comandos.umbral-lento:100ms}") Duration umbralLento,
+                                 @Value("${mongo.comandos.forma-filtro:true}") boolean formaFiltro) {
+        this.umbralNanos = umbralLento.toNanos();
+        this.formaFiltro = formaFiltro;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!formaFiltro || !log.isWarnEnabled()) {
+            return;
+        }
+        // El documento del comando solo es válido durante este evento; se copian sus partes para el caso de que resulte lento
+        filtrosEnCurso.put(event.getRequestId(), partes(event.getCommandName(), event.getCommand()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        terminado(event.getRequestId(), event.getRequestContext(), event.getCommandName(),
+                event.getElapsedTime(TimeUnit.NANOSECONDS), "correcto");
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        terminado(event.getRequestId(), event.getRequestContext(), event.getCommandName(),
+                event.getElapsedTime(TimeUnit.NANOSECONDS), "fallido");
+    }
+
+    private void terminado(int requestId, RequestContext contexto, String comando, long nanos, String resultado) {
+        BsonDocument partes = formaFiltro ? filtrosEnCurso.remove(requestId) : null;
+        if (contexto != null) {
+            ResumenMongoPeticion resumen = contexto.getOrDefault(ResumenMongoPeticion.class, null);
+            if (resumen != null) {
+                resumen.registrar(nanos);
+            }
+        }
+        if (nanos >= umbralNanos && log.isWarnEnabled()) {
+            log.warn("Comando MongoDB lento ({}): {} en {} ms {}", resultado, comando,
+                    String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0), partes == null ? "" : forma(partes));
+        }
+    }
+
+    // Forma del comando: la colección y el filtro (o la agregación) con los valores sustituidos por "?"
+
+    static String forma(String comando, BsonDocument documento) {
+        return forma(partes(comando, documento));
+    }
+
+    // Copia de las partes del comando que forman su forma: la colección, el filtro (o la agregación) y la ordenación
+
+    private static BsonDocument partes(String comando, BsonDocument documento) {
+        BsonDocument partes = new BsonDocument();
+        BsonValue coleccion = documento.get(comando);
+        if (coleccion != null && coleccion.isString()) {
+            partes.put("coleccion", coleccion);
+        }
+        BsonValue filtro = switch (comando) {
+            case "find", "delete" -> documento.containsKey("filter") ? documento.get("filter") : primera(documento, "deletes", "q");
+            case "count", "distinct", "findAndModify" -> documento.get("query");
+            case "aggregate" -> documento.get("pipeline");
+            case "update" -> primera(documento, "updates", "q");
+            default -> null;
+        };
+        if (filtro != null) {
+            partes.put("filtro", copia(filtro));
+        }
+        if (documento.containsKey("sort")) {
+            partes.put("sort", copia(documento.get("sort")));
+        }
+        return partes;
+    }
+
+    private static String forma(BsonDocument partes) {
+        StringBuilder forma = new StringBuilder();
+        if (partes.containsKey("coleccion")) {
+            forma.append(partes.getString("coleccion").getValue()).append(' ');
+        }
+        if (partes.containsKey("filtro")) {
+            redactar(partes.get("filtro"), forma);
+        }
+        if (partes.containsKey("sort")) {
+            forma.append(" sort ");
+            redactar(partes.get("sort"), forma);
+        }
+        return forma.toString().trim();
+    }
+
+    private static BsonValue copia(BsonValue valor) {
+        if (valor.isDocument()) {
+            return valor.asDocument().clone();
+        }
+        return valor.isArray() ? valor.asArray().clone() : valor;
+    }
+
+    private static BsonValue primera(BsonDocument documento, String lista, String campo) {
+        BsonValue valor = documento.get(lista);
+        if (valor == null || !valor.isArray() || valor.asArray().isEmpty() || !valor.asArray().get(0).isDocument()) {
+            return null;
+        }
+        return valor.asArray().get(0).asDocument().get(campo);
+    }
+
+    private static void redactar(BsonValue valor, StringBuilder forma) {
+        if (valor.isDocument()) {
+            forma.append('{');
+            boolean primero = true;
+            for (Map.Entry<String, BsonValue> campo : valor.asDocument().entrySet()) {
+                if (!primero) {
+                    forma.append(", ");
+                }
+                primero = false;
+                forma.append(campo.getKey()).append(": ");
+                redactar(campo.getValue(), forma);
+            }
+            forma.append('}');
+        } else if (valor.isArray()) {
+            BsonArray elementos = valor.asArray();
+            boolean conDocumentos = elementos.stream().anyMatch(BsonValue::isDocument);
+            if (!conDocumentos) {
+                forma.append("[?]");
+                return;
+            }
+            forma.append('[');
+            for (int i = 0; i < elementos.size(); i++) {
+                if (i > 0) {
+                    forma.append(", ");
+                }
+                redactar(elementos.get(i), forma);
+            }
+            forma.append(']');
+        } else {
+            forma.append('?');
+        }
+    }
+}
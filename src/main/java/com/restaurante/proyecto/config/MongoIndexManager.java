@@ -0,0 +1,148 @@
+package com.restaurante.proyecto.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import com.restaurante.proyecto.model.ClaveIdempotencia;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Gestión de los índices de MongoDB declarados en las entidades de la aplicación
+// Al iniciar la aplicación se comparan los índices declarados con los existentes en cada colección,
+// se informa de los que faltan o son diferentes y se crean los que faltan
+// Las colecciones adicionales de una entidad (como el histórico de reservas) reciben los mismos índices que su colección principal
+
+@Component
+@Profile("!memoria")
+public class MongoIndexManager {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexManager.class);
+
+    // Entidades cuyas colecciones tienen índices gestionados por la aplicación
+    static final List<Class<?>> ENTIDADES = List.of(Usuario.class, Reserva.class, ClaveIdempotencia.class);
+
+    // Colecciones que guardan documentos de una entidad fuera de su colección principal
+    static final Map<String, Class<?>> COLECCIONES_ADICIONALES = Map.of(Reserva.COLECCION_HISTORICO, Reserva.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MongoPersistentEntityIndexResolver indexResolver;
+    private final boolean crearAlIniciar;
+
+    public MongoIndexManager(ReactiveMongoTemplate mongoTemplate, MongoMappingContext mappingContext,
+                             @Value("${mongo.indices.crear-al-iniciar:true}") boolean crearAlIniciar) {
+        this.mongoTemplate = mongoTemplate;
+        this.indexResolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        this.crearAlIniciar = crearAlIniciar;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        if (!crearAlIniciar) {
+            return;
+        }
+        verificarYCrear().subscribe(
+            null,
+            e -> log.error("No se pudieron verificar los índices de MongoDB: {}", e.getMessage()));
+    }
+
+    // Verifica y crea los índices de todas las entidades gestionadas, una colección detrás de otra
+
+    public Mono<Void> verificarYCrear() {
+        return Flux.fromIterable(ENTIDADES)
+            .concatMap(this::verificarYCrear)
+            .thenMany(Flux.fromIterable(COLECCIONES_ADICIONALES.entrySet()))
+            .concatMap(adicional -> verificarYCrear(adicional.getValue(), adicional.getKey()))
+            .then();
+    }
+
+    // Compara los índices declarados en la entidad con los existentes, informa de las diferencias y crea los que faltan
+    // Si un índice existe con las mismas claves pero distintas opciones, MongoDB rechaza la creación y se informa del error
+
+    public Mono<Void> verificarYCrear(Class<?> entidad) {
+        return verificarYCrear(entidad, mongoTemplate.getCollectionName(entidad));
+    }
+
+    public Mono<Void> verificarYCrear(Class<?> entidad, String coleccion) {
+        ReactiveIndexOperations indexOps = mongoTemplate.indexOps(coleccion);
+        List<IndexDefinition> declarados = declarados(entidad);
+
+        return indexOps.getIndexInfo().collectList()
+            .flatMapMany(existentes -> {
+                informarDiferencias(coleccion, declarados, existentes);
+                return Flux.fromIterable(declarados)
+                    .concatMap(definicion -> indexOps.ensureIndex(definicion)
+                        .doOnNext(nombre -> log.debug("Índice {} verificado en {}", nombre, coleccion))
+                        .onErrorResume(e -> {
+                            log.error("No se pudo crear el índice {} en {}: {}",
+                                definicion.getIndexKeys().toJson(), coleccion, e.getMessage());
+                            return Mono.empty();
+                        }));
+            })
+            .then();
+    }
+
+    private void informarDiferencias(String coleccion, List<IndexDefinition> declarados, List<IndexInfo> existentes) {
+        for (IndexDefinition definicion : declarados) {
+            IndexInfo existente = buscarPorClaves(existentes, definicion.getIndexKeys());
+            boolean unico = Boolean.TRUE.equals(definicion.getIndexOptions().get("unique"));
+            if (existente == null) {
+                log.warn("Falta el índice {} en la colección {}; se creará", definicion.getIndexKeys().toJson(), coleccion);
+            } else if (existente.isUnique() != unico) {
+                log.warn("El índice {} de la colección {} es diferente del declarado (unique={} en lugar de {})",
+                    existente.getName(), coleccion, existente.isUnique(), unico);
+            }
+        }
+        for (IndexInfo existente : existentes) {
+            if (!"_id_".equals(existente.getName())
+                    && declarados.stream().noneMatch(d -> clavesIguales(d.getIndexKeys(), existente))) {
+                log.info("El índice {} de la colección {} no está declarado en la aplicación", existente.getName(), coleccion);
+            }
+        }
+    }
+
+    private static IndexInfo buscarPorClaves(List<IndexInfo> existentes, Document claves) {
+        return existentes.stream()
+            .filter(existente -> clavesIguales(claves, existente))
+            .findFirst()
+            .orElse(null);
+    }
+
+    // Se comparan las claves en orden, con la dirección de cada campo
+
+    private static boolean clavesIguales(Document claves, IndexInfo existente) {
+        List<String> declaradas = new ArrayList<>();
+        claves.forEach((campo, direccion) -> declaradas.add(campo + ":" + direccion));
+        List<String> actuales = new ArrayList<>();
+        existente.getIndexFields().forEach(campo -> actuales.add(campo.getKey() + ":"
+            + (campo.getDirection() == Sort.Direction.DESC ? -1 : 1)));
+        return declaradas.equals(actuales);
+    }
+
+    // Índices declarados con anotaciones en la entidad
+
+    List<IndexDefinition> declarados(Class<?> entidad) {
+        List<IndexDefinition> definiciones = new ArrayList<>();
+        indexResolver.resolveIndexFor(entidad).forEach(definiciones::add);
+        return definiciones;
+    }
+}
@@ -0,0 +1,162 @@
+package com.restaurante.proyecto.config;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.stereotype.Component;
+
+import com.restaurante.proyecto.model.Reserva;
+
+import reactor.core.publisher.Mono;
+
+// Migración de las fechas de las reservas guardadas como texto libre a fecha y hora
+// Se procesan por lotes las reservas cuyo campo "fecha" sigue siendo una cadena y se convierten con una escritura masiva
+// Las fechas que no se pueden interpretar se mueven al campo "fechaNoMigrada" para revisarlas a mano
+// La migración es idempotente: cuando ya no quedan fechas de texto no hace nada
+// Se ejecuta al arrancar y termina antes de que el servidor web empiece a atender peticiones (fase del ciclo de vida
+// anterior a la suya), para que ninguna petición lea una reserva con la fecha en texto; si falla se registra el error y la
+// aplicación arranca igualmente, como cuando MongoDB no está disponible al iniciar
+
+@Component
+@Profile("!memoria")
+public class ReservaFechaMigration implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservaFechaMigration.class);
+
+    // Fase de arranque anterior a la del servidor web (que arranca en SMART_LIFECYCLE_PHASE - 1024)
+    static final int FASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+
+    // Formatos de fecha con hora aceptados al migrar
+    private static final List<DateTimeFormatter> FORMATOS_FECHA_HORA = List.of(
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]"),
+        DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm[:ss]"));
+
+    // Formatos de solo fecha aceptados al migrar; se completan con la hora por defecto
+    private static final List<DateTimeFormatter> FORMATOS_FECHA = List.of(
+        DateTimeFormatter.ISO_LOCAL_DATE,
+        DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final boolean habilitada;
+    private final int tamanoLote;
+    private final LocalTime horaPorDefecto;
+    private volatile boolean ejecutada;
+
+    public ReservaFechaMigration(ReactiveMongoTemplate mongoTemplate,
+                                 @Value("${reservas.migracion-fechas.habilitada:true}") boolean habilitada,
+                                 @Value("${reservas.migracion-fechas.tamano-lote:500}") int tamanoLote,
+                                 @Value("${reservas.migracion-fechas.hora-por-defecto:00:00}") LocalTime horaPorDefecto) {
+        this.mongoTemplate = mongoTemplate;
+        this.habilitada = habilitada;
+        this.tamanoLote = tamanoLote;
+        this.horaPorDefecto = horaPorDefecto;
+    }
+
+    @Override
+    public void start() {
+        if (habilitada) {
+            try {
+                long total = migrar().block();
+                if (total > 0) {
+                    log.info("Migradas {} fechas de reservas de texto a fecha y hora", total);
+                }
+            } catch (RuntimeException e) {
+                log.error("No se pudo completar la migración de fechas de reservas: {}", e.getMessage());
+            }
+        }
+        ejecutada = true;
+    }
+
+    @Override
+    public void stop() {
+        ejecutada = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ejecutada;
+    }
+
+    @Override
+    public int getPhase() {
+        return FASE;
+    }
+
+    // Migra lote a lote hasta que no quedan reservas con la fecha en texto y devuelve el número de reservas procesadas
+
+    public Mono<Long> migrar() {
+        return migrarLote()
+            .expand(procesadas -> procesadas > 0 ? migrarLote() : Mono.empty())
+            .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> migrarLote() {
+        Query pendientes = new Query(Criteria.where("fecha").type(JsonSchemaObject.Type.stringType())).limit(tamanoLote);
+        pendientes.fields().include("fecha");
+        String coleccion = mongoTemplate.getCollectionName(Reserva.class);
+
+        return mongoTemplate.find(pendientes, Document.class, coleccion)
+            .collectList()
+            .flatMap(lote -> {
+                if (lote.isEmpty()) {
+                    return Mono.just(0L);
+                }
+                ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, coleccion);
+                for (Document reserva : lote) {
+                    Query porId = new Query(Criteria.where("_id").is(reserva.get("_id")));
+                    String texto = reserva.getString("fecha");
+                    LocalDateTime fecha = interpretar(texto);
+                    if (fecha != null) {
+                        bulk.updateOne(porId, Update.update("fecha", fecha));
+                    } else {
+                        log.warn("No se pudo interpretar la fecha '{}' de la reserva {}", texto, reserva.get("_id"));
+                        bulk.updateOne(porId, new Update().rename("fecha", "fechaNoMigrada"));
+                    }
+                }
+                return bulk.execute().thenReturn((long) lote.size());
+            });
+    }
+
+    // Interpreta una fecha en texto con los formatos aceptados; devuelve null si no coincide con ninguno
+
+    LocalDateTime interpretar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        String valor = texto.trim();
+        for (DateTimeFormatter formato : FORMATOS_FECHA_HORA) {
+            try {
+                return LocalDateTime.parse(valor, formato);
+            } catch (DateTimeParseException e) {
+                // Se prueba el siguiente formato
+            }
+        }
+        for (DateTimeFormatter formato : FORMATOS_FECHA) {
+            try {
+                return LocalDate.parse(valor, formato).atTime(horaPorDefecto);
+            } catch (DateTimeParseException e) {
+                // Se prueba el siguiente formato
+            }
+        }
+        return null;
+    }
+}
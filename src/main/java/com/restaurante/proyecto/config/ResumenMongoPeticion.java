@@ -0,0 +1,27 @@
+package com.restaurante.proyecto.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Acumulador de los comandos de MongoDB ejecutados durante una petición HTTP
+// Se guarda en el contexto de Reactor de la petición y el listener de comandos suma en él cada comando terminado
+// Los comandos de una misma petición pueden terminar en hilos distintos, por eso los contadores son atómicos
+
+public class ResumenMongoPeticion {
+
+    private final AtomicInteger comandos = new AtomicInteger();
+    private final AtomicLong nanos = new AtomicLong();
+
+    void registrar(long duracionNanos) {
+        comandos.incrementAndGet();
+        nanos.addAndGet(duracionNanos);
+    }
+
+    public int getComandos() {
+        return comandos.get();
+    }
+
+    public double getMilisegundos() {
+        return nanos.get() / 1_000_000.0;
+    }
+}
@@ -1,15 +1,21 @@
 package com.restaurante.proyecto.config;
 
 import java.net.URI;
+import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -17,8 +23,14 @@ import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.security.web.server.authorization.ServerAccessDeniedHandler;
 
 import com.restaurante.proyecto.filters.JwtAuthenticationFilter;
+import com.restaurante.proyecto.filters.LimitePeticionesFilter;
+import com.restaurante.proyecto.model.Mensaje;
+import com.restaurante.proyecto.service.JwtUtil;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 // Configuración de seguridad para la aplicación con Spring Security y JWT (JSON Web Token)
 // Se establecen las reglas de seguridad para los endpoints de la aplicación y se configura el filtro de autenticación JWT
@@ -28,42 +40,72 @@ import reactor.core.publisher.Mono;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final Mensajes mensajes;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, Mensajes mensajes) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.mensajes = mensajes;
     }
 
     // Configuración de un codificador de contraseñas BCrypt para almacenar las contraseñas de los usuarios en la base de datos
+    // El coste es configurable; las contraseñas guardadas con un coste menor se vuelven a codificar al iniciar sesión
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    // Planificador acotado para las comprobaciones de contraseñas con BCrypt, fuera del bucle de eventos de Netty
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler loginScheduler(@Value("${login.hash.max-concurrent:4}") int maxConcurrent,
+                                    @Value("${login.hash.max-pending:64}") int maxPending) {
+        return Schedulers.newBoundedElastic(maxConcurrent, maxPending, "login-bcrypt");
     }
 
     // Manejador de acceso denegado para redirigir a la página de error de acceso denegado (403 Forbidden)
+    // Se responde con el mismo mensaje localizado que la página de error, también cuando se deniega un endpoint anotado con @PreAuthorize
 
     @Bean
     public ServerAccessDeniedHandler accessDeniedHandler() {
         return (exchange, ex) -> {
-            exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
-            exchange.getResponse().getHeaders().setLocation(URI.create("/error/acceso-denegado"));
-            return Mono.empty();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            response.getHeaders().setLocation(URI.create("/error/acceso-denegado"));
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            Mensaje mensaje = mensajes.get("error.access.denied", exchange.getLocaleContext().getLocale());
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(mensaje.getJson())));
         };
     }
 
     // Configuración del administrador de autenticación reactiva para autenticar a los usuarios con el servicio de usuarios reactivos y el codificador de contraseñas
+    // La comprobación de la contraseña se ejecuta en el planificador de inicio de sesión y se actualiza el hash si el coste ha cambiado
 
     @Bean
-    public ReactiveAuthenticationManager reactiveAuthenticationManager(ReactiveUserDetailsService reactiveUserDetailsService , PasswordEncoder passwordEncoder) {
+    public ReactiveAuthenticationManager reactiveAuthenticationManager(ReactiveUserDetailsService reactiveUserDetailsService , PasswordEncoder passwordEncoder,
+                                                                       ReactiveUserDetailsPasswordService userDetailsPasswordService, Scheduler loginScheduler) {
         UserDetailsRepositoryReactiveAuthenticationManager manager = new UserDetailsRepositoryReactiveAuthenticationManager(reactiveUserDetailsService);
         manager.setPasswordEncoder(passwordEncoder);
+        manager.setScheduler(loginScheduler);
+        manager.setUserDetailsPasswordService(userDetailsPasswordService);
         return manager;
     }
 
     // Configuración de las reglas de seguridad para los endpoints de la aplicación y el filtro de autenticación JWT para autenticar a los usuarios
 
+    // El filtro de limitación de peticiones se añade antes del filtro JWT si está habilitado
+    // No se declara como bean para que WebFlux no lo añada también a su propia cadena de filtros y no se cuente cada petición dos veces
+
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, ReactiveAuthenticationManager reactiveAuthenticationManager) throws Exception {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, ReactiveAuthenticationManager reactiveAuthenticationManager,
+                                                         @Lazy JwtUtil jwtUtil, MeterRegistry meterRegistry,
+                                                         @Value("${limites.peticiones.habilitado:true}") boolean limitarPeticiones,
+                                                         @Value("${limites.peticiones.reglas:}") List<String> reglas,
+                                                         @Value("${limites.peticiones.max-claves:100000}") long maxClaves) throws Exception {
+        if (limitarPeticiones) {
+            http.addFilterBefore(new LimitePeticionesFilter(reglas, maxClaves, jwtUtil, mensajes, meterRegistry),
+                SecurityWebFiltersOrder.AUTHENTICATION);
+        }
         http
             .authorizeExchange(auth -> auth
 
@@ -77,6 +119,14 @@ public class SecurityConfig {
                     "/usuarios/login"
                 ).permitAll()
 
+                // Se permiten la comprobación de estado y la recogida de métricas de Prometheus sin autenticación
+                // En producción estas rutas solo deben ser accesibles desde la red interna
+
+                .pathMatchers(
+                    "/actuator/health",
+                    "/actuator/prometheus"
+                ).permitAll()
+
                 // Se establecen las reglas de seguridad para los endpoints de la aplicación según el rol del usuario autenticado
 
                 .pathMatchers(
@@ -0,0 +1,70 @@
+package com.restaurante.proyecto.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.model.UsuarioAutenticado;
+import com.restaurante.proyecto.service.UsuarioService;
+
+import reactor.core.publisher.Mono;
+
+// Resolución del usuario autenticado como argumento de los métodos de los controladores
+// El filtro JWT ya deja el usuario autenticado con su rol y su cédula como principal de la autenticación, por lo que normalmente
+// no se consulta nada; con otros tipos de autenticación se construye a partir del nombre y las autoridades y se busca la cédula
+// El resultado se guarda en los atributos de la petición para resolverlo una sola vez por petición
+
+@Component
+public class UsuarioAutenticadoArgumentResolver implements HandlerMethodArgumentResolver {
+
+    static final String ATRIBUTO = UsuarioAutenticado.class.getName();
+
+    private final UsuarioService usuarioService;
+
+    public UsuarioAutenticadoArgumentResolver(UsuarioService usuarioService) {
+        this.usuarioService = usuarioService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return UsuarioAutenticado.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext, ServerWebExchange exchange) {
+        UsuarioAutenticado resuelto = exchange.getAttribute(ATRIBUTO);
+        if (resuelto != null) {
+            return Mono.just(resuelto);
+        }
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(Authentication::isAuthenticated)
+                .flatMap(this::usuarioAutenticado)
+                .doOnNext(usuario -> exchange.getAttributes().put(ATRIBUTO, usuario))
+                .switchIfEmpty(Mono.error(() -> new AccessDeniedException("Se requiere un usuario autenticado")))
+                .cast(Object.class);
+    }
+
+    private Mono<UsuarioAutenticado> usuarioAutenticado(Authentication auth) {
+        if (auth.getPrincipal() instanceof UsuarioAutenticado usuario) {
+            return Mono.just(usuario);
+        }
+        String rol = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(UsuarioAutenticado.ROL_ADMIN::equals)
+                .findFirst()
+                .orElseGet(() -> auth.getAuthorities().stream().map(GrantedAuthority::getAuthority).findFirst().orElse(null));
+        return usuarioService.buscarPorUsername(auth.getName())
+                .map(Usuario::getCedula)
+                .map(cedula -> new UsuarioAutenticado(auth.getName(), cedula, rol))
+                .defaultIfEmpty(new UsuarioAutenticado(auth.getName(), null, rol));
+    }
+}
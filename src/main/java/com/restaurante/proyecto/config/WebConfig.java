@@ -0,0 +1,23 @@
+package com.restaurante.proyecto.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+// Configuración de Spring WebFlux para los controladores de la aplicación
+// Se registra la resolución del usuario autenticado como argumento de los métodos de los controladores
+
+@Configuration
+public class WebConfig implements WebFluxConfigurer {
+
+    private final UsuarioAutenticadoArgumentResolver usuarioAutenticadoArgumentResolver;
+
+    public WebConfig(UsuarioAutenticadoArgumentResolver usuarioAutenticadoArgumentResolver) {
+        this.usuarioAutenticadoArgumentResolver = usuarioAutenticadoArgumentResolver;
+    }
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(usuarioAutenticadoArgumentResolver);
+    }
+}
@@ -1,20 +1,22 @@
 package com.restaurante.proyecto.controller;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.ReactiveAuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.restaurante.proyecto.model.AuthResponse;
-import com.restaurante.proyecto.service.JwtUtil;
+import com.restaurante.proyecto.service.LoginService;
 
 import io.swagger.v3.oas.annotations.Operation;
+import reactor.core.publisher.Mono;
 
 // Controlador para la autenticación de usuarios y generación de tokens JWT
 // Se establece un endpoint para iniciar sesión con credenciales de usuario y contraseña en formato Basic Auth y generar el token de acceso JWT
@@ -24,22 +26,39 @@ import io.swagger.v3.oas.annotations.Operation;
 public class AuthController {
 
     @Autowired
-    private ReactiveAuthenticationManager reactiveAuthenticationManager;
-
-    @Autowired
-    private JwtUtil jwtUtil;
+    private LoginService loginService;
 
     @Operation(summary = "Iniciar sesión con credenciales de usuario y contraseña en formato Basic Auth (solo para usuarios registrados) genera el token de acceso JWT")
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestHeader("Authorization") String authHeader) {
-        String[] credentials = new String(Base64.getDecoder().decode(authHeader.split(" ")[1])).split(":");
-        String username = credentials[0];
-        String password = credentials[1];
+    public Mono<ResponseEntity<?>> login(@RequestHeader("Authorization") String authHeader) {
+        String[] credentials = decodificarBasic(authHeader);
+        if (credentials == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+
+        return loginService.login(credentials[0], credentials[1])
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(AuthenticationException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build()))
+                // Si hay demasiadas comprobaciones de contraseña en curso se responde de inmediato con 503
+                .onErrorResume(LoginService.LoginSaturadoException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .build()));
+    }
 
-        reactiveAuthenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+    // Se decodifica la cabecera Basic Auth en usuario y contraseña; devuelve null si la cabecera no es válida
 
-        String token = jwtUtil.generateToken(username);
-        
-        return ResponseEntity.ok(new AuthResponse(token));
+    private static String[] decodificarBasic(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Basic ")) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getDecoder().decode(authHeader.substring(6).trim()), StandardCharsets.UTF_8);
+            String[] credentials = decoded.split(":", 2);
+            return credentials.length == 2 ? credentials : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,13 +2,15 @@ package com.restaurante.proyecto.controller;
 
 import java.util.Locale;
 
-import org.springframework.context.MessageSource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.model.Mensaje;
+
 // Controlador para manejar errores de acceso denegado en la aplicación
 // Se establece un endpoint para devolver un mensaje de error personalizado en caso de acceso denegado
 
@@ -16,16 +18,16 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/error")
 public class ErrorController {
 
-    private final MessageSource messageSource;
+    private final Mensajes mensajes;
 
-    public ErrorController(MessageSource messageSource) {
-        this.messageSource = messageSource;
+    public ErrorController(Mensajes mensajes) {
+        this.mensajes = mensajes;
     }
 
     @ExceptionHandler(AccessDeniedException.class)
     @RequestMapping("/acceso-denegado")
-    public ResponseEntity<String> accesoDenegado(Locale locale) {
-        String mensaje = messageSource.getMessage("error.access.denied", null, locale);
+    public ResponseEntity<Mensaje> accesoDenegado(Locale locale) {
+        Mensaje mensaje = mensajes.get("error.access.denied", locale);
         return ResponseEntity.status(403).body(mensaje);
     }
 }
\ No newline at end of file
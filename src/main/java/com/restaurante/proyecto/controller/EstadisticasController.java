@@ -0,0 +1,108 @@
+package com.restaurante.proyecto.controller;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.service.EstadisticasService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Controlador para las estadísticas de ocupación del restaurante (solo admins)
+// Se establecen los endpoints para consultar los cubiertos por día, por turno y por cliente entre dos fechas (ambas incluidas)
+// y para reconstruir los resúmenes diarios a partir de las reservas
+// El rango de fechas es obligatorio y está limitado a un número máximo de días para acotar el trabajo de cada consulta
+
+@Tag(name = "Estadísticas", description = "Estadísticas de ocupación del restaurante")
+@RestController
+@RequestMapping("/reservas/estadisticas")
+@PreAuthorize("hasRole('ADMIN')")
+public class EstadisticasController {
+
+    private final EstadisticasService estadisticasService;
+    private final Mensajes mensajes;
+    private final int maxDias;
+    private final int maxClientes;
+
+    public EstadisticasController(EstadisticasService estadisticasService, Mensajes mensajes,
+                                  @Value("${reservas.estadisticas.max-dias:366}") int maxDias,
+                                  @Value("${reservas.estadisticas.max-clientes:100}") int maxClientes) {
+        this.estadisticasService = estadisticasService;
+        this.mensajes = mensajes;
+        this.maxDias = maxDias;
+        this.maxClientes = maxClientes;
+    }
+
+    // Obtener los cubiertos por día leídos de los resúmenes diarios
+
+    @Operation(summary = "Obtener las reservas y personas por día entre dos fechas (solo admins)")
+    @GetMapping("/dias")
+    public Mono<ResponseEntity<?>> porDia(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                          Locale locale) {
+        return responder(desde, hasta, locale, () -> estadisticasService.porDia(desde, hasta));
+    }
+
+    // Obtener los cubiertos por turno calculados con una agregación sobre las reservas
+
+    @Operation(summary = "Obtener las reservas y personas por turno entre dos fechas (solo admins)")
+    @GetMapping("/turnos")
+    public Mono<ResponseEntity<?>> porTurno(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                            Locale locale) {
+        return responder(desde, hasta, locale, () -> estadisticasService.porTurno(desde, hasta));
+    }
+
+    // Obtener los clientes con más cubiertos calculados con una agregación sobre las reservas
+
+    @Operation(summary = "Obtener los clientes con más personas reservadas entre dos fechas (solo admins)")
+    @GetMapping("/clientes")
+    public Mono<ResponseEntity<?>> porCliente(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                              @RequestParam(required = false) Integer limite,
+                                              Locale locale) {
+        int clientes = limite == null ? maxClientes : Math.min(Math.max(limite, 1), maxClientes);
+        return responder(desde, hasta, locale, () -> estadisticasService.porCliente(desde, hasta, clientes));
+    }
+
+    // Reconstruir los resúmenes diarios de un rango de fechas a partir de las reservas
+    // Se devuelve el número de días con reservas del rango
+
+    @Operation(summary = "Reconstruir los resúmenes diarios entre dos fechas a partir de las reservas (solo admins)")
+    @PostMapping("/dias/reconstruccion")
+    public Mono<ResponseEntity<?>> reconstruir(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                               Locale locale) {
+        if (!rangoValido(desde, hasta)) {
+            return Mono.just(ResponseEntity.badRequest().body(mensajes.get("reservation.stats.range.invalid", locale)));
+        }
+        return estadisticasService.reconstruir(desde, hasta).map(dias -> ResponseEntity.ok(dias));
+    }
+
+    private Mono<ResponseEntity<?>> responder(LocalDate desde, LocalDate hasta, Locale locale, Supplier<Flux<?>> consulta) {
+        if (!rangoValido(desde, hasta)) {
+            return Mono.just(ResponseEntity.badRequest().body(mensajes.get("reservation.stats.range.invalid", locale)));
+        }
+        return consulta.get().collectList().<ResponseEntity<?>>map(lista -> ResponseEntity.ok(lista));
+    }
+
+    private boolean rangoValido(LocalDate desde, LocalDate hasta) {
+        return desde != null && hasta != null && !hasta.isBefore(desde)
+            && ChronoUnit.DAYS.between(desde, hasta) < maxDias;
+    }
+}
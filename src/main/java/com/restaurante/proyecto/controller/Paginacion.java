@@ -0,0 +1,51 @@
+package com.restaurante.proyecto.controller;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Paginación por cursor (keyset) para los listados de la aplicación
+// Los elementos se ordenan por identificador y el cliente pide la página siguiente con el último identificador recibido
+// El tamaño de página se limita a un máximo configurable y el cursor de la página siguiente se devuelve en una cabecera
+
+@Component
+public class Paginacion {
+
+    public static final String CABECERA_SIGUIENTE = "X-Next-Cursor";
+
+    private final int limitePorDefecto;
+    private final int limiteMaximo;
+
+    public Paginacion(@Value("${paginacion.limite-por-defecto:50}") int limitePorDefecto,
+                      @Value("${paginacion.limite-maximo:500}") int limiteMaximo) {
+        this.limitePorDefecto = limitePorDefecto;
+        this.limiteMaximo = limiteMaximo;
+    }
+
+    // Tamaño de página a utilizar según el solicitado por el cliente, acotado entre 1 y el máximo configurado
+
+    public Limit limite(Integer solicitado) {
+        int limite = solicitado == null ? limitePorDefecto : Math.min(Math.max(solicitado, 1), limiteMaximo);
+        return Limit.of(limite);
+    }
+
+    // Construye la respuesta con los elementos de la página; si la página está completa se añade el cursor de la siguiente
+
+    public <T> Mono<ResponseEntity<List<T>>> pagina(Flux<T> elementos, Limit limite, Function<T, String> cursor) {
+        return elementos.collectList()
+            .map(lista -> {
+                ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+                if (!lista.isEmpty() && lista.size() >= limite.max()) {
+                    respuesta.header(CABECERA_SIGUIENTE, cursor.apply(lista.get(lista.size() - 1)));
+                }
+                return respuesta.body(lista);
+            });
+    }
+}
@@ -1,31 +1,56 @@
 package com.restaurante.proyecto.controller;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Locale;
 
-import org.springframework.context.MessageSource;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 
+import com.restaurante.proyecto.config.FormatosBinarios;
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.model.CursorFecha;
+import com.restaurante.proyecto.model.EventoReserva;
+import com.restaurante.proyecto.model.Mensaje;
 import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.ResultadoImportacion;
+import com.restaurante.proyecto.model.UsuarioAutenticado;
+import com.restaurante.proyecto.model.VersionReservas;
 import com.restaurante.proyecto.repository.ReservaRepository;
-import com.restaurante.proyecto.repository.UsuarioRepository;
+import com.restaurante.proyecto.service.CapacidadService;
+import com.restaurante.proyecto.service.EstadisticasService;
+import com.restaurante.proyecto.service.EventosReservaService;
+import com.restaurante.proyecto.service.IdempotenciaService;
+import com.restaurante.proyecto.service.ImportacionReservasService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 // Controlador para las operaciones relacionadas con las reservas del restaurante
 // Se establecen los endpoints para obtener, crear, actualizar y eliminar reservas del restaurante
 // Se establecen las anotaciones de Swagger para documentar la API de reservas del restaurante y sus operaciones
+// Las respuestas se pueden pedir en JSON, CBOR o Smile con la cabecera Accept (ver FormatosBinarios)
 
 @Tag(name = "Reservas", description = "Operaciones relacionadas con las reservas del restaurante")
 @RestController
@@ -33,161 +58,303 @@ import reactor.core.publisher.Mono;
 public class ReservaController {
 
     private final ReservaRepository repository;
-    private final MessageSource messageSource;
-    private final UsuarioRepository usuarioRepository;
+    private final Mensajes mensajes;
+    private final Paginacion paginacion;
+    private final CapacidadService capacidadService;
+    private final ImportacionReservasService importacionReservasService;
+    private final EstadisticasService estadisticasService;
+    private final EventosReservaService eventosReservaService;
+    private final IdempotenciaService idempotenciaService;
 
-    public ReservaController(ReservaRepository repository, MessageSource messageSource, UsuarioRepository usuarioRepository) {
+    public ReservaController(ReservaRepository repository, Mensajes mensajes, Paginacion paginacion,
+                             CapacidadService capacidadService, ImportacionReservasService importacionReservasService,
+                             EstadisticasService estadisticasService, EventosReservaService eventosReservaService,
+                             IdempotenciaService idempotenciaService) {
         this.repository = repository;
-        this.messageSource = messageSource;
-        this.usuarioRepository = usuarioRepository;
+        this.mensajes = mensajes;
+        this.paginacion = paginacion;
+        this.capacidadService = capacidadService;
+        this.importacionReservasService = importacionReservasService;
+        this.estadisticasService = estadisticasService;
+        this.eventosReservaService = eventosReservaService;
+        this.idempotenciaService = idempotenciaService;
     }
 
     // Obtener todas las reservas del restaurante (solo admins)
-    // Se establece un endpoint para obtener todas las reservas del restaurante
+    // Se establece un endpoint para obtener las reservas del restaurante paginadas por cursor
+    // El parámetro "despues" es el identificador de la última reserva recibida y "limite" el tamaño de la página
+    // Con los parámetros "desde" y "hasta" (ambos incluidos) se obtienen las reservas de esos días ordenadas por fecha;
+    // en ese caso el cursor de la página siguiente es la fecha y el identificador de la última reserva (ver CursorFecha)
+    // Con "historico=true" las reservas del rango de fechas incluyen las archivadas
 
-    @Operation(summary = "Obtener todas las reservas del restaurante (solo admins)")
+    @Operation(summary = "Obtener todas las reservas del restaurante paginadas por cursor o por rango de fechas, opcionalmente con las archivadas (solo admins)")
     @GetMapping
-    public Mono<ResponseEntity<?>> getReservas(Locale locale) {
-        return ReactiveSecurityContextHolder.getContext()
-            .map(ctx -> ctx.getAuthentication())
-            .flatMap(auth -> {
-                boolean esAdmin = auth.getAuthorities().stream()
-                    .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
-                if (esAdmin) {
-                    return Mono.just(ResponseEntity.ok(repository.findAll()));
-                } else {
-                    String mensaje = messageSource.getMessage("error.access.denied", null, locale);
-                    return Mono.just(ResponseEntity.status(403).body(mensaje));
-                }
-            });
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<?>> getReservas(@RequestParam(required = false) String despues,
+                                               @RequestParam(required = false) Integer limite,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                               @RequestParam(defaultValue = "false") boolean historico,
+                                               Locale locale) {
+        Limit pagina = paginacion.limite(limite);
+        if (desde != null || hasta != null) {
+            CursorFecha cursor = despues == null ? null : CursorFecha.leer(despues);
+            if (despues != null && cursor == null) {
+                return Mono.just(ResponseEntity.badRequest().body(mensajes.get("pagination.cursor.invalid", locale)));
+            }
+            Flux<Reserva> reservas = historico
+                ? repository.buscarConHistorico(null, rangoDeFechas(desde, hasta), cursor, pagina)
+                : repository.buscarPorFecha(rangoDeFechas(desde, hasta), cursor, pagina);
+            return paginacion.pagina(reservas, pagina, reserva -> CursorFecha.de(reserva).toString())
+                .map(ResponseEntity.class::cast);
+        }
+        Flux<Reserva> reservas = despues == null
+            ? repository.findAllByOrderByIdAsc(pagina)
+            : repository.findByIdGreaterThanOrderByIdAsc(despues, pagina);
+        return paginacion.pagina(reservas, pagina, Reserva::getId)
+            .map(ResponseEntity.class::cast);
+    }
+
+    // Obtener todas las reservas del restaurante en streaming NDJSON (solo admins)
+    // Las reservas se escriben a medida que llegan de MongoDB respetando la contrapresión del cliente, sin cargar la colección en memoria
+    // Con "desde" o "hasta" las reservas van ordenadas por fecha y "despues" es un cursor de fecha, como en el listado paginado
+    // También se pueden pedir como secuencia CBOR o flujo Smile con la cabecera Accept
+
+    @Operation(summary = "Obtener todas las reservas del restaurante en streaming NDJSON, CBOR o Smile (solo admins)")
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, FormatosBinarios.CBOR_SECUENCIA, FormatosBinarios.SMILE_FLUJO})
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<Reserva> streamReservas(@RequestParam(required = false) String despues,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                        Locale locale) {
+        if (desde != null || hasta != null) {
+            CursorFecha cursor = despues == null ? null : CursorFecha.leer(despues);
+            if (despues != null && cursor == null) {
+                return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    mensajes.get("pagination.cursor.invalid", locale).getMensaje()));
+            }
+            return repository.buscarPorFecha(rangoDeFechas(desde, hasta), cursor, Limit.unlimited());
+        }
+        return despues == null
+            ? repository.findAllByOrderByIdAsc(Limit.unlimited())
+            : repository.findByIdGreaterThanOrderByIdAsc(despues, Limit.unlimited());
+    }
+
+    // Recibir los cambios en las reservas en tiempo real como Server-Sent Events
+    // Se envía un evento "creada", "actualizada" o "eliminada" con el identificador, la fecha y las personas de la reserva
+    // Con los parámetros "desde" y "hasta" (ambos incluidos) solo se reciben los cambios de reservas de esos días
+
+    @Operation(summary = "Recibir los cambios en las reservas en tiempo real como Server-Sent Events, opcionalmente entre dos fechas")
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Flux<ServerSentEvent<EventoReserva>> eventos(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return eventosReservaService.suscribir(desde, hasta);
     }
 
     // Obtener una reserva por cédula (solo para el usuario autenticado o un admin)
     // Se establece un endpoint para obtener una reserva del restaurante por cédula de cliente
-    // Se verifica si el usuario autenticado es el mismo que creó la reserva o si es un admin para permitir el acceso a la reserva
+    // Se verifica si la cédula es la del usuario autenticado o si es un admin para permitir el acceso a las reservas
+    // Con If-None-Match se responde 304 sin cuerpo si las reservas del cliente no han cambiado, sin llegar a leerlas
+    // Los admins pueden incluir las reservas archivadas con "historico=true"
 
-    @Operation(summary = "Obtener reservas por cédula (solo para el usuario autenticado o un admin)")
+    @Operation(summary = "Obtener reservas por cédula, opcionalmente entre dos fechas y con las archivadas (solo admins) (solo para el usuario autenticado o un admin), con ETag para peticiones condicionales")
     @GetMapping("/{cedula}")
     @PreAuthorize("isAuthenticated()")
-    public Mono<ResponseEntity<?>> obtenerReservas(@PathVariable String cedula, Locale locale) {
-        return ReactiveSecurityContextHolder.getContext()
-            .flatMap(ctx -> {
-                var auth = ctx.getAuthentication();
-                boolean esAdmin = auth.getAuthorities().stream()
-                                        .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
-                if (esAdmin) {
-                    return repository.findByCedula(cedula)
-                        .collectList()
-                        .flatMap(list -> {
-                            if (list.isEmpty()) {
-                                String mensaje = messageSource.getMessage("reservation.not.found", null, locale);
-                                return Mono.just(ResponseEntity.status(404).body(mensaje));
-                            } else {
-                                return Mono.just(ResponseEntity.ok(list));
-                            }
-                        });
-                } else {
-                    return usuarioRepository.findByUsername(auth.getName())
-                        .flatMap(user -> {
-                            if (!user.getCedula().equals(cedula)) {
-                                String mensaje = messageSource.getMessage("error.access.denied", null, locale);
-                                return Mono.just(ResponseEntity.status(403).body(mensaje));
-                            } else {
-                                return repository.findByCedula(cedula)
-                                    .collectList()
-                                    .flatMap(list -> {
-                                        if (list.isEmpty()) {
-                                            String mensaje = messageSource.getMessage("reservation.not.found", null, locale);
-                                            return Mono.just(ResponseEntity.status(404).body(mensaje));
-                                        } else {
-                                            return Mono.just(ResponseEntity.ok(list));
-                                        }
-                                    });
-                            }
-                        });
-                }
-            });
+    public Mono<ResponseEntity<?>> obtenerReservas(@PathVariable String cedula,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                                   @RequestParam(defaultValue = "false") boolean historico,
+                                                   UsuarioAutenticado autenticado, ServerWebExchange exchange, Locale locale) {
+        if (!autenticado.puedeAccederA(cedula) || (historico && !autenticado.esAdmin())) {
+            return Mono.just(ResponseEntity.status(403).body(mensajes.get("error.access.denied", locale)));
+        }
+        // El ETag es la versión de todas las reservas del cliente: cambia con cualquier escritura, aunque quede fuera del rango pedido
+        // Las reservas archivadas solo cambian al archivar, lo que también cambia la versión de las reservas activas
+        // Se calcula antes de leer las reservas para que una escritura intermedia dé como mucho una respuesta 200 de más
+        return repository.versionPorCedula(cedula)
+            .map(VersionReservas::etag)
+            .flatMap(etag -> exchange.checkNotModified(etag)
+                ? Mono.just(ResponseEntity.status(304).eTag(etag).build())
+                : (historico
+                        ? repository.buscarConHistorico(cedula, rangoDeFechas(desde, hasta), null, Limit.unlimited())
+                        : buscarPorCedula(cedula, desde, hasta))
+                    .collectList()
+                    .<ResponseEntity<?>>map(list -> list.isEmpty()
+                        ? ResponseEntity.status(404).body(mensajes.get("reservation.not.found", locale))
+                        : ResponseEntity.ok().eTag(etag).body(list)));
     }
 
     // Crear una reserva
     // Se establece un endpoint para crear una nueva reserva en el restaurante con los datos de la reserva y el usuario autenticado
+    // Con la cabecera Idempotency-Key los reintentos de una misma petición no crean reservas duplicadas:
+    // reciben la respuesta de la primera petición con esa clave mientras no caduque
 
-    @Operation(summary = "Crear una reserva")
+    @Operation(summary = "Crear una reserva, opcionalmente con una clave de idempotencia para reintentarla sin duplicarla")
     @PostMapping
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public Mono<ResponseEntity<String>> creaReserva(@RequestBody Reserva reserva, Locale locale) {
-        return ReactiveSecurityContextHolder.getContext()
-            .map(ctx -> ctx.getAuthentication())
-            .flatMap(auth ->
-                usuarioRepository.findByUsername(auth.getName())
-                    .flatMap(user -> {
-                        reserva.setUsuario(auth.getName());
-                        reserva.setCedula(user.getCedula());
-                        return repository.save(reserva);
-                    })
-            )
-            .then(Mono.just(ResponseEntity.ok(
-                messageSource.getMessage("reservation.success", null, locale)
-            )));
+    public Mono<ResponseEntity<Mensaje>> creaReserva(@RequestBody Reserva reserva,
+                                                     @RequestHeader(name = IdempotenciaService.CABECERA, required = false) String claveIdempotencia,
+                                                     UsuarioAutenticado autenticado, Locale locale) {
+        if (claveIdempotencia == null) {
+            return crear(reserva, autenticado, locale);
+        }
+        if (!IdempotenciaService.esValida(claveIdempotencia)) {
+            return Mono.just(ResponseEntity.badRequest()
+                .body(mensajes.get("reservation.idempotency.key.invalid", locale)));
+        }
+        String huella = IdempotenciaService.huella(reserva.getNombreCliente(), reserva.getFecha(), reserva.getNumeroPersonas());
+        return idempotenciaService.ejecutar(autenticado.getUsername(), claveIdempotencia, huella, locale,
+            () -> crear(reserva, autenticado, locale));
+    }
+
+    private Mono<ResponseEntity<Mensaje>> crear(Reserva reserva, UsuarioAutenticado autenticado, Locale locale) {
+        if (!reserva.esValida()) {
+            return Mono.just(ResponseEntity.badRequest()
+                .body(mensajes.get("reservation.invalid", locale)));
+        }
+        reserva.setUsuario(autenticado.getUsername());
+        reserva.setCedula(autenticado.getCedula());
+        // Se ocupan las plazas del turno antes de guardar; si el turno está lleno se responde con 409
+        return capacidadService.reservar(reserva.getFecha(), reserva.getNumeroPersonas())
+            .flatMap(reservado -> {
+                if (!reservado) {
+                    return Mono.just(ResponseEntity.status(409)
+                        .body(mensajes.get("reservation.slot.full", locale)));
+                }
+                // El identificador y la versión nulos hacen que se inserte como reserva nueva con un identificador generado
+                // aunque el cliente los envíe; un identificador elegido por el cliente podría sustituir otra reserva
+                reserva.setId(null);
+                reserva.setVersion(null);
+                return repository.save(reserva)
+                    .onErrorResume(e -> capacidadService.liberar(reserva.getFecha(), reserva.getNumeroPersonas())
+                        .then(Mono.error(e)))
+                    .then(estadisticasService.registrarAlta(reserva.getFecha(), reserva.getNumeroPersonas()))
+                    .doOnSuccess(v -> eventosReservaService.publicar(EventoReserva.de(EventoReserva.Tipo.CREADA, reserva)))
+                    .thenReturn(ResponseEntity.ok(
+                        mensajes.get("reservation.success", locale)));
+            });
+    }
+
+    // Importar reservas de forma masiva desde un flujo NDJSON (una reserva por línea)
+    // Se aplican las mismas reglas que al crear una reserva: validación, plazas del turno y reserva a nombre del usuario autenticado
+    // Se responde también en NDJSON con un resultado por línea a medida que se insertan los lotes
+
+    @Operation(summary = "Importar reservas de forma masiva desde un flujo NDJSON con un resultado por línea")
+    @PostMapping(value = "/importacion", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Flux<ResultadoImportacion> importarReservas(@RequestBody Flux<Reserva> reservas, UsuarioAutenticado autenticado, Locale locale) {
+        return importacionReservasService.importar(reservas, autenticado.getUsername(), autenticado.getCedula(), locale);
     }
 
     // Actualizar una reserva buscada por cédula (solo para el usuario autenticado o un admin)
     // Se establece un endpoint para actualizar una reserva del restaurante buscada por cédula de cliente
+    // La comprobación de propiedad y de versión va en la propia actualización atómica, sin leer antes la reserva
+    // Como al crear una reserva, primero se ocupan en el turno nuevo todas las personas de la reserva (el peor caso) y,
+    // guardado el cambio, se liberan las que ocupaba la reserva anterior; si no se guarda se devuelven las plazas
+    // Si el turno nuevo no admite todas las personas (por ejemplo, un cambio de nombre en un turno casi lleno) se guarda el
+    // cambio y se ocupan solo las plazas que faltan; si tampoco caben se restauran los datos anteriores y se responde con 409
+    // Si el cuerpo incluye la versión leída y otra petición modificó la reserva antes, se responde con 409
 
     @Operation(summary = "Actualizar una reserva buscada por id (solo para el usuario autenticado o un admin)")
     @PutMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
-    public Mono<ResponseEntity<String>> actualizarReserva(@PathVariable String id, @RequestBody Reserva nuevaReserva, Locale locale) {
-        return ReactiveSecurityContextHolder.getContext()
-            .map(ctx -> ctx.getAuthentication())
-            .flatMap(auth -> {
-                String username = auth.getName();
-                boolean esAdmin = auth.getAuthorities().stream()
-                        .anyMatch(grantedAuthority -> 
-                            grantedAuthority.getAuthority().equals("ROLE_ADMIN"));
-                return repository.findById(id).flatMap(reserva -> {
-                    if (esAdmin || reserva.getUsuario().equals(username)) {
-                        reserva.setNombreCliente(nuevaReserva.getNombreCliente());
-                        reserva.setFecha(nuevaReserva.getFecha());
-                        reserva.setNumeroPersonas(nuevaReserva.getNumeroPersonas());
-                        return repository.save(reserva)
-                            .then(Mono.just(ResponseEntity.ok(
-                                messageSource.getMessage("reservation.update.success", null, locale))));
-                    } else {
-                        return Mono.just(ResponseEntity.status(403)
-                            .body(messageSource.getMessage("reservation.update.denied", null, locale)));
-                    }
-                }).switchIfEmpty(Mono.defer(() ->
-                        Mono.just(ResponseEntity.status(404)
-                            .body(messageSource.getMessage("reservation.not.found", null, locale)))));
+    public Mono<ResponseEntity<Mensaje>> actualizarReserva(@PathVariable String id, @RequestBody Reserva nuevaReserva,
+                                                           UsuarioAutenticado autenticado, Locale locale) {
+        if (!nuevaReserva.esValida()) {
+            return Mono.just(ResponseEntity.badRequest()
+                .body(mensajes.get("reservation.invalid", locale)));
+        }
+        LocalDateTime fechaNueva = nuevaReserva.getFecha();
+        int personasNuevas = nuevaReserva.getNumeroPersonas();
+        Mono<Reserva> actualizacion = repository.actualizarSiPermitido(id, autenticado.propietarioExigido(),
+            nuevaReserva.getVersion(), nuevaReserva);
+        return capacidadService.reservar(fechaNueva, personasNuevas)
+            .flatMap(reservado -> {
+                if (reservado) {
+                    Mono<Void> devolver = capacidadService.liberar(fechaNueva, personasNuevas);
+                    return actualizacion
+                        .onErrorResume(e -> devolver.then(Mono.error(e)))
+                        .flatMap(anterior -> capacidadService.liberar(anterior.getFecha(), anterior.getNumeroPersonas())
+                            .then(actualizada(id, anterior, nuevaReserva, locale)))
+                        .switchIfEmpty(Mono.defer(() -> devolver
+                            .then(motivoDelRechazo(id, autenticado, "reservation.update.denied", locale))));
+                }
+                return actualizacion
+                    .flatMap(anterior -> {
+                        long versionNueva = (anterior.getVersion() == null ? 0 : anterior.getVersion()) + 1;
+                        return capacidadService.reservarCambio(anterior.getFecha(), anterior.getNumeroPersonas(),
+                                fechaNueva, personasNuevas)
+                            .onErrorResume(e -> repository.restaurar(anterior, versionNueva).then(Mono.error(e)))
+                            .flatMap(cambiado -> cambiado
+                                ? capacidadService.completarCambio(anterior.getFecha(), anterior.getNumeroPersonas(),
+                                        fechaNueva, personasNuevas)
+                                    .then(actualizada(id, anterior, nuevaReserva, locale))
+                                : repository.restaurar(anterior, versionNueva)
+                                    .then(Mono.just(ResponseEntity.status(409)
+                                        .body(mensajes.get("reservation.slot.full", locale)))));
+                    })
+                    .switchIfEmpty(Mono.defer(() -> motivoDelRechazo(id, autenticado, "reservation.update.denied", locale)));
             });
-    }    
+    }
+
+    // Publica el cambio ya guardado y con las plazas ajustadas, lo suma a las estadísticas y responde con 200
+
+    private Mono<ResponseEntity<Mensaje>> actualizada(String id, Reserva anterior, Reserva nueva, Locale locale) {
+        eventosReservaService.publicar(new EventoReserva(EventoReserva.Tipo.ACTUALIZADA, id,
+            nueva.getFecha(), nueva.getNumeroPersonas()));
+        return estadisticasService.registrarCambio(anterior.getFecha(), anterior.getNumeroPersonas(),
+                nueva.getFecha(), nueva.getNumeroPersonas())
+            .thenReturn(ResponseEntity.ok(mensajes.get("reservation.update.success", locale)));
+    }
 
     // Eliminar una reserva por cédula (solo para el usuario autenticado o un admin)
     // Se establece un endpoint para eliminar una reserva del restaurante por cédula de cliente
+    // La reserva se elimina con la comprobación de propiedad incluida en la consulta, en un solo viaje a la base de datos
 
     @Operation(summary = "Eliminar una reserva por id (solo para el usuario autenticado o un admin)")
     @DeleteMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
-    public Mono<ResponseEntity<String>> eliminarReserva(@PathVariable String id, Locale locale) {
-        return ReactiveSecurityContextHolder.getContext()
-            .map(ctx -> ctx.getAuthentication())
-            .flatMap(auth -> {
-                String username = auth.getName();
-                boolean esAdmin = auth.getAuthorities().stream()
-                        .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ROLE_ADMIN"));
-                return repository.findById(id).flatMap(reserva -> {
-                    if (esAdmin || reserva.getUsuario().equals(username)) {
-                        return repository.delete(reserva)
-                                .then(Mono.just(ResponseEntity.ok(
-                                        messageSource.getMessage("reservation.deleted", null, locale))));
-                    } else {
-                        return Mono.just(ResponseEntity.status(403)
-                                .body(messageSource.getMessage("reservation.delete.denied", null, locale)));
-                    }
-                }).switchIfEmpty(Mono.defer(() ->
-                        Mono.just(ResponseEntity.status(404)
-                                .body(messageSource.getMessage("reservation.not.found", null, locale)))));
-            });
+    public Mono<ResponseEntity<Mensaje>> eliminarReserva(@PathVariable String id, UsuarioAutenticado autenticado, Locale locale) {
+        return repository.eliminarSiPermitido(id, autenticado.propietarioExigido())
+            .doOnNext(reserva -> eventosReservaService.publicar(EventoReserva.de(EventoReserva.Tipo.ELIMINADA, reserva)))
+            .flatMap(reserva -> capacidadService.liberar(reserva.getFecha(), reserva.getNumeroPersonas())
+                .then(estadisticasService.registrarBaja(reserva.getFecha(), reserva.getNumeroPersonas()))
+                .then(Mono.just(ResponseEntity.ok(
+                    mensajes.get("reservation.deleted", locale)))))
+            .switchIfEmpty(Mono.defer(() -> motivoDelRechazo(id, autenticado, "reservation.delete.denied", locale)));
+    }
+
+    // Cuando la operación atómica no encuentra la reserva se consulta una sola vez para dar la respuesta adecuada:
+    // 404 si no existe, 403 si pertenece a otro usuario y 409 si la versión enviada ya no es la actual
+    // Esta consulta solo se hace en el camino de error, el caso habitual sigue siendo un único viaje a la base de datos
+
+    private Mono<ResponseEntity<Mensaje>> motivoDelRechazo(String id, UsuarioAutenticado autenticado, String claveDenegado, Locale locale) {
+        return repository.findById(id)
+            .map(reserva -> {
+                if (!autenticado.esPropietarioDe(reserva)) {
+                    return ResponseEntity.status(403).body(mensajes.get(claveDenegado, locale));
+                }
+                return ResponseEntity.status(409).body(mensajes.get("reservation.version.conflict", locale));
+            })
+            .defaultIfEmpty(ResponseEntity.status(404)
+                .body(mensajes.get("reservation.not.found", locale)));
+    }
+
+    private Flux<Reserva> buscarPorCedula(String cedula, LocalDate desde, LocalDate hasta) {
+        if (desde == null && hasta == null) {
+            return repository.findByCedula(cedula);
+        }
+        return repository.findByCedulaAndFechaBetweenOrderByFechaAsc(cedula, rangoDeFechas(desde, hasta));
+    }
+
+    // Rango de fechas que incluye los días completos "desde" y "hasta"; un extremo nulo deja el rango abierto por ese lado
+
+    static Range<LocalDateTime> rangoDeFechas(LocalDate desde, LocalDate hasta) {
+        Range.Bound<LocalDateTime> inferior = desde == null
+            ? Range.Bound.unbounded() : Range.Bound.inclusive(desde.atStartOfDay());
+        Range.Bound<LocalDateTime> superior = hasta == null
+            ? Range.Bound.unbounded() : Range.Bound.exclusive(hasta.plusDays(1).atStartOfDay());
+        return Range.of(inferior, superior);
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,13 @@
 package com.restaurante.proyecto.controller;
 
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
-import org.springframework.context.MessageSource;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.ReactiveSecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,36 +15,48 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 
+import com.restaurante.proyecto.config.FormatosBinarios;
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.model.Mensaje;
 import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.model.UsuarioAutenticado;
 import com.restaurante.proyecto.repository.UsuarioRepository;
+import com.restaurante.proyecto.service.LimpiezaReservasService;
 import com.restaurante.proyecto.service.UsuarioService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 // Controlador para las operaciones relacionadas con los usuarios para realizar reservas
 // Se establecen los endpoints para registrar, obtener, actualizar y eliminar usuarios de la aplicación y sus roles
 // Se establecen las anotaciones de Swagger para documentar la API de usuarios y sus operaciones
+// Las respuestas se pueden pedir en JSON, CBOR o Smile con la cabecera Accept (ver FormatosBinarios)
 
 @Tag(name = "Usuarios", description = "Operaciones relacionadas con los usuarios para realizar reservas")
 @RestController
 @RequestMapping("/usuarios")
 public class UsuarioController {
 
-    private final PasswordEncoder passwordEncoder;
     private final UsuarioService usuarioService;
     private final UsuarioRepository usuarioRepository;
-    private final MessageSource messageSource;
+    private final Mensajes mensajes;
+    private final Paginacion paginacion;
+    private final LimpiezaReservasService limpiezaReservasService;
 
-    public UsuarioController(UsuarioRepository usuarioRepository, MessageSource messageSource, 
-                             UsuarioService usuarioService, PasswordEncoder passwordEncoder) {
+    public UsuarioController(UsuarioRepository usuarioRepository, Mensajes mensajes, 
+                             UsuarioService usuarioService, Paginacion paginacion,
+                             LimpiezaReservasService limpiezaReservasService) {
         this.usuarioService = usuarioService;
         this.usuarioRepository = usuarioRepository;
-        this.messageSource = messageSource;
-        this.passwordEncoder = passwordEncoder;
+        this.mensajes = mensajes;
+        this.paginacion = paginacion;
+        this.limpiezaReservasService = limpiezaReservasService;
     }
 
     // Registrar un usuario
@@ -51,58 +64,63 @@ public class UsuarioController {
 
     @Operation(summary = "Registrar un usuario")
     @PostMapping("/registro")
-    public Mono<ResponseEntity<String>> registrarUsuario(@RequestBody Usuario usuario, Locale locale) {
+    public Mono<ResponseEntity<Mensaje>> registrarUsuario(@RequestBody Usuario usuario, Locale locale) {
         return usuarioService.registrarUsuario(usuario)
                 .then(Mono.just(ResponseEntity.ok(
-                        messageSource.getMessage("user.registration.success", null, locale))));
+                        mensajes.get("user.registration.success", locale))));
     }
 
     // Obtener todos los usuarios (solo admins)
-    // Se establece un endpoint para obtener todos los usuarios registrados en la aplicación (solo para usuarios con rol de admin)
+    // Se establece un endpoint para obtener los usuarios registrados en la aplicación paginados por cursor (solo para usuarios con rol de admin)
+    // El parámetro "despues" es el identificador del último usuario recibido y "limite" el tamaño de la página
 
-    @Operation(summary = "Obtener todos los usuarios (solo admins)")
+    @Operation(summary = "Obtener todos los usuarios paginados por cursor (solo admins)")
     @GetMapping
-    public Mono<ResponseEntity<?>> listarUsuarios(Locale locale) {
-        return ReactiveSecurityContextHolder.getContext()
-            .map(ctx -> ctx.getAuthentication())
-            .flatMap(auth -> {
-                boolean esAdmin = auth.getAuthorities().stream()
-                    .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
-                if (esAdmin) {
-                    return usuarioRepository.findAll()
-                        .collectList()
-                        .map(lista -> ResponseEntity.ok(lista));
-                } else {
-                    String mensaje = messageSource.getMessage("error.access.denied", null, locale);
-                    return Mono.just(ResponseEntity.status(403).body(mensaje));
-                }
-            });
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<List<Usuario>>> listarUsuarios(@RequestParam(required = false) String despues,
+                                                              @RequestParam(required = false) Integer limite) {
+        Limit pagina = paginacion.limite(limite);
+        Flux<Usuario> usuarios = despues == null
+            ? usuarioRepository.findAllByOrderByIdAsc(pagina)
+            : usuarioRepository.findByIdGreaterThanOrderByIdAsc(despues, pagina);
+        return paginacion.pagina(usuarios, pagina, Usuario::getId);
+    }
+
+    // Obtener todos los usuarios en streaming NDJSON (solo admins)
+    // Los usuarios se escriben a medida que llegan de MongoDB respetando la contrapresión del cliente, sin cargar la colección en memoria
+    // También se pueden pedir como secuencia CBOR o flujo Smile con la cabecera Accept
+
+    @Operation(summary = "Obtener todos los usuarios en streaming NDJSON, CBOR o Smile (solo admins)")
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, FormatosBinarios.CBOR_SECUENCIA, FormatosBinarios.SMILE_FLUJO})
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<Usuario> streamUsuarios(@RequestParam(required = false) String despues) {
+        return despues == null
+            ? usuarioRepository.findAllByOrderByIdAsc(Limit.unlimited())
+            : usuarioRepository.findByIdGreaterThanOrderByIdAsc(despues, Limit.unlimited());
     }
     
     // Obtener un usuario por cédula (solo la del usuario autenticado o un admin)
     // Se establece un endpoint para obtener un usuario registrado en la aplicación por su cédula (solo para el usuario autenticado o un admin)
+    // La cédula del usuario autenticado viaja en el token, por lo que el acceso se decide antes de consultar la base de datos
+    // La respuesta lleva un ETag con la versión del usuario; con If-None-Match se responde 304 sin cuerpo si no ha cambiado
     
-    @Operation(summary = "Obtener un usuario por cédula (solo la del usuario autenticado o un admin)")
+    @Operation(summary = "Obtener un usuario por cédula (solo la del usuario autenticado o un admin), con ETag para peticiones condicionales")
     @GetMapping("/{cedula}")
     @PreAuthorize("isAuthenticated()")
-    public Mono<ResponseEntity<?>> obtenerUsuario(@PathVariable String cedula, Locale locale) {
-        return ReactiveSecurityContextHolder.getContext()
-                .map(ctx -> ctx.getAuthentication())
-                .flatMap(auth -> 
-                    usuarioRepository.findByCedula(cedula)
-                        .flatMap(usuario -> {
-                            // Permitir acceso si es admin o si es el propio usuario
-                            if (auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))
-                                    || usuario.getUsername().equals(auth.getName())) {
-                                return Mono.just(ResponseEntity.ok(usuario));
-                            } else {
-                                return Mono.just(ResponseEntity.status(403)
-                                        .body(messageSource.getMessage("error.access.denied", null, locale)));
-                            }
-                        })
-                        .switchIfEmpty(Mono.just(ResponseEntity.status(404)
-                                .body(messageSource.getMessage("user.not.found", null, locale))))
-                );
+    public Mono<ResponseEntity<?>> obtenerUsuario(@PathVariable String cedula, UsuarioAutenticado autenticado,
+                                                  ServerWebExchange exchange, Locale locale) {
+        if (!autenticado.puedeAccederA(cedula)) {
+            return Mono.just(ResponseEntity.status(403).body(mensajes.get("error.access.denied", locale)));
+        }
+        return usuarioService.buscarPorCedula(cedula)
+                .<ResponseEntity<?>>map(usuario -> {
+                    String etag = UsuarioService.etag(usuario);
+                    return exchange.checkNotModified(etag)
+                        ? ResponseEntity.status(304).eTag(etag).build()
+                        : ResponseEntity.ok().eTag(etag).body(usuario);
+                })
+                .switchIfEmpty(Mono.just(ResponseEntity.status(404)
+                        .body(mensajes.get("user.not.found", locale))));
     }
 
     // Actualizar un usuario (solo admins)
@@ -110,57 +128,39 @@ public class UsuarioController {
 
     @Operation(summary = "Actualizar un usuario (solo admins)")
     @PutMapping("/{cedula}")
-    public Mono<ResponseEntity<String>> actualizarUsuario(@PathVariable String cedula, @RequestBody Usuario usuarioActualizado, Locale locale) {
-        return ReactiveSecurityContextHolder.getContext()
-            .map(ctx -> ctx.getAuthentication())
-            .flatMap(auth -> {
-                boolean esAdmin = auth.getAuthorities().stream()
-                    .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
-                if (!esAdmin) {
-                    String mensaje = messageSource.getMessage("error.access.denied", null, locale);
-                    return Mono.just(ResponseEntity.status(403).body(mensaje));
-                }
-                return usuarioRepository.findByCedula(cedula)
-                    .flatMap(usuario -> {
-                        if (usuarioActualizado.getUsername() != null && !usuarioActualizado.getUsername().isEmpty()) {
-                            usuario.setUsername(usuarioActualizado.getUsername());
-                        }
-                        if (usuarioActualizado.getPassword() != null && !usuarioActualizado.getPassword().isEmpty()) {
-                            usuario.setPassword(passwordEncoder.encode(usuarioActualizado.getPassword()));
-                        }
-                        if (usuarioActualizado.getRole() != null) {
-                            usuario.setRole(usuarioActualizado.getRole());
-                        }
-                        return usuarioRepository.save(usuario)
-                            .thenReturn(ResponseEntity.ok(
-                                messageSource.getMessage("user.update.success", null, locale)));
-                    })
-                    .switchIfEmpty(Mono.just(ResponseEntity.status(404)
-                        .body(messageSource.getMessage("user.not.found", null, locale))));
-            });
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<Mensaje>> actualizarUsuario(@PathVariable String cedula, @RequestBody Usuario usuarioActualizado, Locale locale) {
+        return usuarioService.actualizarUsuario(cedula, usuarioActualizado)
+            .map(usuario -> ResponseEntity.ok(
+                mensajes.get("user.update.success", locale)))
+            .switchIfEmpty(Mono.just(ResponseEntity.status(404)
+                .body(mensajes.get("user.not.found", locale))));
     }
     
     // Eliminar un usuario (solo admins)
     // Se establece un endpoint para eliminar un usuario registrado en la aplicación por su cédula (solo para usuarios con rol de admin)
+    // Las reservas del usuario se eliminan después con una sola eliminación masiva; si esa eliminación falla,
+    // la revisión periódica de reservas huérfanas las elimina más tarde
 
     @Operation(summary = "Eliminar un usuario (solo admins)")
     @DeleteMapping("/{cedula}")
-    public Mono<ResponseEntity<String>> eliminarUsuario(@PathVariable String cedula, Locale locale) {
-        return ReactiveSecurityContextHolder.getContext()
-            .map(ctx -> ctx.getAuthentication())
-            .flatMap(auth -> {
-                boolean esAdmin = auth.getAuthorities().stream()
-                    .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
-                if (!esAdmin) {
-                    String mensaje = messageSource.getMessage("error.access.denied", null, locale);
-                    return Mono.just(ResponseEntity.status(403).body(mensaje));
-                }
-                return usuarioRepository.findByCedula(cedula)
-                    .flatMap(usuario -> usuarioRepository.delete(usuario)
-                        .thenReturn(ResponseEntity.ok(
-                            messageSource.getMessage("user.delete.success", null, locale))))
-                    .switchIfEmpty(Mono.just(ResponseEntity.status(404)
-                        .body(messageSource.getMessage("user.not.found", null, locale))));
-            });
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<Mensaje>> eliminarUsuario(@PathVariable String cedula, Locale locale) {
+        return usuarioService.eliminarUsuario(cedula)
+            .flatMap(usuario -> limpiezaReservasService.eliminarDeCliente(cedula))
+            .map(eliminadas -> ResponseEntity.ok(
+                mensajes.get("user.delete.success", locale)))
+            .switchIfEmpty(Mono.just(ResponseEntity.status(404)
+                .body(mensajes.get("user.not.found", locale))));
+    }
+
+    // Obtener las estadísticas de la caché de usuarios (solo admins)
+    // Se establece un endpoint para consultar los aciertos, fallos y desalojos de la caché de usuarios y poder dimensionarla
+
+    @Operation(summary = "Obtener las estadísticas de la caché de usuarios (solo admins)")
+    @GetMapping("/cache/estadisticas")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<Map<String, Long>>> estadisticasCache() {
+        return Mono.just(ResponseEntity.ok(usuarioService.estadisticasCache()));
     }
-}
\ No newline at end of file
+}
@@ -1,39 +1,67 @@
 package com.restaurante.proyecto.filters;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
-import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 
+import com.restaurante.proyecto.model.UsuarioAutenticado;
 import com.restaurante.proyecto.service.JwtUtil;
+import com.restaurante.proyecto.service.TokenRevocationService;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import reactor.core.publisher.Mono;
 
 // Filtro de autenticación JWT (JSON Web Token) para la aplicación con Spring Security
-// Se establece un filtro para validar el token JWT en las cabeceras de autorización de las peticiones HTTP y autenticar a los usuarios con el servicio de usuarios reactivos
+// Se establece un filtro para validar el token JWT en las cabeceras de autorización de las peticiones HTTP y autenticar a los usuarios
+// El rol y la cédula viajan firmados en el token, por lo que la autenticación se construye sin consultar la base de datos
+// salvo para comprobar la revocación, que compara la versión del token con la vigente del usuario guardada en caché
+// El principal de la autenticación es el usuario autenticado con su rol y su cédula, que reciben después los controladores
+// Se mide el tiempo de validación del token (firma, expiración y revocación) en el temporizador "jwt.validacion"
+// con el resultado como etiqueta: valido, invalido o revocado
 
 @Component
 public class JwtAuthenticationFilter implements WebFilter {
 
     private final JwtUtil jwtUtil;
-    private final ReactiveUserDetailsService reactiveUserDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+    private final Timer validacionCorrecta;
+    private final Timer validacionInvalida;
+    private final Timer validacionRevocada;
 
     @Autowired
-    public JwtAuthenticationFilter(@Lazy JwtUtil jwtUtil, @Lazy ReactiveUserDetailsService reactiveUserDetailsService) {
+    public JwtAuthenticationFilter(@Lazy JwtUtil jwtUtil, TokenRevocationService tokenRevocationService, MeterRegistry meterRegistry) {
         this.jwtUtil = jwtUtil;
-        this.reactiveUserDetailsService = reactiveUserDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.validacionCorrecta = temporizador(meterRegistry, "valido");
+        this.validacionInvalida = temporizador(meterRegistry, "invalido");
+        this.validacionRevocada = temporizador(meterRegistry, "revocado");
+    }
+
+    private static Timer temporizador(MeterRegistry meterRegistry, String resultado) {
+        return Timer.builder("jwt.validacion")
+                .description("Tiempo de validación del token JWT de cada petición")
+                .tag("resultado", resultado)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     // Método para filtrar las peticiones HTTP y validar el token JWT en las cabeceras de autorización
-    // Se extrae el nombre de usuario del token JWT y se autentica al usuario con el servicio de usuarios reactivos
+    // Se extraen el nombre de usuario y el rol del token JWT y se rechazan los tokens revocados por un cambio en el usuario
 
     @Override
     @NonNull
@@ -45,27 +73,50 @@ public class JwtAuthenticationFilter implements WebFilter {
         }
 
         String token = authHeader.substring(7);
-        String username = jwtUtil.extractUsername(token);
+        long inicio = System.nanoTime();
+        Claims claims;
+        try {
+            // El token se verifica una sola vez (firma y expiración) y se reutilizan sus reclamaciones
+            claims = jwtUtil.verifyToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return rechazarInvalido(exchange, inicio);
+        }
 
+        // Un token bien firmado pero sin usuario tampoco es válido
+        String username = claims.getSubject();
         if (username == null) {
-            return chain.filter(exchange);
+            return rechazarInvalido(exchange, inicio);
         }
 
-        return reactiveUserDetailsService.findByUsername(username)
-            .switchIfEmpty(Mono.error(new RuntimeException("User not found")))
-            .flatMap(userDetails -> {
-                if (!jwtUtil.validateToken(token, userDetails.getUsername())) {
-                    exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-                    return exchange.getResponse().setComplete();
-                }
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                return chain.filter(exchange)
-                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authToken));
-            })
-            .onErrorResume(e -> {
-                exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-                return exchange.getResponse().setComplete();
-            });
+        String role = jwtUtil.extractRole(claims);
+        if (role == null) {
+            return rechazarRevocado(exchange, inicio);
+        }
+        return tokenRevocationService.estaRevocado(username, jwtUtil.extractVersion(claims))
+                .flatMap(revocado -> {
+                    if (revocado) {
+                        return rechazarRevocado(exchange, inicio);
+                    }
+                    validacionCorrecta.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+
+                    UsuarioAutenticado usuario = new UsuarioAutenticado(username, jwtUtil.extractCedula(claims), role);
+                    UsernamePasswordAuthenticationToken authToken =
+                            new UsernamePasswordAuthenticationToken(usuario, null, List.of(new SimpleGrantedAuthority(role)));
+                    authToken.setDetails(claims);
+                    return chain.filter(exchange)
+                            .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authToken));
+                });
+    }
+
+    private Mono<Void> rechazarInvalido(ServerWebExchange exchange, long inicio) {
+        validacionInvalida.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        return exchange.getResponse().setComplete();
+    }
+
+    private Mono<Void> rechazarRevocado(ServerWebExchange exchange, long inicio) {
+        validacionRevocada.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        return exchange.getResponse().setComplete();
     }
 }
@@ -0,0 +1,174 @@
+package com.restaurante.proyecto.filters;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.service.JwtUtil;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+// Filtro que limita el número de peticiones por cliente con cubetas de fichas (token bucket) por regla y cliente
+// Se ejecuta en la cadena de Spring Security antes del filtro JWT para rechazar los excesos antes de autenticarlos
+// El cliente es el usuario del token si el token es válido (la verificación queda en la caché de tokens para el filtro JWT)
+// o la dirección IP de la conexión en las peticiones sin token o con un token no válido
+// Las reglas se configuran como "[MÉTODO] patrón=peticiones/periodo" y se aplica la primera que coincide con la petición;
+// las peticiones que no coinciden con ninguna regla no se limitan
+// Las peticiones rechazadas reciben un 429 con la cabecera Retry-After y se cuentan en "http.peticiones.limitadas" por regla
+
+public class LimitePeticionesFilter implements WebFilter {
+
+    private final List<Regla> reglas;
+    private final JwtUtil jwtUtil;
+    private final Mensajes mensajes;
+    private final Cache<String, Cubeta> cubetas;
+
+    public LimitePeticionesFilter(List<String> reglas, long maxClaves, JwtUtil jwtUtil, Mensajes mensajes,
+                                  MeterRegistry meterRegistry) {
+        List<String> definiciones = reglas.stream().map(String::trim).filter(regla -> !regla.isEmpty()).toList();
+        this.reglas = IntStream.range(0, definiciones.size())
+                .mapToObj(indice -> Regla.de(indice, definiciones.get(indice), meterRegistry))
+                .toList();
+        this.jwtUtil = jwtUtil;
+        this.mensajes = mensajes;
+        // Una cubeta sin usar durante el periodo más largo vuelve a estar llena, por lo que se puede desalojar sin cambiar el límite
+        Duration periodoMaximo = this.reglas.stream().map(Regla::periodo).max(Duration::compareTo).orElse(Duration.ofMinutes(1));
+        this.cubetas = Caffeine.newBuilder()
+                .maximumSize(maxClaves)
+                .expireAfterAccess(periodoMaximo)
+                .build();
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        Regla regla = buscarRegla(exchange);
+        if (regla == null) {
+            return chain.filter(exchange);
+        }
+        Cubeta cubeta = cubetas.get(regla.indice + "|" + cliente(exchange), clave -> new Cubeta());
+        long esperaNanos = cubeta.consumir(System.nanoTime(), regla.intervaloNanos, regla.toleranciaNanos);
+        if (esperaNanos == 0) {
+            return chain.filter(exchange);
+        }
+        regla.limitadas.increment();
+        return rechazar(exchange, esperaNanos);
+    }
+
+    private Regla buscarRegla(ServerWebExchange exchange) {
+        PathContainer ruta = exchange.getRequest().getPath().pathWithinApplication();
+        HttpMethod metodo = exchange.getRequest().getMethod();
+        for (Regla regla : reglas) {
+            if ((regla.metodo == null || regla.metodo.equals(metodo)) && regla.patron.matches(ruta)) {
+                return regla;
+            }
+        }
+        return null;
+    }
+
+    private String cliente(ServerWebExchange exchange) {
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            try {
+                String username = jwtUtil.verifyToken(authHeader.substring(7)).getSubject();
+                if (username != null) {
+                    return "usuario:" + username;
+                }
+            } catch (JwtException | IllegalArgumentException e) {
+                // El filtro JWT rechaza el token; mientras tanto la petición cuenta para la dirección IP
+            }
+        }
+        InetSocketAddress direccion = exchange.getRequest().getRemoteAddress();
+        return "ip:" + (direccion == null ? "desconocida" : direccion.getAddress() == null
+                ? direccion.getHostString() : direccion.getAddress().getHostAddress());
+    }
+
+    private Mono<Void> rechazar(ServerWebExchange exchange, long esperaNanos) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] mensaje = mensajes.get("error.rate.limited", exchange.getLocaleContext().getLocale()).getJson();
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(mensaje)));
+    }
+
+    // Regla de limitación: método (nulo para todos), patrón de ruta y ritmo permitido
+    // El ritmo se guarda como el intervalo entre peticiones y la ráfaga tolerada por encima de ese ritmo
+
+    private record Regla(int indice, HttpMethod metodo, PathPattern patron, Duration periodo,
+                         long intervaloNanos, long toleranciaNanos, Counter limitadas) {
+
+        static Regla de(int indice, String definicion, MeterRegistry meterRegistry) {
+            int igual = definicion.lastIndexOf('=');
+            int barra = definicion.lastIndexOf('/');
+            if (igual < 0 || barra < igual) {
+                throw new IllegalArgumentException("Regla de limitación no válida (se espera \"[MÉTODO] patrón=peticiones/periodo\"): " + definicion);
+            }
+            String destino = definicion.substring(0, igual).trim();
+            int espacio = destino.indexOf(' ');
+            HttpMethod metodo = espacio < 0 ? null : HttpMethod.valueOf(destino.substring(0, espacio).toUpperCase());
+            String patron = espacio < 0 ? destino : destino.substring(espacio + 1).trim();
+            long peticiones = Long.parseLong(definicion.substring(igual + 1, barra).trim());
+            Duration periodo = DurationStyle.detectAndParse(definicion.substring(barra + 1).trim());
+            if (peticiones < 1 || periodo.isZero() || periodo.isNegative()) {
+                throw new IllegalArgumentException("La regla de limitación debe permitir al menos una petición por periodo: " + definicion);
+            }
+            long intervalo = Math.max(1, periodo.toNanos() / peticiones);
+            Counter limitadas = Counter.builder("http.peticiones.limitadas")
+                    .description("Peticiones rechazadas por superar el límite de su regla")
+                    .tag("regla", destino)
+                    .register(meterRegistry);
+            return new Regla(indice, metodo, PathPatternParser.defaultInstance.parse(patron), periodo,
+                    intervalo, intervalo * (peticiones - 1), limitadas);
+        }
+    }
+
+    // Cubeta de un cliente en una regla con el algoritmo GCRA, equivalente a una cubeta de fichas:
+    // en lugar de contar fichas se guarda el instante teórico en el que la cubeta vuelve a estar llena,
+    // de modo que el estado es un único long que se actualiza con compare-and-set, sin bloqueos
+
+    static final class Cubeta {
+
+        private final AtomicLong llenaEn = new AtomicLong(Long.MIN_VALUE);
+
+        // Consume una ficha si hay y devuelve 0, o devuelve los nanosegundos que faltan para la siguiente ficha
+
+        long consumir(long ahora, long intervaloNanos, long toleranciaNanos) {
+            while (true) {
+                long actual = llenaEn.get();
+                long base = actual == Long.MIN_VALUE || actual - ahora < 0 ? ahora : actual;
+                long espera = base - ahora - toleranciaNanos;
+                if (espera > 0) {
+                    return espera;
+                }
+                if (llenaEn.compareAndSet(actual, base + intervaloNanos)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
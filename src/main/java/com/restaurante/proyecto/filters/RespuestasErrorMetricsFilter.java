@@ -0,0 +1,65 @@
+package com.restaurante.proyecto.filters;
+
+import java.util.Map;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+// Filtro que cuenta las respuestas 401, 403 y 404 en el contador "http.respuestas.error" por estado y ruta
+// Se ejecuta antes de la cadena de Spring Security para contar también los rechazos del filtro JWT y de las reglas de acceso
+// La ruta es la plantilla del endpoint (por ejemplo /reservas/{id}) para no crear una serie por cada identificador;
+// las peticiones rechazadas antes de llegar a un controlador se cuentan con la ruta "UNKNOWN"
+
+@Component
+@Order(-200)
+public class RespuestasErrorMetricsFilter implements WebFilter {
+
+    private static final String RUTA_DESCONOCIDA = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+
+    public RespuestasErrorMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        return chain.filter(exchange)
+            .doOnSuccess(v -> contar(exchange, exchange.getResponse().getStatusCode()))
+            .doOnError(ResponseStatusException.class, e -> contar(exchange, e.getStatusCode()));
+    }
+
+    private void contar(ServerWebExchange exchange, HttpStatusCode estado) {
+        if (estado == null) {
+            return;
+        }
+        int codigo = estado.value();
+        if (codigo != 401 && codigo != 403 && codigo != 404) {
+            return;
+        }
+        Counter.builder("http.respuestas.error")
+            .description("Respuestas 401, 403 y 404 por estado y ruta")
+            .tags("estado", String.valueOf(codigo), "ruta", ruta(exchange))
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static String ruta(ServerWebExchange exchange) {
+        Map<String, Object> atributos = exchange.getAttributes();
+        Object patron = atributos.get(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return patron instanceof PathPattern pathPattern ? pathPattern.getPatternString() : RUTA_DESCONOCIDA;
+    }
+}
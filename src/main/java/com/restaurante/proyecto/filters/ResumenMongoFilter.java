@@ -0,0 +1,59 @@
+package com.restaurante.proyecto.filters;
+
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.restaurante.proyecto.config.ResumenMongoPeticion;
+
+import reactor.core.publisher.Mono;
+
+// Filtro que resume los comandos de MongoDB de cada petición: cuántos se ejecutaron y cuánto tiempo sumaron
+// El resumen se añade a la respuesta en la cabecera estándar Server-Timing (visible en las herramientas del navegador)
+// y se registra en el log en nivel DEBUG al terminar la petición
+// Los comandos que terminan después de enviar las cabeceras (respuestas en streaming) solo aparecen en el log
+
+@Component
+@Order(-190)
+public class ResumenMongoFilter implements WebFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumenMongoFilter.class);
+
+    private final boolean cabecera;
+
+    public ResumenMongoFilter(@Value("${mongo.comandos.cabecera-server-timing:true}") boolean cabecera) {
+        this.cabecera = cabecera;
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        ResumenMongoPeticion resumen = new ResumenMongoPeticion();
+        if (cabecera) {
+            exchange.getResponse().beforeCommit(() -> {
+                if (resumen.getComandos() > 0) {
+                    exchange.getResponse().getHeaders().add("Server-Timing", String.format(Locale.ROOT,
+                        "mongo;dur=%.2f;desc=\"%d comandos\"", resumen.getMilisegundos(), resumen.getComandos()));
+                }
+                return Mono.empty();
+            });
+        }
+        return chain.filter(exchange)
+            .contextWrite(contexto -> contexto.put(ResumenMongoPeticion.class, resumen))
+            .doFinally(senal -> {
+                if (resumen.getComandos() > 0 && log.isDebugEnabled()) {
+                    log.debug("{} {}: {} comandos MongoDB en {} ms", exchange.getRequest().getMethod(),
+                        exchange.getRequest().getPath(), resumen.getComandos(),
+                        String.format(Locale.ROOT, "%.2f", resumen.getMilisegundos()));
+                }
+            });
+    }
+}
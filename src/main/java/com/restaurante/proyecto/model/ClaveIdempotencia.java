@@ -0,0 +1,53 @@
+package com.restaurante.proyecto.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Clase para representar una clave de idempotencia recibida en la cabecera Idempotency-Key al crear una reserva
+// Se guarda el resultado de la primera petición con la clave (estado HTTP y código del mensaje) para devolverlo en los reintentos
+// Se establece la colección "claves_idempotencia" con un índice TTL que elimina cada clave al llegar a su fecha de expiración
+// El identificador combina el usuario y la clave, de modo que dos usuarios pueden usar la misma clave sin interferir
+
+@Document(collection = "claves_idempotencia")
+public class ClaveIdempotencia {
+
+    // Estado de una clave cuya primera petición todavía no ha terminado
+    public static final int EN_CURSO = 0;
+
+    @Id
+    private String id;
+    // Huella de los datos de la reserva para detectar una misma clave usada con una reserva diferente
+    private String huella;
+    private int estado;
+    private String codigo;
+    @Indexed(expireAfterSeconds = 0)
+    private Instant expira;
+
+    public ClaveIdempotencia() {}
+
+    public ClaveIdempotencia(String id, String huella, int estado, String codigo, Instant expira) {
+        this.id = id;
+        this.huella = huella;
+        this.estado = estado;
+        this.codigo = codigo;
+        this.expira = expira;
+    }
+
+    public boolean enCurso() {
+        return estado == EN_CURSO;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getHuella() { return huella; }
+    public void setHuella(String huella) { this.huella = huella; }
+    public int getEstado() { return estado; }
+    public void setEstado(int estado) { this.estado = estado; }
+    public String getCodigo() { return codigo; }
+    public void setCodigo(String codigo) { this.codigo = codigo; }
+    public Instant getExpira() { return expira; }
+    public void setExpira(Instant expira) { this.expira = expira; }
+}
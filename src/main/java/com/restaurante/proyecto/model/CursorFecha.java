@@ -0,0 +1,44 @@
+package com.restaurante.proyecto.model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+// Cursor de la paginación por fecha de las reservas: fecha e identificador de la última reserva recibida
+// Las reservas se ordenan por fecha y, dentro de la misma fecha, por identificador, de modo que el cursor es único
+// aunque muchas reservas compartan turno
+// Se envía al cliente como texto "fecha_identificador" (por ejemplo "2025-05-10T20:00_01JTV8Z5Q7...")
+
+public record CursorFecha(LocalDateTime fecha, String id) {
+
+    private static final char SEPARADOR = '_';
+
+    public static CursorFecha de(Reserva reserva) {
+        return new CursorFecha(reserva.getFecha(), reserva.getId());
+    }
+
+    // Lee el cursor recibido del cliente; devuelve null si no tiene el formato esperado
+
+    public static CursorFecha leer(String valor) {
+        int separador = valor.indexOf(SEPARADOR);
+        if (separador <= 0 || separador == valor.length() - 1) {
+            return null;
+        }
+        try {
+            return new CursorFecha(LocalDateTime.parse(valor.substring(0, separador)), valor.substring(separador + 1));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // Indica si la reserva va después del cursor en el orden por fecha e identificador
+
+    public boolean esAnteriorA(Reserva reserva) {
+        int comparacion = reserva.getFecha().compareTo(fecha);
+        return comparacion > 0 || (comparacion == 0 && reserva.getId().compareTo(id) > 0);
+    }
+
+    @Override
+    public String toString() {
+        return fecha.toString() + SEPARADOR + id;
+    }
+}
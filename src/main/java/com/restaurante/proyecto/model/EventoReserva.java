@@ -0,0 +1,34 @@
+package com.restaurante.proyecto.model;
+
+import java.time.LocalDateTime;
+
+// Clase para representar un cambio en las reservas del restaurante que se envía a los clientes suscritos al flujo de eventos
+// Incluye el tipo de cambio, el identificador de la reserva y su fecha y número de personas tras el cambio
+// (o antes de eliminarla); no incluye datos personales del cliente
+// La fecha puede ser nula en las eliminaciones recibidas de MongoDB si la colección no guarda la versión anterior de los documentos
+
+public class EventoReserva {
+
+    public enum Tipo { CREADA, ACTUALIZADA, ELIMINADA }
+
+    private final Tipo tipo;
+    private final String id;
+    private final LocalDateTime fecha;
+    private final int numeroPersonas;
+
+    public EventoReserva(Tipo tipo, String id, LocalDateTime fecha, int numeroPersonas) {
+        this.tipo = tipo;
+        this.id = id;
+        this.fecha = fecha;
+        this.numeroPersonas = numeroPersonas;
+    }
+
+    public static EventoReserva de(Tipo tipo, Reserva reserva) {
+        return new EventoReserva(tipo, reserva.getId(), reserva.getFecha(), reserva.getNumeroPersonas());
+    }
+
+    public Tipo getTipo() { return tipo; }
+    public String getId() { return id; }
+    public LocalDateTime getFecha() { return fecha; }
+    public int getNumeroPersonas() { return numeroPersonas; }
+}
@@ -0,0 +1,29 @@
+package com.restaurante.proyecto.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Clase para representar el cuerpo de las respuestas con un mensaje localizado: el código del mensaje y su texto
+// Se devuelve como JSON {"codigo": "...", "mensaje": "..."}; el JSON se calcula una sola vez al iniciar la aplicación
+// y se escribe tal cual en cada respuesta sin volver a serializarlo
+
+public class Mensaje {
+    private final String codigo;
+    private final String mensaje;
+    private final byte[] json;
+
+    public Mensaje(String codigo, String mensaje, byte[] json) {
+        this.codigo = codigo;
+        this.mensaje = mensaje;
+        this.json = json;
+    }
+
+    public String getCodigo() { return codigo; }
+    public String getMensaje() { return mensaje; }
+
+    // JSON ya codificado en UTF-8; el array es compartido entre respuestas y no se debe modificar
+    @JsonIgnore
+    public byte[] getJson() { return json; }
+
+    @Override
+    public String toString() { return mensaje; }
+}
@@ -0,0 +1,27 @@
+package com.restaurante.proyecto.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Clase para representar la ocupación de un turno del restaurante
+// Se utiliza como contador de plazas ocupadas por turno, actualizado de forma atómica al crear, modificar o eliminar reservas
+// Se establece la colección "ocupacion_turnos" con un documento por turno identificado por su fecha y hora de inicio
+
+@Document(collection = "ocupacion_turnos")
+public class OcupacionTurno {
+    @Id
+    private LocalDateTime turno;
+    private int ocupadas;
+
+    public OcupacionTurno(LocalDateTime turno, int ocupadas) {
+        this.turno = turno;
+        this.ocupadas = ocupadas;
+    }
+
+    public LocalDateTime getTurno() { return turno; }
+    public void setTurno(LocalDateTime turno) { this.turno = turno; }
+    public int getOcupadas() { return ocupadas; }
+    public void setOcupadas(int ocupadas) { this.ocupadas = ocupadas; }
+}
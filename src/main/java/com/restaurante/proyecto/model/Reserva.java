@@ -1,29 +1,45 @@
 package com.restaurante.proyecto.model;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import com.aventrix.jnanoid.jnanoid.NanoIdUtils;
-
 // Clase para representar una reserva en el restaurante
 // Se utiliza para almacenar la información de una reserva en la base de datos MongoDB con Spring Data MongoDB
 // Se establece la colección "reservas" para almacenar las reservas en la base de datos
+// Se declara un índice compuesto por cédula y fecha para las búsquedas de reservas de un cliente
+// y un índice por fecha e identificador para las consultas por rango de fechas, que se paginan por fecha e identificador
+// El índice por cédula, fecha de modificación y versión cubre el cálculo de la versión de las reservas de un cliente (ETag)
+// sin leer los documentos
+// Las reservas anteriores al horizonte de archivo se mueven a la colección "reservas_historico", con los mismos índices
 
-@Document(collection = "reservas")
+@Document(collection = Reserva.COLECCION)
+@CompoundIndex(name = "cedula_fecha", def = "{'cedula': 1, 'fecha': 1}")
+@CompoundIndex(name = "fecha_id", def = "{'fecha': 1, '_id': 1}")
+@CompoundIndex(name = "cedula_modificada_version", def = "{'cedula': 1, 'modificada': 1, 'version': 1}")
 public class Reserva {
+
+    public static final String COLECCION = "reservas";
+    // Colección con las reservas archivadas (ver ArchivoReservasService)
+    public static final String COLECCION_HISTORICO = "reservas_historico";
+
     @Id
-    // Se genera un identificador único para cada reserva con NanoId
-    private String id = NanoIdUtils.randomNanoId(new java.util.Random(), DIGITS, 5);
+    // El identificador se asigna al insertar la reserva con el generador de identificadores (ver AsignarIdReserva)
+    private String id;
     private String usuario;
     private String nombreCliente;
     private String cedula;
-    private String fecha;
+    private LocalDateTime fecha; // fecha y hora de inicio del turno reservado
     private int numeroPersonas;
+    @Version
+    private Long version; // control de concurrencia optimista para detectar actualizaciones perdidas
+    private Instant modificada; // fecha de la última escritura, se actualiza al crear, modificar o restaurar la reserva
 
-    // Caracteres para generar el identificador único de la reserva con NanoId
-    private static final char [] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
-
-    public Reserva(String usuario, String cedula, String nombreCliente, String fecha, int numeroPersonas) {
+    public Reserva(String usuario, String cedula, String nombreCliente, LocalDateTime fecha, int numeroPersonas) {
         this.usuario = usuario;
         this.nombreCliente = nombreCliente;
         this.cedula = cedula;
@@ -31,16 +47,26 @@ public class Reserva {
         this.numeroPersonas = numeroPersonas;
     }
 
+    // Una reserva debe tener fecha y al menos una persona para ocupar plazas de un turno
+
+    public boolean esValida() {
+        return fecha != null && numeroPersonas > 0;
+    }
+
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
     public String getCedula() { return cedula; }
     public void setCedula(String cedula) { this.cedula = cedula; }
     public String getUsuario() { return usuario; }
     public void setUsuario(String usuario) { this.usuario = usuario; }
-    public String getFecha() { return fecha; }
-    public void setFecha(String fecha) { this.fecha = fecha; }
+    public LocalDateTime getFecha() { return fecha; }
+    public void setFecha(LocalDateTime fecha) { this.fecha = fecha; }
     public int getNumeroPersonas() { return numeroPersonas; }
     public void setNumeroPersonas(int numeroPersonas) { this.numeroPersonas = numeroPersonas; }
     public String getNombreCliente() { return nombreCliente; }
     public void setNombreCliente(String nombreCliente) { this.nombreCliente = nombreCliente; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    public Instant getModificada() { return modificada; }
+    public void setModificada(Instant modificada) { this.modificada = modificada; }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.restaurante.proyecto.model;
+
+// Clase para representar el resultado de importar una reserva en la importación masiva
+// Se devuelve una por cada línea recibida, con el número de línea, el identificador de la reserva,
+// el código de estado HTTP equivalente (201 creada, 400 no válida, 409 sin plazas o duplicada, 500 error) y un mensaje
+
+public class ResultadoImportacion {
+    private final long linea;
+    private final String id;
+    private final int estado;
+    private final String mensaje;
+
+    public ResultadoImportacion(long linea, String id, int estado, String mensaje) {
+        this.linea = linea;
+        this.id = id;
+        this.estado = estado;
+        this.mensaje = mensaje;
+    }
+
+    public long getLinea() { return linea; }
+    public String getId() { return id; }
+    public int getEstado() { return estado; }
+    public String getMensaje() { return mensaje; }
+}
@@ -0,0 +1,28 @@
+package com.restaurante.proyecto.model;
+
+import java.time.LocalDateTime;
+
+// Clase para representar la actividad de un cliente en un periodo: número de reservas, personas (cubiertos)
+// y fecha de su última reserva, identificado por su cédula y el último nombre de cliente usado
+
+public class ResumenCliente {
+    private String cedula;
+    private String nombreCliente;
+    private long reservas;
+    private long personas;
+    private LocalDateTime ultimaFecha;
+
+    public ResumenCliente(String cedula, String nombreCliente, long reservas, long personas, LocalDateTime ultimaFecha) {
+        this.cedula = cedula;
+        this.nombreCliente = nombreCliente;
+        this.reservas = reservas;
+        this.personas = personas;
+        this.ultimaFecha = ultimaFecha;
+    }
+
+    public String getCedula() { return cedula; }
+    public String getNombreCliente() { return nombreCliente; }
+    public long getReservas() { return reservas; }
+    public long getPersonas() { return personas; }
+    public LocalDateTime getUltimaFecha() { return ultimaFecha; }
+}
@@ -0,0 +1,31 @@
+package com.restaurante.proyecto.model;
+
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Clase para representar el resumen de ocupación de un día del restaurante: número de reservas y de personas (cubiertos)
+// Se establece la colección "resumen_diario" con un documento por día, actualizado de forma incremental al crear,
+// modificar o eliminar reservas, para que los paneles lean un documento por día en lugar de recorrer todas las reservas
+
+@Document(collection = "resumen_diario")
+public class ResumenDiario {
+    @Id
+    private LocalDate dia;
+    private long reservas;
+    private long personas;
+
+    public ResumenDiario(LocalDate dia, long reservas, long personas) {
+        this.dia = dia;
+        this.reservas = reservas;
+        this.personas = personas;
+    }
+
+    public LocalDate getDia() { return dia; }
+    public void setDia(LocalDate dia) { this.dia = dia; }
+    public long getReservas() { return reservas; }
+    public void setReservas(long reservas) { this.reservas = reservas; }
+    public long getPersonas() { return personas; }
+    public void setPersonas(long personas) { this.personas = personas; }
+}
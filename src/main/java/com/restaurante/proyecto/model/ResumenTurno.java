@@ -0,0 +1,22 @@
+package com.restaurante.proyecto.model;
+
+import java.time.LocalDateTime;
+
+// Clase para representar la ocupación de un turno del restaurante calculada a partir de las reservas:
+// número de reservas y de personas (cubiertos) del turno que empieza en la fecha y hora indicadas
+
+public class ResumenTurno {
+    private LocalDateTime turno;
+    private long reservas;
+    private long personas;
+
+    public ResumenTurno(LocalDateTime turno, long reservas, long personas) {
+        this.turno = turno;
+        this.reservas = reservas;
+        this.personas = personas;
+    }
+
+    public LocalDateTime getTurno() { return turno; }
+    public long getReservas() { return reservas; }
+    public long getPersonas() { return personas; }
+}
@@ -1,20 +1,28 @@
 package com.restaurante.proyecto.model;
 
+import java.time.Instant;
+
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 // Clase para representar un usuario en la aplicación
 // Se utiliza para almacenar la información de un usuario en la base de datos MongoDB con Spring Data MongoDB
 // Se establece la colección "usuarios" para almacenar los usuarios en la base de datos
+// Se declaran índices únicos por nombre de usuario y por cédula para las búsquedas del repositorio
 
 @Document(collection = "usuarios")
 public class Usuario {
     @Id
     private String id;
+    @Indexed(unique = true)
     private String cedula;
+    @Indexed(unique = true)
     private String username;
     private String password;
     private String role; //usuarios o administradores
+    private long tokenVersion; // se incrementa para invalidar los tokens emitidos anteriormente
+    private Instant modificado; // fecha de la última escritura, se usa como ETag del usuario
 
     public Usuario(String cedula ,String username, String password, String role) {
         this.cedula = cedula;
@@ -28,10 +36,14 @@ public class Usuario {
     public String getUsername() { return username; }
     public String getPassword() { return password; }
     public String getRole() { return role; }
+    public long getTokenVersion() { return tokenVersion; }
+    public Instant getModificado() { return modificado; }
 
     public void setId(String id) { this.id = id; }
     public void setCedula(String cedula) { this.cedula = cedula; }
     public void setUsername(String username) { this.username = username; }
     public void setPassword(String password) { this.password = password; }
     public void setRole(String role) { this.role = role; }
+    public void setTokenVersion(long tokenVersion) { this.tokenVersion = tokenVersion; }
+    public void setModificado(Instant modificado) { this.modificado = modificado; }
 }
\ No newline at end of file
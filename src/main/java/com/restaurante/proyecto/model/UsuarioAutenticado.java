@@ -0,0 +1,53 @@
+package com.restaurante.proyecto.model;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+// Clase para representar al usuario autenticado de una petición: nombre de usuario, cédula y rol
+// Se construye una sola vez por petición a partir del token JWT y se recibe como argumento en los controladores
+// Las reglas de propiedad de la aplicación se declaran aquí: un admin accede a todo y un usuario solo a sus propios datos
+
+public class UsuarioAutenticado implements AuthenticatedPrincipal {
+
+    public static final String ROL_ADMIN = "ROLE_ADMIN";
+
+    private final String username;
+    private final String cedula;
+    private final String rol;
+    private final boolean admin;
+
+    public UsuarioAutenticado(String username, String cedula, String rol) {
+        this.username = username;
+        this.cedula = cedula;
+        this.rol = rol;
+        this.admin = ROL_ADMIN.equals(rol);
+    }
+
+    @Override
+    public String getName() { return username; }
+
+    public String getUsername() { return username; }
+    public String getCedula() { return cedula; }
+    public String getRol() { return rol; }
+    public boolean esAdmin() { return admin; }
+
+    // Los datos de una cédula (usuario y reservas) solo los ve el propio usuario o un admin
+
+    public boolean puedeAccederA(String cedula) {
+        return admin || (this.cedula != null && this.cedula.equals(cedula));
+    }
+
+    // Una reserva solo la modifica o elimina el usuario que la creó o un admin
+
+    public boolean esPropietarioDe(Reserva reserva) {
+        return admin || username.equals(reserva.getUsuario());
+    }
+
+    // Usuario exigido en las operaciones atómicas sobre reservas: nulo para un admin, que puede operar sobre cualquier reserva
+
+    public String propietarioExigido() {
+        return admin ? null : username;
+    }
+
+    @Override
+    public String toString() { return username; }
+}
@@ -0,0 +1,30 @@
+package com.restaurante.proyecto.model;
+
+import java.time.Instant;
+
+// Clase para representar la versión de las reservas de un cliente, calculada sin leer las reservas
+// Cambia con cualquier escritura: al crear una reserva cambia el número de reservas y la última modificación,
+// al modificarla o restaurarla aumenta la suma de versiones y al eliminarla baja el número de reservas
+// Se utiliza como ETag débil de las consultas de reservas por cédula para responder 304 si no hay cambios
+
+public class VersionReservas {
+
+    private final long reservas;
+    private final long sumaVersiones;
+    private final Instant ultimaModificacion;
+
+    public VersionReservas(long reservas, long sumaVersiones, Instant ultimaModificacion) {
+        this.reservas = reservas;
+        this.sumaVersiones = sumaVersiones;
+        this.ultimaModificacion = ultimaModificacion;
+    }
+
+    public String etag() {
+        return "W/\"" + reservas + "-" + sumaVersiones + "-"
+            + (ultimaModificacion == null ? 0 : ultimaModificacion.toEpochMilli()) + "\"";
+    }
+
+    public long getReservas() { return reservas; }
+    public long getSumaVersiones() { return sumaVersiones; }
+    public Instant getUltimaModificacion() { return ultimaModificacion; }
+}
@@ -0,0 +1,32 @@
+package com.restaurante.proyecto.repository;
+
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.service.GeneradorIdentificadores;
+
+import reactor.core.publisher.Mono;
+
+// Asigna el identificador de las reservas justo antes de guardarlas, tanto al insertar una a una como en escrituras masivas
+// Solo se asigna si la reserva no tiene identificador, de modo que los objetos que se leen de la base de datos
+// o se deserializan de una petición no generan identificadores que nunca se van a usar
+
+@Component
+public class AsignarIdReserva implements ReactiveBeforeConvertCallback<Reserva> {
+
+    private final GeneradorIdentificadores generador;
+
+    public AsignarIdReserva(GeneradorIdentificadores generador) {
+        this.generador = generador;
+    }
+
+    @Override
+    public Publisher<Reserva> onBeforeConvert(Reserva reserva, String collection) {
+        if (reserva.getId() == null) {
+            reserva.setId(generador.nuevoId());
+        }
+        return Mono.just(reserva);
+    }
+}
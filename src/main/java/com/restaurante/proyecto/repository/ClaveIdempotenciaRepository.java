@@ -0,0 +1,31 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.Instant;
+
+import com.restaurante.proyecto.model.ClaveIdempotencia;
+
+import reactor.core.publisher.Mono;
+
+// Repositorio de las claves de idempotencia con el resultado de la primera petición de cada clave
+// Las claves caducadas se ignoran aunque todavía no se hayan eliminado
+
+public interface ClaveIdempotenciaRepository {
+
+    // Guarda la clave como en curso si no existe o ya caducó; devuelve false si otra petición ya la tiene
+
+    Mono<Boolean> reservar(ClaveIdempotencia clave);
+
+    // Clave con el identificador indicado, o vacío si no existe o ya caducó
+
+    Mono<ClaveIdempotencia> buscar(String id);
+
+    // Guarda el resultado de la primera petición de la clave si sigue en curso con la reserva que vence en finConcesion;
+    // si otra petición la tomó al vencer el plazo no se modifica
+
+    Mono<Void> completar(ClaveIdempotencia clave, Instant finConcesion);
+
+    // Elimina la clave en curso con la reserva que vence en finConcesion para que la petición pueda volver a intentarse
+    // tras un error
+
+    Mono<Void> eliminar(String id, Instant finConcesion);
+}
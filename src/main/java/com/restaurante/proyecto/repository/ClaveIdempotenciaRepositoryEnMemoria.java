@@ -0,0 +1,69 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.restaurante.proyecto.model.ClaveIdempotencia;
+
+import reactor.core.publisher.Mono;
+
+// Claves de idempotencia en memoria para el perfil "memoria"
+// La reserva de una clave es atómica con compute sobre un mapa concurrente; las claves caducadas se sustituyen al reservarlas
+
+@Repository
+@Profile("memoria")
+public class ClaveIdempotenciaRepositoryEnMemoria implements ClaveIdempotenciaRepository {
+
+    private final ConcurrentHashMap<String, ClaveIdempotencia> claves = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Boolean> reservar(ClaveIdempotencia clave) {
+        return Mono.fromSupplier(() -> {
+            AtomicBoolean reservada = new AtomicBoolean();
+            claves.compute(clave.getId(), (id, actual) -> {
+                if (actual != null && !caducada(actual)) {
+                    return actual;
+                }
+                reservada.set(true);
+                return copia(clave);
+            });
+            return reservada.get();
+        });
+    }
+
+    @Override
+    public Mono<ClaveIdempotencia> buscar(String id) {
+        return Mono.fromSupplier(() -> {
+            ClaveIdempotencia clave = claves.get(id);
+            return clave == null || caducada(clave) ? null : copia(clave);
+        });
+    }
+
+    @Override
+    public Mono<Void> completar(ClaveIdempotencia clave, Instant finConcesion) {
+        return Mono.fromRunnable(() -> claves.computeIfPresent(clave.getId(),
+            (id, actual) -> esLaConcesion(actual, finConcesion) ? copia(clave) : actual));
+    }
+
+    @Override
+    public Mono<Void> eliminar(String id, Instant finConcesion) {
+        return Mono.fromRunnable(() -> claves.computeIfPresent(id,
+            (clave, actual) -> esLaConcesion(actual, finConcesion) ? null : actual));
+    }
+
+    private static boolean esLaConcesion(ClaveIdempotencia clave, Instant finConcesion) {
+        return clave.enCurso() && clave.getExpira().equals(finConcesion);
+    }
+
+    private static boolean caducada(ClaveIdempotencia clave) {
+        return !clave.getExpira().isAfter(Instant.now());
+    }
+
+    private static ClaveIdempotencia copia(ClaveIdempotencia clave) {
+        return new ClaveIdempotencia(clave.getId(), clave.getHuella(), clave.getEstado(), clave.getCodigo(), clave.getExpira());
+    }
+}
@@ -0,0 +1,75 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.Instant;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import com.restaurante.proyecto.model.ClaveIdempotencia;
+
+import reactor.core.publisher.Mono;
+
+// Claves de idempotencia en la colección "claves_idempotencia" de MongoDB
+// El índice TTL sobre "expira" elimina las claves caducadas, pero MongoDB solo lo revisa cada minuto,
+// por lo que las consultas también filtran por la fecha de expiración
+
+@Repository
+@Profile("!memoria")
+public class ClaveIdempotenciaRepositoryMongo implements ClaveIdempotenciaRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ClaveIdempotenciaRepositoryMongo(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // El upsert solo encuentra la clave si ya caducó y la sustituye; si existe sin caducar, MongoDB intenta
+    // insertar otra con el mismo identificador y la rechaza como clave duplicada, con lo que gana una sola petición
+
+    @Override
+    public Mono<Boolean> reservar(ClaveIdempotencia clave) {
+        Query caducada = new Query(Criteria.where("_id").is(clave.getId()).and("expira").lte(Instant.now()));
+        Update update = new Update()
+                .set("huella", clave.getHuella())
+                .set("estado", clave.getEstado())
+                .unset("codigo")
+                .set("expira", clave.getExpira());
+        return mongoTemplate.upsert(caducada, update, ClaveIdempotencia.class)
+                .thenReturn(true)
+                .onErrorReturn(DuplicateKeyException.class, false);
+    }
+
+    @Override
+    public Mono<ClaveIdempotencia> buscar(String id) {
+        return mongoTemplate.findOne(new Query(Criteria.where("_id").is(id).and("expira").gt(Instant.now())),
+                ClaveIdempotencia.class);
+    }
+
+    @Override
+    public Mono<Void> completar(ClaveIdempotencia clave, Instant finConcesion) {
+        Update update = new Update()
+                .set("estado", clave.getEstado())
+                .set("codigo", clave.getCodigo())
+                .set("expira", clave.getExpira());
+        return mongoTemplate.updateFirst(concesion(clave.getId(), finConcesion), update, ClaveIdempotencia.class)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> eliminar(String id, Instant finConcesion) {
+        return mongoTemplate.remove(concesion(id, finConcesion), ClaveIdempotencia.class).then();
+    }
+
+    // La clave sigue en curso con la misma reserva: nadie la ha tomado tras vencer el plazo
+
+    private static Query concesion(String id, Instant finConcesion) {
+        return new Query(Criteria.where("_id").is(id)
+                .and("estado").is(ClaveIdempotencia.EN_CURSO)
+                .and("expira").is(finConcesion));
+    }
+}
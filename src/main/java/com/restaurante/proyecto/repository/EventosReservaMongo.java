@@ -0,0 +1,117 @@
+package com.restaurante.proyecto.repository;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bson.BsonValue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import com.restaurante.proyecto.model.EventoReserva;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.service.FuenteEventosReserva;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Eventos de reservas a partir de un change stream de MongoDB sobre la colección "reservas" (requiere un replica set)
+// Se reciben los cambios hechos por cualquier instancia de la aplicación o directamente en la base de datos
+// En las actualizaciones se pide el documento actual; en las eliminaciones, el anterior si la colección tiene activada
+// la opción changeStreamPreAndPostImages (si no, el evento solo lleva el identificador)
+// Si se vuelve a abrir el change stream tras un error se continúa desde el último evento recibido, pero solo mientras
+// siga abierta la suscripción compartida: al irse el último cliente se olvida y el siguiente empieza por los cambios nuevos
+// Si MongoDB ya no conserva los cambios desde ese evento (ChangeStreamHistoryLost) también se olvida y se empieza de nuevo
+// Las eliminaciones del archivado de reservas antiguas no se reparten: una reserva eliminada que ya está en el histórico
+// se ha archivado, no eliminado (el archivado la copia antes de eliminarla), lo que se comprueba solo en las eliminaciones
+
+@Component
+@Profile("!memoria")
+@ConditionalOnProperty(name = "reservas.eventos.fuente", havingValue = "mongo", matchIfMissing = true)
+public class EventosReservaMongo implements FuenteEventosReserva {
+
+    // Código de error de MongoDB cuando el evento desde el que se reanuda ya no está en el oplog
+    static final int HISTORIA_PERDIDA = 286;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final AtomicReference<BsonValue> ultimoEvento = new AtomicReference<>();
+
+    public EventosReservaMongo(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Flux<EventoReserva> eventos() {
+        return Flux.defer(() -> {
+            ChangeStreamOptions.ChangeStreamOptionsBuilder opciones = ChangeStreamOptions.builder()
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+                .fullDocumentBeforeChangeLookup(FullDocumentBeforeChange.WHEN_AVAILABLE);
+            BsonValue reanudarDesde = ultimoEvento.get();
+            if (reanudarDesde != null) {
+                opciones.resumeAfter(reanudarDesde);
+            }
+            return mongoTemplate.changeStream("reservas", opciones.build(), Reserva.class);
+        })
+        .doOnNext(cambio -> ultimoEvento.set(cambio.getResumeToken()))
+        .doOnError(e -> {
+            if (esHistoriaPerdida(e)) {
+                ultimoEvento.set(null);
+            }
+        })
+        .doOnCancel(() -> ultimoEvento.set(null))
+        .concatMap(this::evento);
+    }
+
+    // Los cambios de esta instancia llegan por el change stream como los de cualquier otra
+
+    @Override
+    public void publicar(EventoReserva evento) {
+    }
+
+    private static boolean esHistoriaPerdida(Throwable error) {
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof MongoException mongo && mongo.getCode() == HISTORIA_PERDIDA) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<EventoReserva> evento(ChangeStreamEvent<Reserva> cambio) {
+        OperationType operacion = cambio.getOperationType();
+        if (operacion == null) {
+            return Mono.empty();
+        }
+        switch (operacion) {
+            case INSERT:
+                return Mono.just(EventoReserva.de(EventoReserva.Tipo.CREADA, cambio.getBody()));
+            case UPDATE:
+            case REPLACE:
+                // El documento puede haberse eliminado antes de consultarlo; la eliminación llegará en su propio evento
+                return Mono.justOrEmpty(cambio.getBody())
+                    .map(reserva -> EventoReserva.de(EventoReserva.Tipo.ACTUALIZADA, reserva));
+            case DELETE:
+                Reserva anterior = cambio.getBodyBeforeChange();
+                String id = anterior != null ? anterior.getId() : identificador(cambio.getRaw().getDocumentKey().get("_id"));
+                return mongoTemplate.exists(new Query(Criteria.where("_id").is(id)), Reserva.COLECCION_HISTORICO)
+                    .filter(archivada -> !archivada)
+                    .map(eliminada -> anterior != null
+                        ? EventoReserva.de(EventoReserva.Tipo.ELIMINADA, anterior)
+                        : new EventoReserva(EventoReserva.Tipo.ELIMINADA, id, null, 0));
+            default:
+                return Mono.empty();
+        }
+    }
+
+    private static String identificador(BsonValue id) {
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.Instant;
+
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+import com.restaurante.proyecto.model.Reserva;
+
+import reactor.core.publisher.Mono;
+
+// Actualiza la fecha de modificación de las reservas justo antes de guardarlas, al insertar, al guardar y en escrituras masivas
+// Las actualizaciones parciales con findAndModify no pasan por aquí y la actualizan en la propia operación
+
+@Component
+public class FechaModificacionReserva implements ReactiveBeforeConvertCallback<Reserva> {
+
+    @Override
+    public Publisher<Reserva> onBeforeConvert(Reserva reserva, String collection) {
+        reserva.setModificada(Instant.now());
+        return Mono.just(reserva);
+    }
+}
@@ -0,0 +1,22 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.LocalDateTime;
+
+import reactor.core.publisher.Mono;
+
+// Repositorio de los contadores de plazas ocupadas por turno
+// Cada operación es atómica sobre el contador de un turno, sin bloqueos entre peticiones concurrentes
+
+public interface OcupacionTurnoRepository {
+
+    // Suma las personas a la ocupación del turno solo si tras sumarlas no se supera el máximo
+    // Si el turno aún no tiene contador se crea con la ocupación de "ocupadasAlCrear" (las plazas de las reservas que ya
+    // existen en el turno) antes de sumar, para no admitir más plazas en los turnos reservados antes de llevar la cuenta
+    // Devuelve la nueva ocupación o vacío si el turno no tiene plazas suficientes
+
+    Mono<Integer> ocupar(LocalDateTime turno, int personas, int maximo, Mono<Integer> ocupadasAlCrear);
+
+    // Resta las personas de la ocupación del turno si la ocupación las incluye
+
+    Mono<Void> liberar(LocalDateTime turno, int personas);
+}
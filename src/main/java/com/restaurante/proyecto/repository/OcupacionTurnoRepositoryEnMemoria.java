@@ -0,0 +1,52 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Mono;
+
+// Contadores de ocupación por turno en memoria para el perfil "memoria"
+// Cada turno tiene un contador atómico que se actualiza con comparar e intercambiar
+
+@Repository
+@Profile("memoria")
+public class OcupacionTurnoRepositoryEnMemoria implements OcupacionTurnoRepository {
+
+    private final ConcurrentHashMap<LocalDateTime, AtomicInteger> ocupacion = new ConcurrentHashMap<>();
+
+    // El contador de un turno nuevo se crea con la ocupación inicial; si dos peticiones lo crean a la vez se queda el primero
+
+    @Override
+    public Mono<Integer> ocupar(LocalDateTime turno, int personas, int maximo, Mono<Integer> ocupadasAlCrear) {
+        return Mono.defer(() -> Mono.justOrEmpty(ocupacion.get(turno)))
+                .switchIfEmpty(Mono.defer(() -> ocupadasAlCrear
+                        .map(ocupadas -> ocupacion.computeIfAbsent(turno, t -> new AtomicInteger(ocupadas)))))
+                .mapNotNull(contador -> sumarConPlazas(contador, personas, maximo));
+    }
+
+    private static Integer sumarConPlazas(AtomicInteger contador, int personas, int maximo) {
+        while (true) {
+            int actual = contador.get();
+            if (actual > maximo - personas) {
+                return null;
+            }
+            if (contador.compareAndSet(actual, actual + personas)) {
+                return actual + personas;
+            }
+        }
+    }
+
+    @Override
+    public Mono<Void> liberar(LocalDateTime turno, int personas) {
+        return Mono.fromRunnable(() -> {
+            AtomicInteger contador = ocupacion.get(turno);
+            if (contador != null) {
+                contador.getAndUpdate(actual -> actual >= personas ? actual - personas : actual);
+            }
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import com.restaurante.proyecto.model.OcupacionTurno;
+
+import reactor.core.publisher.Mono;
+
+// Contadores de ocupación por turno en la colección "ocupacion_turnos" de MongoDB
+// La condición "ocupadas <= máximo - personas" y el incremento se aplican en una sola operación findAndModify
+
+@Repository
+@Profile("!memoria")
+public class OcupacionTurnoRepositoryMongo implements OcupacionTurnoRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public OcupacionTurnoRepositoryMongo(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // El caso habitual es un solo findAndModify sobre el contador existente
+    // Si no suma, se comprueba si el contador existe para distinguir un turno lleno de un turno sin contador; en ese caso
+    // se inserta con la ocupación inicial y se vuelve a intentar. Si otra petición crea el mismo contador a la vez,
+    // MongoDB rechaza la segunda inserción como clave duplicada y esa petición suma sobre el contador ya creado
+    // Ninguna reserva del turno se guarda antes de que exista su contador, así que la ocupación inicial no deja ninguna fuera
+
+    @Override
+    public Mono<Integer> ocupar(LocalDateTime turno, int personas, int maximo, Mono<Integer> ocupadasAlCrear) {
+        return sumarConPlazas(turno, personas, maximo)
+                .switchIfEmpty(Mono.defer(() -> mongoTemplate.exists(porTurno(turno), OcupacionTurno.class)
+                        .flatMap(existe -> existe
+                                ? Mono.empty()
+                                : crear(turno, ocupadasAlCrear).then(sumarConPlazas(turno, personas, maximo)))));
+    }
+
+    private Mono<Integer> sumarConPlazas(LocalDateTime turno, int personas, int maximo) {
+        Query conPlazas = new Query(Criteria.where("_id").is(turno).and("ocupadas").lte(maximo - personas));
+        return mongoTemplate.findAndModify(conPlazas, new Update().inc("ocupadas", personas),
+                    FindAndModifyOptions.options().returnNew(true), OcupacionTurno.class)
+                .map(OcupacionTurno::getOcupadas);
+    }
+
+    private Mono<Void> crear(LocalDateTime turno, Mono<Integer> ocupadasAlCrear) {
+        return ocupadasAlCrear
+                .flatMap(ocupadas -> mongoTemplate.insert(new OcupacionTurno(turno, ocupadas)))
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.empty())
+                .then();
+    }
+
+    private static Query porTurno(LocalDateTime turno) {
+        return new Query(Criteria.where("_id").is(turno));
+    }
+
+    @Override
+    public Mono<Void> liberar(LocalDateTime turno, int personas) {
+        Query conOcupadas = new Query(Criteria.where("_id").is(turno).and("ocupadas").gte(personas));
+        return mongoTemplate.updateFirst(conOcupadas, new Update().inc("ocupadas", -personas), OcupacionTurno.class).then();
+    }
+}
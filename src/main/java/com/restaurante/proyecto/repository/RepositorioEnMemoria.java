@@ -0,0 +1,399 @@
+package com.restaurante.proyecto.repository;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Base de los repositorios en memoria del perfil "memoria", que sustituyen a MongoDB en las pruebas de carga
+// Los documentos se guardan como copias en un mapa concurrente ordenado por identificador, igual que el índice de "_id",
+// de modo que los cambios en los objetos devueltos no alteran lo guardado hasta que se vuelven a guardar
+// Las consultas por ejemplo y con ordenación arbitraria se resuelven recorriendo el mapa, sin índices
+
+@SuppressWarnings("unchecked")
+abstract class RepositorioEnMemoria<T> implements ReactiveMongoRepository<T, String> {
+
+    protected final ConcurrentSkipListMap<String, T> documentos = new ConcurrentSkipListMap<>();
+
+    protected abstract String id(T documento);
+
+    protected abstract void asignarId(T documento);
+
+    protected abstract T copiar(T documento);
+
+    // Busca los documentos que cumplen la condición en orden de identificador, hasta el límite indicado
+
+    protected Flux<T> buscar(Map<String, T> rango, Predicate<T> condicion, Limit limite) {
+        return Flux.defer(() -> {
+            int maximo = limite.isLimited() ? limite.max() : Integer.MAX_VALUE;
+            List<T> encontrados = new ArrayList<>();
+            for (T documento : rango.values()) {
+                if (encontrados.size() >= maximo) {
+                    break;
+                }
+                if (condicion.test(documento)) {
+                    encontrados.add(copiar(documento));
+                }
+            }
+            return Flux.fromIterable(encontrados);
+        });
+    }
+
+    protected Flux<T> buscar(Predicate<T> condicion) {
+        return buscar(documentos, condicion, Limit.unlimited());
+    }
+
+    @Override
+    public <S extends T> Mono<S> save(S documento) {
+        return Mono.fromSupplier(() -> {
+            if (id(documento) == null) {
+                asignarId(documento);
+            }
+            documentos.put(id(documento), copiar(documento));
+            return documento;
+        });
+    }
+
+    @Override
+    public <S extends T> Mono<S> insert(S documento) {
+        return Mono.fromSupplier(() -> {
+            if (id(documento) == null) {
+                asignarId(documento);
+            }
+            if (documentos.putIfAbsent(id(documento), copiar(documento)) != null) {
+                throw new DuplicateKeyException("Ya existe un documento con el identificador " + id(documento));
+            }
+            return documento;
+        });
+    }
+
+    @Override
+    public <S extends T> Flux<S> insert(Iterable<S> documentos) {
+        return Flux.fromIterable(documentos).concatMap(this::insert);
+    }
+
+    @Override
+    public <S extends T> Flux<S> insert(Publisher<S> documentos) {
+        return Flux.from(documentos).concatMap(this::insert);
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Iterable<S> documentos) {
+        return Flux.fromIterable(documentos).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Publisher<S> documentos) {
+        return Flux.from(documentos).concatMap(this::save);
+    }
+
+    @Override
+    public Mono<T> findById(String id) {
+        return Mono.fromSupplier(() -> {
+            T documento = documentos.get(id);
+            return documento == null ? null : copiar(documento);
+        });
+    }
+
+    @Override
+    public Mono<T> findById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(String id) {
+        return Mono.fromSupplier(() -> documentos.containsKey(id));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<T> findAll() {
+        return buscar(documento -> true);
+    }
+
+    @Override
+    public Flux<T> findAllById(Iterable<String> ids) {
+        return Flux.fromIterable(ids).concatMap(this::findById);
+    }
+
+    @Override
+    public Flux<T> findAllById(Publisher<String> ids) {
+        return Flux.from(ids).concatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> (long) documentos.size());
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        return Mono.fromRunnable(() -> documentos.remove(id));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(T documento) {
+        return deleteById(id(documento));
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends String> ids) {
+        return Flux.fromIterable(ids).concatMap(this::deleteById).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends T> documentos) {
+        return Flux.fromIterable(documentos).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends T> documentos) {
+        return Flux.from(documentos).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(documentos::clear);
+    }
+
+    // Las consultas con ordenación recorren los documentos en orden de identificador y los ordenan en memoria; los empates
+    // quedan en orden de identificador
+
+    @Override
+    public Flux<T> findAll(Sort sort) {
+        return buscar(documento -> true).sort(orden(sort));
+    }
+
+    // Las consultas por ejemplo comparan las propiedades del ejemplo con las de cada documento según su ExampleMatcher
+    // (propiedades ignoradas, valores nulos, comparación de textos y mayúsculas); como en MongoDB, findOne falla si
+    // hay más de un documento que coincide
+
+    @Override
+    public <S extends T> Mono<S> findOne(Example<S> example) {
+        return unico(findAll(example));
+    }
+
+    @Override
+    public <S extends T> Flux<S> findAll(Example<S> example) {
+        return buscar(documento -> coincide(example, documento)).map(documento -> (S) documento);
+    }
+
+    @Override
+    public <S extends T> Flux<S> findAll(Example<S> example, Sort sort) {
+        return findAll(example).sort(orden(sort));
+    }
+
+    @Override
+    public <S extends T> Mono<Long> count(Example<S> example) {
+        return findAll(example).count();
+    }
+
+    @Override
+    public <S extends T> Mono<Boolean> exists(Example<S> example) {
+        return findAll(example).hasElements();
+    }
+
+    @Override
+    public <S extends T, R, P extends Publisher<R>> P findBy(Example<S> example,
+            Function<FluentQuery.ReactiveFluentQuery<S>, P> queryFunction) {
+        return queryFunction.apply(new ConsultaPorEjemplo<>(sort -> findAll(example, sort), Sort.unsorted(), 0));
+    }
+
+    private static <S> Mono<S> unico(Flux<S> encontrados) {
+        return encontrados.take(2).collectList()
+            .flatMap(lista -> lista.size() > 1
+                ? Mono.error(new IncorrectResultSizeDataAccessException(1))
+                : Mono.justOrEmpty(lista.stream().findFirst()));
+    }
+
+    private boolean coincide(Example<? extends T> ejemplo, T documento) {
+        if (!ejemplo.getProbeType().isInstance(documento)) {
+            return false;
+        }
+        ExampleMatcherAccessor matcher = new ExampleMatcherAccessor(ejemplo.getMatcher());
+        PropertyAccessor muestra = PropertyAccessorFactory.forDirectFieldAccess(ejemplo.getProbe());
+        PropertyAccessor candidato = PropertyAccessorFactory.forDirectFieldAccess(documento);
+        boolean todas = ejemplo.getMatcher().isAllMatching();
+        List<Boolean> comparaciones = new ArrayList<>();
+        ReflectionUtils.doWithFields(ejemplo.getProbeType(), campo -> {
+            String propiedad = campo.getName();
+            if (matcher.isIgnoredPath(propiedad)) {
+                return;
+            }
+            Optional<Object> esperado = matcher.getValueTransformerForPath(propiedad)
+                .apply(Optional.ofNullable(muestra.getPropertyValue(propiedad)));
+            if (esperado.isEmpty() && matcher.getNullHandler() == ExampleMatcher.NullHandler.IGNORE) {
+                return;
+            }
+            comparaciones.add(coincideValor(matcher, propiedad, esperado.orElse(null), candidato.getPropertyValue(propiedad)));
+        }, campo -> !Modifier.isStatic(campo.getModifiers()));
+        return todas ? !comparaciones.contains(false) : comparaciones.isEmpty() || comparaciones.contains(true);
+    }
+
+    private static boolean coincideValor(ExampleMatcherAccessor matcher, String propiedad, Object esperado, Object valor) {
+        if (!(esperado instanceof String texto) || !(valor instanceof String actual)) {
+            return Objects.equals(esperado, valor);
+        }
+        boolean ignorarMayusculas = matcher.isIgnoreCaseForPath(propiedad);
+        if (ignorarMayusculas) {
+            texto = texto.toLowerCase(Locale.ROOT);
+            actual = actual.toLowerCase(Locale.ROOT);
+        }
+        switch (matcher.getStringMatcherForPath(propiedad)) {
+            case STARTING:
+                return actual.startsWith(texto);
+            case ENDING:
+                return actual.endsWith(texto);
+            case CONTAINING:
+                return actual.contains(texto);
+            case REGEX:
+                return Pattern.compile(texto, ignorarMayusculas ? Pattern.CASE_INSENSITIVE : 0).matcher(actual).matches();
+            default:
+                return actual.equals(texto);
+        }
+    }
+
+    // Comparador de documentos para una ordenación: sin indicarlo, los valores nulos van primero en orden ascendente
+    // y al final en descendente, como en MongoDB
+
+    private static <S> Comparator<S> orden(Sort sort) {
+        Comparator<S> comparador = (a, b) -> 0;
+        for (Sort.Order orden : sort) {
+            Comparator<Object> valores = orden.isIgnoreCase()
+                ? Comparator.comparing(valor -> valor.toString().toLowerCase(Locale.ROOT))
+                : (a, b) -> ((Comparable<Object>) a).compareTo(b);
+            if (orden.isDescending()) {
+                valores = valores.reversed();
+            }
+            boolean nulosPrimero = switch (orden.getNullHandling()) {
+                case NULLS_FIRST -> true;
+                case NULLS_LAST -> false;
+                default -> orden.isAscending();
+            };
+            valores = nulosPrimero ? Comparator.nullsFirst(valores) : Comparator.nullsLast(valores);
+            comparador = comparador.thenComparing(
+                documento -> PropertyAccessorFactory.forDirectFieldAccess(documento).getPropertyValue(orden.getProperty()), valores);
+        }
+        return comparador;
+    }
+
+    // Consulta fluida sobre las consultas por ejemplo con ordenación
+    // La selección de propiedades (project) no reduce los documentos devueltos, que se leen completos de memoria,
+    // y as admite los tipos de los documentos y las proyecciones con interfaces
+
+    private static final class ConsultaPorEjemplo<S> implements FluentQuery.ReactiveFluentQuery<S> {
+
+        private final Function<Sort, Flux<S>> consulta;
+        private final Sort sort;
+        private final int limite;
+
+        private ConsultaPorEjemplo(Function<Sort, Flux<S>> consulta, Sort sort, int limite) {
+            this.consulta = consulta;
+            this.sort = sort;
+            this.limite = limite;
+        }
+
+        @Override
+        public FluentQuery.ReactiveFluentQuery<S> sortBy(Sort sort) {
+            return new ConsultaPorEjemplo<>(consulta, this.sort.and(sort), limite);
+        }
+
+        @Override
+        public FluentQuery.ReactiveFluentQuery<S> limit(int limite) {
+            Assert.isTrue(limite >= 0, "El límite no puede ser negativo");
+            return new ConsultaPorEjemplo<>(consulta, sort, limite);
+        }
+
+        @Override
+        public <R> FluentQuery.ReactiveFluentQuery<R> as(Class<R> tipo) {
+            ProjectionFactory proyecciones = new SpelAwareProxyProjectionFactory();
+            return new ConsultaPorEjemplo<>(orden -> consulta.apply(orden).map(documento -> tipo.isInstance(documento)
+                ? tipo.cast(documento)
+                : proyecciones.createProjection(tipo, documento)), sort, limite);
+        }
+
+        @Override
+        public FluentQuery.ReactiveFluentQuery<S> project(Collection<String> propiedades) {
+            return this;
+        }
+
+        @Override
+        public Mono<S> one() {
+            return unico(all());
+        }
+
+        @Override
+        public Mono<S> first() {
+            return all().next();
+        }
+
+        @Override
+        public Flux<S> all() {
+            Flux<S> resultados = consulta.apply(sort);
+            return limite > 0 ? resultados.take(limite) : resultados;
+        }
+
+        @Override
+        public Mono<Page<S>> page(Pageable pagina) {
+            if (pagina.isUnpaged()) {
+                return all().collectList().map(contenido -> new PageImpl<>(contenido, pagina, contenido.size()));
+            }
+            return consulta.apply(pagina.getSortOr(sort))
+                .skip(pagina.getOffset())
+                .take(pagina.getPageSize())
+                .collectList()
+                .zipWith(count(), (contenido, total) -> new PageImpl<>(contenido, pagina, total));
+        }
+
+        @Override
+        public Mono<Long> count() {
+            return consulta.apply(Sort.unsorted()).count();
+        }
+
+        @Override
+        public Mono<Boolean> exists() {
+            return consulta.apply(Sort.unsorted()).hasElements();
+        }
+    }
+}
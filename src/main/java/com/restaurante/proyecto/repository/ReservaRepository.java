@@ -1,5 +1,9 @@
 package com.restaurante.proyecto.repository;
 
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
 import com.restaurante.proyecto.model.Reserva;
@@ -11,7 +15,15 @@ import reactor.core.publisher.Mono;
 // Se establecen métodos para buscar, eliminar y guardar reservas en la base de datos MongoDB con Spring Data MongoDB
 // Se utiliza programación reactiva con Reactor para operaciones asíncronas y no bloqueantes
 
-public interface ReservaRepository extends ReactiveMongoRepository<Reserva, String> {
+// Se establecen métodos ordenados por identificador para la paginación por cursor (keyset) y el envío en streaming
+// Se establecen métodos para buscar reservas por rango de fechas, ordenadas por fecha
+// Las actualizaciones y eliminaciones con comprobación de propiedad se implementan en ReservaRepositoryCustom
+
+public interface ReservaRepository extends ReactiveMongoRepository<Reserva, String>, ReservaRepositoryCustom {
     Flux<Reserva> findByCedula(String cedula);
     Mono<Void> deleteByCedula(String cedula);
+    Flux<Reserva> findAllByOrderByIdAsc(Limit limit);
+    Flux<Reserva> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+    Flux<Reserva> findByFechaBetweenOrderByFechaAsc(Range<LocalDateTime> rango, Limit limit);
+    Flux<Reserva> findByCedulaAndFechaBetweenOrderByFechaAsc(String cedula, Range<LocalDateTime> rango);
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
+
+import com.restaurante.proyecto.model.CursorFecha;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.ResumenCliente;
+import com.restaurante.proyecto.model.ResumenTurno;
+import com.restaurante.proyecto.model.VersionReservas;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Operaciones atómicas de actualización y eliminación de reservas en un solo viaje a la base de datos
+// La condición de propiedad (la reserva pertenece al usuario, salvo para los admins) y la versión esperada van en la propia consulta
+// Si la reserva no cumple la condición no se modifica nada y el resultado es vacío
+// La versión de las reservas de un cliente se calcula con una agregación cubierta por el índice de cédula y modificación
+// Las cédulas con reservas se recorren con el índice de cédula y fecha, que tiene una entrada por cédula distinta al inicio
+// También se incluyen los resúmenes de ocupación calculados con agregaciones sobre las reservas de un rango de fechas,
+// que cuentan tanto las reservas activas como las archivadas en el histórico
+// Las reservas antiguas se archivan por lotes en la colección "reservas_historico" y se pueden consultar junto con las activas
+
+public interface ReservaRepositoryCustom {
+
+    // Actualiza el nombre del cliente, la fecha y el número de personas e incrementa la versión
+    // Devuelve la reserva tal como estaba antes de la actualización
+    // usuario nulo indica un admin (sin condición de propiedad) y versionEsperada nula omite la comprobación de versión
+
+    Mono<Reserva> actualizarSiPermitido(String id, String usuario, Long versionEsperada, Reserva cambios);
+
+    // Devuelve una reserva a sus valores anteriores si nadie la ha modificado después (versión igual a versionActual)
+
+    Mono<Reserva> restaurar(Reserva anterior, long versionActual);
+
+    // Elimina la reserva y la devuelve; usuario nulo indica un admin
+
+    Mono<Reserva> eliminarSiPermitido(String id, String usuario);
+
+    // Inserta un lote de reservas con una escritura masiva sin orden: un documento rechazado no detiene al resto
+    // Devuelve las posiciones del lote que no se pudieron insertar (por ejemplo, identificadores duplicados)
+
+    Mono<Set<Integer>> insertarSinOrden(List<Reserva> reservas);
+
+    // Versión de las reservas de un cliente (número de reservas, suma de versiones y última modificación) sin leer las reservas
+
+    Mono<VersionReservas> versionPorCedula(String cedula);
+
+    // Suma de las personas de las reservas con fecha en el rango, para crear el contador de ocupación de un turno
+    // a partir de las reservas que ya tiene
+
+    Mono<Integer> personasEnRango(Range<LocalDateTime> rango);
+
+    // Cédulas distintas con reservas posteriores a "despues" (nula para empezar), ordenadas, hasta el límite indicado
+    // Se recorren por cursor para revisar los clientes de las reservas por lotes sin leer las reservas
+
+    Flux<String> cedulasConReservas(String despues, int limite);
+
+    // Reservas del rango de fechas ordenadas por fecha e identificador, posteriores al cursor "despues" (nulo para empezar)
+    // Se recorren por páginas con el índice "fecha_id" aunque muchas reservas compartan la misma fecha
+
+    Flux<Reserva> buscarPorFecha(Range<LocalDateTime> rango, CursorFecha despues, Limit limite);
+
+    // Mueve al histórico un lote de hasta "tamanoLote" reservas con fecha anterior al límite y devuelve cuántas se movieron
+    // Las reservas se copian al histórico antes de eliminarlas de la colección activa: si el proceso se interrumpe
+    // entre los dos pasos, el siguiente lote vuelve a copiar las mismas reservas (sustituyendo la copia) y las elimina
+    // Las reservas modificadas mientras se copiaban no se eliminan y su copia se descarta para archivarlas de nuevo más tarde
+
+    Mono<Integer> archivarLote(LocalDateTime limite, int tamanoLote);
+
+    // Reservas activas y archivadas en el rango de fechas, de un cliente o de todos (cédula nula), ordenadas por fecha
+    // e identificador y posteriores al cursor "despues" (nulo para empezar)
+    // Si una reserva está en las dos colecciones (durante su archivo) se devuelve una sola vez
+
+    Flux<Reserva> buscarConHistorico(String cedula, Range<LocalDateTime> rango, CursorFecha despues, Limit limite);
+
+    // Elimina hasta "limite" reservas del cliente, de la colección activa o del histórico, y devuelve las eliminadas
+    // Cada reserva se elimina con findAndRemove, de modo que solo se devuelven las que esta llamada eliminó realmente
+
+    Flux<Reserva> eliminarLotePorCedula(String cedula, boolean historico, int limite);
+
+    // Reservas y personas de cada turno con reservas en el rango de fechas, ordenados por turno
+    // El turno de una reserva es su fecha truncada a la duración de los turnos en minutos
+
+    Flux<ResumenTurno> resumirPorTurno(Range<LocalDateTime> rango, long minutosPorTurno);
+
+    // Clientes con más personas reservadas en el rango de fechas, de mayor a menor, hasta el límite indicado
+
+    Flux<ResumenCliente> resumirPorCliente(Range<LocalDateTime> rango, int limite);
+}
@@ -0,0 +1,353 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
+import org.springframework.stereotype.Repository;
+
+import com.restaurante.proyecto.model.CursorFecha;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.ResumenCliente;
+import com.restaurante.proyecto.model.ResumenTurno;
+import com.restaurante.proyecto.model.VersionReservas;
+import com.restaurante.proyecto.service.GeneradorIdentificadores;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Repositorio de reservas en memoria para el perfil "memoria"
+// Las actualizaciones y eliminaciones condicionales se aplican con operaciones de comparar e intercambiar sobre el mapa,
+// con la misma semántica que findAndModify y findAndRemove: solo se modifica la reserva si cumple la condición en ese momento
+// La versión se comprueba y se incrementa al guardar, como hace Spring Data con el campo @Version
+// Las reservas archivadas se guardan en un segundo mapa que hace de colección "reservas_historico"
+
+@Repository
+@Profile("memoria")
+public class ReservaRepositoryEnMemoria extends RepositorioEnMemoria<Reserva> implements ReservaRepository {
+
+    private static final Comparator<Reserva> POR_FECHA = Comparator.comparing(Reserva::getFecha,
+            Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(Reserva::getId);
+
+    private final GeneradorIdentificadores generador;
+    private final ConcurrentSkipListMap<String, Reserva> historico = new ConcurrentSkipListMap<>();
+
+    public ReservaRepositoryEnMemoria(GeneradorIdentificadores generador) {
+        this.generador = generador;
+    }
+
+    @Override
+    protected String id(Reserva reserva) {
+        return reserva.getId();
+    }
+
+    @Override
+    protected void asignarId(Reserva reserva) {
+        reserva.setId(generador.nuevoId());
+    }
+
+    @Override
+    protected Reserva copiar(Reserva reserva) {
+        Reserva copia = new Reserva(reserva.getUsuario(), reserva.getCedula(), reserva.getNombreCliente(),
+                reserva.getFecha(), reserva.getNumeroPersonas());
+        copia.setId(reserva.getId());
+        copia.setVersion(reserva.getVersion());
+        copia.setModificada(reserva.getModificada());
+        return copia;
+    }
+
+    @Override
+    public <S extends Reserva> Mono<S> save(S reserva) {
+        if (reserva.getVersion() == null) {
+            return Mono.defer(() -> {
+                reserva.setVersion(0L);
+                return insert(reserva);
+            });
+        }
+        return Mono.fromSupplier(() -> {
+            reserva.setModificada(Instant.now());
+            Reserva actual = documentos.get(reserva.getId());
+            long version = reserva.getVersion();
+            reserva.setVersion(version + 1);
+            if (actual == null || !Objects.equals(actual.getVersion(), version)
+                    || !documentos.replace(reserva.getId(), actual, copiar(reserva))) {
+                reserva.setVersion(version);
+                throw new OptimisticLockingFailureException("La reserva " + reserva.getId() + " fue modificada o eliminada");
+            }
+            return reserva;
+        });
+    }
+
+    @Override
+    public <S extends Reserva> Mono<S> insert(S reserva) {
+        if (reserva.getVersion() == null) {
+            reserva.setVersion(0L);
+        }
+        reserva.setModificada(Instant.now());
+        return super.insert(reserva);
+    }
+
+    @Override
+    public Flux<Reserva> findByCedula(String cedula) {
+        return buscar(reserva -> Objects.equals(reserva.getCedula(), cedula));
+    }
+
+    @Override
+    public Mono<Void> deleteByCedula(String cedula) {
+        return Mono.fromRunnable(() -> documentos.values().removeIf(reserva -> Objects.equals(reserva.getCedula(), cedula)));
+    }
+
+    @Override
+    public Flux<Reserva> findAllByOrderByIdAsc(Limit limit) {
+        return buscar(documentos, reserva -> true, limit);
+    }
+
+    @Override
+    public Flux<Reserva> findByIdGreaterThanOrderByIdAsc(String id, Limit limit) {
+        return buscar(documentos.tailMap(id, false), reserva -> true, limit);
+    }
+
+    @Override
+    public Flux<Reserva> findByFechaBetweenOrderByFechaAsc(Range<LocalDateTime> rango, Limit limit) {
+        Flux<Reserva> ordenadas = buscar(enRango(rango)).sort(POR_FECHA);
+        return limit.isLimited() ? ordenadas.take(limit.max()) : ordenadas;
+    }
+
+    @Override
+    public Flux<Reserva> findByCedulaAndFechaBetweenOrderByFechaAsc(String cedula, Range<LocalDateTime> rango) {
+        return buscar(enRango(rango).and(reserva -> Objects.equals(reserva.getCedula(), cedula))).sort(POR_FECHA);
+    }
+
+    @Override
+    public Mono<Reserva> actualizarSiPermitido(String id, String usuario, Long versionEsperada, Reserva cambios) {
+        return Mono.fromSupplier(() -> {
+            while (true) {
+                Reserva actual = documentos.get(id);
+                if (actual == null || !esDelUsuario(actual, usuario)
+                        || (versionEsperada != null && !versionEsperada.equals(actual.getVersion()))) {
+                    return null;
+                }
+                Reserva nueva = copiar(actual);
+                nueva.setNombreCliente(cambios.getNombreCliente());
+                nueva.setFecha(cambios.getFecha());
+                nueva.setNumeroPersonas(cambios.getNumeroPersonas());
+                nueva.setVersion(siguienteVersion(actual));
+                nueva.setModificada(Instant.now());
+                if (documentos.replace(id, actual, nueva)) {
+                    return copiar(actual);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Mono<Reserva> restaurar(Reserva anterior, long versionActual) {
+        return Mono.fromSupplier(() -> {
+            Reserva actual = documentos.get(anterior.getId());
+            if (actual == null || !Objects.equals(actual.getVersion(), versionActual)) {
+                return null;
+            }
+            Reserva restaurada = copiar(anterior);
+            restaurada.setVersion(versionActual + 1);
+            restaurada.setModificada(Instant.now());
+            return documentos.replace(anterior.getId(), actual, restaurada) ? copiar(restaurada) : null;
+        });
+    }
+
+    @Override
+    public Mono<Reserva> eliminarSiPermitido(String id, String usuario) {
+        return Mono.fromSupplier(() -> {
+            while (true) {
+                Reserva actual = documentos.get(id);
+                if (actual == null || !esDelUsuario(actual, usuario)) {
+                    return null;
+                }
+                if (documentos.remove(id, actual)) {
+                    return copiar(actual);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Mono<Set<Integer>> insertarSinOrden(List<Reserva> reservas) {
+        return Mono.fromSupplier(() -> {
+            Set<Integer> fallidas = new HashSet<>();
+            for (int i = 0; i < reservas.size(); i++) {
+                Reserva reserva = reservas.get(i);
+                if (reserva.getId() == null) {
+                    asignarId(reserva);
+                }
+                if (reserva.getVersion() == null) {
+                    reserva.setVersion(0L);
+                }
+                reserva.setModificada(Instant.now());
+                if (documentos.putIfAbsent(reserva.getId(), copiar(reserva)) != null) {
+                    fallidas.add(i);
+                }
+            }
+            return fallidas;
+        });
+    }
+
+    @Override
+    public Mono<VersionReservas> versionPorCedula(String cedula) {
+        return Mono.fromSupplier(() -> {
+            long reservas = 0;
+            long sumaVersiones = 0;
+            Instant ultimaModificacion = null;
+            for (Reserva reserva : documentos.values()) {
+                if (Objects.equals(reserva.getCedula(), cedula)) {
+                    reservas++;
+                    sumaVersiones += reserva.getVersion() == null ? 0 : reserva.getVersion();
+                    if (ultimaModificacion == null || (reserva.getModificada() != null && reserva.getModificada().isAfter(ultimaModificacion))) {
+                        ultimaModificacion = reserva.getModificada();
+                    }
+                }
+            }
+            return new VersionReservas(reservas, sumaVersiones, ultimaModificacion);
+        });
+    }
+
+    @Override
+    public Mono<Integer> personasEnRango(Range<LocalDateTime> rango) {
+        return Mono.fromSupplier(() -> documentos.values().stream()
+            .filter(enRango(rango))
+            .mapToInt(Reserva::getNumeroPersonas)
+            .sum());
+    }
+
+    // Cada reserva se copia al histórico y solo se elimina si nadie la ha modificado mientras tanto; si no, se descarta la copia
+
+    @Override
+    public Mono<Integer> archivarLote(LocalDateTime limite, int tamanoLote) {
+        return Mono.fromSupplier(() -> {
+            List<Reserva> lote = documentos.values().stream()
+                .filter(reserva -> reserva.getFecha() != null && reserva.getFecha().isBefore(limite))
+                .sorted(POR_FECHA)
+                .limit(tamanoLote)
+                .toList();
+            int archivadas = 0;
+            for (Reserva reserva : lote) {
+                historico.put(reserva.getId(), reserva);
+                if (documentos.remove(reserva.getId(), reserva)) {
+                    archivadas++;
+                } else {
+                    historico.remove(reserva.getId(), reserva);
+                }
+            }
+            return archivadas;
+        });
+    }
+
+    @Override
+    public Flux<Reserva> buscarPorFecha(Range<LocalDateTime> rango, CursorFecha despues, Limit limite) {
+        Flux<Reserva> ordenadas = buscar(enRango(rango).and(reserva -> despues == null || despues.esAnteriorA(reserva))).sort(POR_FECHA);
+        return limite.isLimited() ? ordenadas.take(limite.max()) : ordenadas;
+    }
+
+    @Override
+    public Flux<Reserva> buscarConHistorico(String cedula, Range<LocalDateTime> rango, CursorFecha despues, Limit limite) {
+        return Flux.defer(() -> Flux.fromStream(todas()
+            .filter(enRango(rango).and(reserva -> cedula == null || cedula.equals(reserva.getCedula())))
+            .filter(reserva -> despues == null || despues.esAnteriorA(reserva))
+            .sorted(POR_FECHA)
+            .limit(limite.isLimited() ? limite.max() : Long.MAX_VALUE)
+            .map(this::copiar)));
+    }
+
+    @Override
+    public Flux<Reserva> eliminarLotePorCedula(String cedula, boolean historico, int limite) {
+        ConcurrentSkipListMap<String, Reserva> coleccion = historico ? this.historico : documentos;
+        return Flux.defer(() -> Flux.fromIterable(coleccion.values().stream()
+                .filter(reserva -> Objects.equals(reserva.getCedula(), cedula))
+                .limit(limite)
+                .toList()))
+            .filter(reserva -> coleccion.remove(reserva.getId(), reserva))
+            .map(this::copiar);
+    }
+
+    @Override
+    public Flux<String> cedulasConReservas(String despues, int limite) {
+        return Flux.defer(() -> Flux.fromStream(documentos.values().stream()
+            .map(Reserva::getCedula)
+            .filter(cedula -> cedula != null && (despues == null || cedula.compareTo(despues) > 0))
+            .distinct()
+            .sorted()
+            .limit(limite)));
+    }
+
+    @Override
+    public Flux<ResumenTurno> resumirPorTurno(Range<LocalDateTime> rango, long minutosPorTurno) {
+        return Flux.defer(() -> {
+            Map<LocalDateTime, List<Reserva>> porTurno = todas()
+                .filter(enRango(rango))
+                .collect(Collectors.groupingBy(reserva -> turno(reserva.getFecha(), minutosPorTurno), TreeMap::new, Collectors.toList()));
+            return Flux.fromIterable(porTurno.entrySet())
+                .map(turno -> new ResumenTurno(turno.getKey(), turno.getValue().size(), personas(turno.getValue())));
+        });
+    }
+
+    @Override
+    public Flux<ResumenCliente> resumirPorCliente(Range<LocalDateTime> rango, int limite) {
+        return Flux.defer(() -> {
+            Map<String, List<Reserva>> porCliente = todas()
+                .filter(enRango(rango))
+                .collect(Collectors.groupingBy(reserva -> Objects.toString(reserva.getCedula(), ""), TreeMap::new, Collectors.toList()));
+            return Flux.fromIterable(porCliente.values())
+                .map(reservas -> {
+                    Reserva ultima = reservas.stream().max(POR_FECHA).orElseThrow();
+                    return new ResumenCliente(ultima.getCedula(), ultima.getNombreCliente(), reservas.size(),
+                        personas(reservas), ultima.getFecha());
+                })
+                .sort(Comparator.comparingLong(ResumenCliente::getPersonas).reversed())
+                .take(limite);
+        });
+    }
+
+    // Reservas activas y archivadas; una reserva que está en las dos colecciones se cuenta una sola vez
+
+    private Stream<Reserva> todas() {
+        return Stream.concat(documentos.values().stream(),
+            historico.values().stream().filter(reserva -> !documentos.containsKey(reserva.getId())));
+    }
+
+    // Inicio del turno de una fecha: los minutos desde el inicio del día truncados a la duración del turno, como en CapacidadService
+
+    private static LocalDateTime turno(LocalDateTime fecha, long minutosPorTurno) {
+        LocalDateTime inicioDelDia = fecha.truncatedTo(ChronoUnit.DAYS);
+        long minutos = ChronoUnit.MINUTES.between(inicioDelDia, fecha);
+        return inicioDelDia.plusMinutes(minutos - minutos % minutosPorTurno);
+    }
+
+    private static long personas(List<Reserva> reservas) {
+        return reservas.stream().mapToLong(Reserva::getNumeroPersonas).sum();
+    }
+
+    private static Predicate<Reserva> enRango(Range<LocalDateTime> rango) {
+        return reserva -> reserva.getFecha() != null && rango.contains(reserva.getFecha(), Comparator.naturalOrder());
+    }
+
+    private static boolean esDelUsuario(Reserva reserva, String usuario) {
+        return usuario == null || usuario.equals(reserva.getUsuario());
+    }
+
+    private static long siguienteVersion(Reserva reserva) {
+        return (reserva.getVersion() == null ? 0 : reserva.getVersion()) + 1;
+    }
+}
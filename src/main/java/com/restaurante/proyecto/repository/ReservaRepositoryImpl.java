@@ -0,0 +1,328 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.restaurante.proyecto.model.CursorFecha;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.ResumenCliente;
+import com.restaurante.proyecto.model.ResumenTurno;
+import com.restaurante.proyecto.model.VersionReservas;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Implementación de las operaciones atómicas de reservas con findAndModify y findAndRemove de MongoDB
+// y de los resúmenes de ocupación con agregaciones que usan el índice por fecha para seleccionar el rango
+
+public class ReservaRepositoryImpl implements ReservaRepositoryCustom {
+
+    private static final Comparator<Reserva> POR_FECHA = Comparator.comparing(Reserva::getFecha).thenComparing(Reserva::getId);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ReservaRepositoryImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Reserva> actualizarSiPermitido(String id, String usuario, Long versionEsperada, Reserva cambios) {
+        Criteria condicion = condicion(id, usuario);
+        if (versionEsperada != null) {
+            condicion.and("version").is(versionEsperada);
+        }
+        Update update = new Update()
+            .set("nombreCliente", cambios.getNombreCliente())
+            .set("fecha", cambios.getFecha())
+            .set("numeroPersonas", cambios.getNumeroPersonas())
+            .set("modificada", Instant.now())
+            .inc("version", 1);
+        return mongoTemplate.findAndModify(new Query(condicion), update,
+            FindAndModifyOptions.options().returnNew(false), Reserva.class);
+    }
+
+    @Override
+    public Mono<Reserva> restaurar(Reserva anterior, long versionActual) {
+        Query query = new Query(Criteria.where("_id").is(anterior.getId()).and("version").is(versionActual));
+        Update update = new Update()
+            .set("nombreCliente", anterior.getNombreCliente())
+            .set("fecha", anterior.getFecha())
+            .set("numeroPersonas", anterior.getNumeroPersonas())
+            .set("modificada", Instant.now())
+            .inc("version", 1);
+        return mongoTemplate.findAndModify(query, update,
+            FindAndModifyOptions.options().returnNew(true), Reserva.class);
+    }
+
+    @Override
+    public Mono<Reserva> eliminarSiPermitido(String id, String usuario) {
+        return mongoTemplate.findAndRemove(new Query(condicion(id, usuario)), Reserva.class);
+    }
+
+    @Override
+    public Mono<Set<Integer>> insertarSinOrden(List<Reserva> reservas) {
+        if (reservas.isEmpty()) {
+            return Mono.just(Set.of());
+        }
+        return mongoTemplate.bulkOps(BulkMode.UNORDERED, Reserva.class)
+            .insert(reservas)
+            .execute()
+            .<Set<Integer>>thenReturn(Set.of())
+            .onErrorResume(e -> erroresDeEscritura(e) != null, e -> Mono.just(erroresDeEscritura(e).stream()
+                .map(BulkWriteError::getIndex)
+                .collect(Collectors.toSet())));
+    }
+
+    // Errores por documento de una escritura masiva, tanto si llega la excepción del driver como la traducida por Spring
+
+    private static List<BulkWriteError> erroresDeEscritura(Throwable e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof MongoBulkWriteException bulk) {
+                return bulk.getWriteErrors();
+            }
+            if (causa instanceof BulkOperationException bulk) {
+                return bulk.getErrors();
+            }
+        }
+        return null;
+    }
+
+    // Solo se leen la cédula, la versión y la fecha de modificación, que están en el índice "cedula_modificada_version"
+
+    @Override
+    public Mono<VersionReservas> versionPorCedula(String cedula) {
+        TypedAggregation<Reserva> agregacion = Aggregation.newAggregation(Reserva.class,
+            Aggregation.match(Criteria.where("cedula").is(cedula)),
+            Aggregation.group()
+                .count().as("reservas")
+                .sum("version").as("sumaVersiones")
+                .max("modificada").as("ultimaModificacion"));
+        return mongoTemplate.aggregate(agregacion, Document.class)
+            .next()
+            .map(resultado -> new VersionReservas(
+                resultado.get("reservas", Number.class).longValue(),
+                resultado.get("sumaVersiones", Number.class).longValue(),
+                resultado.getDate("ultimaModificacion") == null ? null : resultado.getDate("ultimaModificacion").toInstant()))
+            .defaultIfEmpty(new VersionReservas(0, 0, null));
+    }
+
+    // La suma se hace en el servidor sobre las entradas del índice "fecha_id" del rango; solo viaja el total
+
+    @Override
+    public Mono<Integer> personasEnRango(Range<LocalDateTime> rango) {
+        TypedAggregation<Reserva> agregacion = Aggregation.newAggregation(Reserva.class,
+            Aggregation.match(enRango(rango)),
+            Aggregation.group().sum("numeroPersonas").as("personas"));
+        return mongoTemplate.aggregate(agregacion, Document.class)
+            .next()
+            .map(resultado -> resultado.get("personas", Number.class).intValue())
+            .defaultIfEmpty(0);
+    }
+
+    // Las reservas se leen como documentos para copiarlas al histórico tal como están, con todos sus campos
+    // La copia es una sustitución con upsert por identificador, en una escritura masiva por lote, por lo que repetirla no
+    // duplica nada; la eliminación exige la versión copiada y se hace reserva a reserva para saber cuáles no se eliminaron
+    // (modificadas o eliminadas por otro mientras tanto) y descartar sus copias
+
+    @Override
+    public Mono<Integer> archivarLote(LocalDateTime limite, int tamanoLote) {
+        String coleccion = mongoTemplate.getCollectionName(Reserva.class);
+        Query antiguas = new Query(Criteria.where("fecha").lt(limite)).with(Sort.by("fecha")).limit(tamanoLote);
+        return mongoTemplate.find(antiguas, Document.class, coleccion)
+            .collectList()
+            .flatMap(lote -> {
+                if (lote.isEmpty()) {
+                    return Mono.just(0);
+                }
+                ReactiveBulkOperations copia = mongoTemplate.bulkOps(BulkMode.UNORDERED, Reserva.class, Reserva.COLECCION_HISTORICO);
+                for (Document reserva : lote) {
+                    copia.replaceOne(new Query(Criteria.where("_id").is(reserva.get("_id"))), reserva,
+                        FindAndReplaceOptions.options().upsert());
+                }
+                return copia.execute()
+                    .thenMany(Flux.fromIterable(lote))
+                    .flatMap(reserva -> mongoTemplate.remove(new Query(Criteria.where("_id").is(reserva.get("_id"))
+                            .and("version").is(reserva.get("version"))), coleccion)
+                        .filter(resultado -> resultado.getDeletedCount() == 0)
+                        .map(resultado -> reserva.get("_id")))
+                    .collectList()
+                    .flatMap(noEliminadas -> noEliminadas.isEmpty()
+                        ? Mono.just(lote.size())
+                        : descartarCopias(noEliminadas).thenReturn(lote.size() - noEliminadas.size()));
+            });
+    }
+
+    // Elimina del histórico las copias de las reservas del lote que no se pudieron eliminar de la colección activa
+
+    private Mono<Void> descartarCopias(List<Object> noEliminadas) {
+        return mongoTemplate.remove(new Query(Criteria.where("_id").in(noEliminadas)), Reserva.COLECCION_HISTORICO).then();
+    }
+
+    @Override
+    public Flux<Reserva> buscarPorFecha(Range<LocalDateTime> rango, CursorFecha despues, Limit limite) {
+        return mongoTemplate.find(porFecha(null, rango, despues, limite), Reserva.class);
+    }
+
+    // Se consultan las dos colecciones con el mismo orden y se mezclan; la misma reserva en ambas queda contigua
+
+    @Override
+    public Flux<Reserva> buscarConHistorico(String cedula, Range<LocalDateTime> rango, CursorFecha despues, Limit limite) {
+        Query consulta = porFecha(cedula, rango, despues, limite);
+        Flux<Reserva> reservas = Flux.mergeComparing(POR_FECHA,
+                mongoTemplate.find(consulta, Reserva.class),
+                mongoTemplate.find(Query.of(consulta), Reserva.class, Reserva.COLECCION_HISTORICO))
+            .distinctUntilChanged(Reserva::getId);
+        return limite.isLimited() ? reservas.take(limite.max()) : reservas;
+    }
+
+    // Se leen solo los identificadores del lote con el índice "cedula_fecha" y cada reserva se elimina por separado
+
+    @Override
+    public Flux<Reserva> eliminarLotePorCedula(String cedula, boolean historico, int limite) {
+        String coleccion = historico ? Reserva.COLECCION_HISTORICO : Reserva.COLECCION;
+        Query lote = new Query(Criteria.where("cedula").is(cedula)).limit(limite);
+        lote.fields().include("_id");
+        return mongoTemplate.find(lote, Document.class, coleccion)
+            .flatMap(reserva -> mongoTemplate.findAndRemove(
+                new Query(Criteria.where("_id").is(reserva.get("_id")).and("cedula").is(cedula)), Reserva.class, coleccion));
+    }
+
+    // La ordenación por cédula antes de agrupar permite a MongoDB saltar de una cédula a la siguiente en el índice "cedula_fecha"
+    // (DISTINCT_SCAN) en lugar de leer una entrada por reserva
+
+    @Override
+    public Flux<String> cedulasConReservas(String despues, int limite) {
+        Criteria criterio = despues == null ? Criteria.where("cedula").ne(null) : Criteria.where("cedula").gt(despues);
+        TypedAggregation<Reserva> agregacion = Aggregation.newAggregation(Reserva.class,
+            Aggregation.match(criterio),
+            Aggregation.sort(Sort.Direction.ASC, "cedula"),
+            Aggregation.group("cedula"),
+            Aggregation.sort(Sort.Direction.ASC, "_id"),
+            Aggregation.limit(limite));
+        return mongoTemplate.aggregate(agregacion, Document.class)
+            .map(resultado -> resultado.getString("_id"));
+    }
+
+    // El turno se calcula en el servidor con $dateTrunc (MongoDB 5.0 o superior) y solo viajan los totales por turno
+    // Las fechas se guardan convertidas desde la zona horaria de la aplicación, por lo que se truncan en esa misma zona
+    // Los resúmenes incluyen las reservas archivadas del rango, que se añaden con $unionWith usando el índice por fecha del histórico
+
+    @Override
+    public Flux<ResumenTurno> resumirPorTurno(Range<LocalDateTime> rango, long minutosPorTurno) {
+        AggregationExpression turno = contexto -> new Document("$dateTrunc", new Document("date", "$fecha")
+            .append("unit", "minute")
+            .append("binSize", minutosPorTurno)
+            .append("timezone", ZoneId.systemDefault().getId()));
+        TypedAggregation<Reserva> agregacion = Aggregation.newAggregation(Reserva.class,
+            Aggregation.match(enRango(rango)),
+            conHistorico(rango),
+            Aggregation.project("numeroPersonas").and(turno).as("turno"),
+            Aggregation.group("turno").count().as("reservas").sum("numeroPersonas").as("personas"),
+            Aggregation.sort(Sort.Direction.ASC, "_id"),
+            Aggregation.project("reservas", "personas").and("turno").previousOperation());
+        return mongoTemplate.aggregate(agregacion, ResumenTurno.class);
+    }
+
+    @Override
+    public Flux<ResumenCliente> resumirPorCliente(Range<LocalDateTime> rango, int limite) {
+        TypedAggregation<Reserva> agregacion = Aggregation.newAggregation(Reserva.class,
+            Aggregation.match(enRango(rango)),
+            conHistorico(rango),
+            Aggregation.group("cedula")
+                .count().as("reservas")
+                .sum("numeroPersonas").as("personas")
+                .last("nombreCliente").as("nombreCliente")
+                .max("fecha").as("ultimaFecha"),
+            Aggregation.sort(Sort.by(Sort.Order.desc("personas"), Sort.Order.asc("_id"))),
+            Aggregation.limit(limite),
+            Aggregation.project("nombreCliente", "reservas", "personas", "ultimaFecha").and("cedula").previousOperation());
+        return mongoTemplate.aggregate(agregacion, ResumenCliente.class);
+    }
+
+    // Si se interrumpió un archivado, una reserva puede estar en las dos colecciones: del histórico solo se añaden las que
+    // ya no están en la colección activa, comprobándolo con el índice por identificador (para la mayoría no encuentra nada)
+
+    private static UnionWithOperation conHistorico(Range<LocalDateTime> rango) {
+        return UnionWithOperation.unionWith(Reserva.COLECCION_HISTORICO)
+            .pipeline(Aggregation.match(enRango(rango)),
+                Aggregation.lookup(Reserva.COLECCION, "_id", "_id", "activa"),
+                Aggregation.match(Criteria.where("activa").size(0)),
+                Aggregation.project().andExclude("activa"))
+            .mapFieldsTo(Reserva.class);
+    }
+
+    // Consulta de las reservas del rango posteriores al cursor, ordenadas por fecha e identificador
+    // El inicio del rango se adelanta hasta la fecha del cursor para que el índice solo recorra las reservas pendientes,
+    // y entre las reservas de esa misma fecha se sigue por identificador
+
+    private static Query porFecha(String cedula, Range<LocalDateTime> rango, CursorFecha despues, Limit limite) {
+        Criteria criterio;
+        if (despues == null) {
+            criterio = enRango(rango);
+        } else {
+            boolean cursorEnRango = rango.getLowerBound().getValue().map(inicio -> inicio.isBefore(despues.fecha())).orElse(true);
+            criterio = enRango(cursorEnRango ? Range.of(Range.Bound.inclusive(despues.fecha()), rango.getUpperBound()) : rango)
+                .orOperator(Criteria.where("fecha").gt(despues.fecha()), Criteria.where("_id").gt(despues.id()));
+        }
+        if (cedula != null) {
+            criterio.and("cedula").is(cedula);
+        }
+        return new Query(criterio).with(Sort.by("fecha", "id")).limit(limite);
+    }
+
+    // Condición sobre la fecha de la reserva con los extremos del rango, incluidos o no según el rango
+
+    private static Criteria enRango(Range<LocalDateTime> rango) {
+        Criteria criterio = Criteria.where("fecha").ne(null);
+        Range.Bound<LocalDateTime> inferior = rango.getLowerBound();
+        inferior.getValue().ifPresent(fecha -> {
+            if (inferior.isInclusive()) {
+                criterio.gte(fecha);
+            } else {
+                criterio.gt(fecha);
+            }
+        });
+        Range.Bound<LocalDateTime> superior = rango.getUpperBound();
+        superior.getValue().ifPresent(fecha -> {
+            if (superior.isInclusive()) {
+                criterio.lte(fecha);
+            } else {
+                criterio.lt(fecha);
+            }
+        });
+        return criterio;
+    }
+
+    private static Criteria condicion(String id, String usuario) {
+        Criteria condicion = Criteria.where("_id").is(id);
+        if (usuario != null) {
+            condicion.and("usuario").is(usuario);
+        }
+        return condicion;
+    }
+}
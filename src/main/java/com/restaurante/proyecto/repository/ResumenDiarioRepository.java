@@ -0,0 +1,27 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.restaurante.proyecto.model.ResumenDiario;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Repositorio de los resúmenes de ocupación por día
+// Los contadores de cada día se actualizan con incrementos atómicos, sin leer el resumen antes
+
+public interface ResumenDiarioRepository {
+
+    // Suma (o resta, con valores negativos) reservas y personas al resumen del día, creándolo si no existe
+
+    Mono<Void> sumar(LocalDate dia, long reservas, long personas);
+
+    // Resúmenes de los días entre "desde" y "hasta" (ambos incluidos) ordenados por día; los días sin reservas pueden no tener resumen
+
+    Flux<ResumenDiario> buscar(LocalDate desde, LocalDate hasta);
+
+    // Sustituye los resúmenes de los días entre "desde" y "hasta" por los indicados
+
+    Mono<Void> reemplazar(LocalDate desde, LocalDate hasta, List<ResumenDiario> resumenes);
+}
@@ -0,0 +1,43 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.restaurante.proyecto.model.ResumenDiario;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Resúmenes de ocupación por día en memoria para el perfil "memoria"
+// Cada día se actualiza con merge sobre un mapa concurrente ordenado por día
+
+@Repository
+@Profile("memoria")
+public class ResumenDiarioRepositoryEnMemoria implements ResumenDiarioRepository {
+
+    private final ConcurrentSkipListMap<LocalDate, ResumenDiario> resumenes = new ConcurrentSkipListMap<>();
+
+    @Override
+    public Mono<Void> sumar(LocalDate dia, long reservas, long personas) {
+        return Mono.fromRunnable(() -> resumenes.merge(dia, new ResumenDiario(dia, reservas, personas),
+                (actual, incremento) -> new ResumenDiario(dia, actual.getReservas() + incremento.getReservas(),
+                        actual.getPersonas() + incremento.getPersonas())));
+    }
+
+    @Override
+    public Flux<ResumenDiario> buscar(LocalDate desde, LocalDate hasta) {
+        return Flux.defer(() -> Flux.fromIterable(List.copyOf(resumenes.subMap(desde, true, hasta, true).values())));
+    }
+
+    @Override
+    public Mono<Void> reemplazar(LocalDate desde, LocalDate hasta, List<ResumenDiario> nuevos) {
+        return Mono.fromRunnable(() -> {
+            resumenes.subMap(desde, true, hasta, true).clear();
+            nuevos.forEach(resumen -> resumenes.put(resumen.getDia(), resumen));
+        });
+    }
+}
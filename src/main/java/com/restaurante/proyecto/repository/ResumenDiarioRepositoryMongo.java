@@ -0,0 +1,52 @@
+package com.restaurante.proyecto.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import com.restaurante.proyecto.model.ResumenDiario;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Resúmenes de ocupación por día en la colección "resumen_diario" de MongoDB
+// Los incrementos se aplican con un upsert y $inc sobre el documento del día
+
+@Repository
+@Profile("!memoria")
+public class ResumenDiarioRepositoryMongo implements ResumenDiarioRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ResumenDiarioRepositoryMongo(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Void> sumar(LocalDate dia, long reservas, long personas) {
+        return mongoTemplate.upsert(new Query(Criteria.where("_id").is(dia)),
+                new Update().inc("reservas", reservas).inc("personas", personas), ResumenDiario.class).then();
+    }
+
+    @Override
+    public Flux<ResumenDiario> buscar(LocalDate desde, LocalDate hasta) {
+        Query query = new Query(Criteria.where("_id").gte(desde).lte(hasta)).with(Sort.by("_id"));
+        return mongoTemplate.find(query, ResumenDiario.class);
+    }
+
+    // Se eliminan los resúmenes del rango y se insertan los nuevos; no es atómico, por lo que los incrementos
+    // que lleguen mientras tanto pueden perderse si afectan a esos días
+
+    @Override
+    public Mono<Void> reemplazar(LocalDate desde, LocalDate hasta, List<ResumenDiario> resumenes) {
+        return mongoTemplate.remove(new Query(Criteria.where("_id").gte(desde).lte(hasta)), ResumenDiario.class)
+                .then(mongoTemplate.insertAll(resumenes).then());
+    }
+}
@@ -1,17 +1,27 @@
 package com.restaurante.proyecto.repository;
 
+import java.util.Collection;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
 import com.restaurante.proyecto.model.Usuario;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 // Repositorio para las operaciones CRUD de los usuarios de la aplicación
 // Se establecen métodos para buscar, eliminar y guardar usuarios en la base de datos MongoDB con Spring Data MongoDB
 // Se utiliza programación reactiva con Reactor para operaciones asíncronas y no bloqueantes
 // Se establece un método para buscar un usuario por su nombre de usuario y otro para buscar un usuario por su cédula
+// Se establece un método para buscar de una vez los usuarios de un lote de cédulas
+
+// Se establecen métodos ordenados por identificador para la paginación por cursor (keyset) y el envío en streaming
 
 public interface UsuarioRepository extends ReactiveMongoRepository<Usuario, String> {
     Mono<Usuario> findByUsername(String username);
     Mono<Usuario> findByCedula(String cedula);
+    Flux<Usuario> findByCedulaIn(Collection<String> cedulas);
+    Flux<Usuario> findAllByOrderByIdAsc(Limit limit);
+    Flux<Usuario> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.restaurante.proyecto.repository;
+
+import java.util.Collection;
+import java.util.Objects;
+
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+
+import com.restaurante.proyecto.model.Usuario;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Repositorio de usuarios en memoria para el perfil "memoria"
+// Se respetan los índices únicos por nombre de usuario y por cédula; las escrituras de usuarios son poco frecuentes
+// y se serializan para comprobar la unicidad sin carreras
+
+@Repository
+@Profile("memoria")
+public class UsuarioRepositoryEnMemoria extends RepositorioEnMemoria<Usuario> implements UsuarioRepository {
+
+    @Override
+    protected String id(Usuario usuario) {
+        return usuario.getId();
+    }
+
+    @Override
+    protected void asignarId(Usuario usuario) {
+        usuario.setId(new ObjectId().toHexString());
+    }
+
+    @Override
+    protected Usuario copiar(Usuario usuario) {
+        Usuario copia = new Usuario(usuario.getCedula(), usuario.getUsername(), usuario.getPassword(), usuario.getRole());
+        copia.setId(usuario.getId());
+        copia.setTokenVersion(usuario.getTokenVersion());
+        copia.setModificado(usuario.getModificado());
+        return copia;
+    }
+
+    @Override
+    public <S extends Usuario> Mono<S> save(S usuario) {
+        return Mono.fromSupplier(() -> guardar(usuario, false));
+    }
+
+    @Override
+    public <S extends Usuario> Mono<S> insert(S usuario) {
+        return Mono.fromSupplier(() -> guardar(usuario, true));
+    }
+
+    @Override
+    public Mono<Usuario> findByUsername(String username) {
+        return buscar(usuario -> Objects.equals(usuario.getUsername(), username)).next();
+    }
+
+    @Override
+    public Mono<Usuario> findByCedula(String cedula) {
+        return buscar(usuario -> Objects.equals(usuario.getCedula(), cedula)).next();
+    }
+
+    @Override
+    public Flux<Usuario> findByCedulaIn(Collection<String> cedulas) {
+        return buscar(usuario -> cedulas.contains(usuario.getCedula()));
+    }
+
+    @Override
+    public Flux<Usuario> findAllByOrderByIdAsc(Limit limit) {
+        return buscar(documentos, usuario -> true, limit);
+    }
+
+    @Override
+    public Flux<Usuario> findByIdGreaterThanOrderByIdAsc(String id, Limit limit) {
+        return buscar(documentos.tailMap(id, false), usuario -> true, limit);
+    }
+
+    private <S extends Usuario> S guardar(S usuario, boolean soloNuevo) {
+        synchronized (documentos) {
+            if (usuario.getId() == null) {
+                asignarId(usuario);
+            } else if (soloNuevo && documentos.containsKey(usuario.getId())) {
+                throw new DuplicateKeyException("Ya existe un usuario con el identificador " + usuario.getId());
+            }
+            comprobarUnicidad(usuario);
+            documentos.put(usuario.getId(), copiar(usuario));
+            return usuario;
+        }
+    }
+
+    private void comprobarUnicidad(Usuario usuario) {
+        for (Usuario existente : documentos.values()) {
+            if (existente.getId().equals(usuario.getId())) {
+                continue;
+            }
+            if (Objects.equals(existente.getUsername(), usuario.getUsername())
+                    || Objects.equals(existente.getCedula(), usuario.getCedula())) {
+                throw new DuplicateKeyException("Ya existe un usuario con el nombre de usuario o la cédula " + usuario.getCedula());
+            }
+        }
+    }
+}
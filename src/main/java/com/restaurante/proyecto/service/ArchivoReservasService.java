@@ -0,0 +1,87 @@
+package com.restaurante.proyecto.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.restaurante.proyecto.repository.ReservaRepository;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+
+// Servicio para archivar las reservas antiguas en la colección "reservas_historico"
+// Las reservas con fecha anterior al horizonte de archivo se mueven por lotes, de modo que la colección activa
+// y sus índices solo contienen las reservas recientes y caben en memoria
+// Cada lote se copia y después se elimina de la colección activa, por lo que el archivo se puede interrumpir en cualquier
+// momento: la siguiente ejecución continúa con las reservas que siguen en la colección activa sin duplicar ninguna
+// Los resúmenes diarios no cambian al archivar, y las estadísticas y las consultas de los admins pueden incluir el histórico
+
+@Service
+public class ArchivoReservasService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivoReservasService.class);
+
+    private final ReservaRepository reservaRepository;
+    private final boolean habilitado;
+    private final Duration horizonte;
+    private final int tamanoLote;
+    private final Duration pausa;
+    private final TareaPeriodica tarea;
+
+    public ArchivoReservasService(ReservaRepository reservaRepository,
+                                  @Value("${reservas.archivo.habilitado:true}") boolean habilitado,
+                                  @Value("${reservas.archivo.horizonte:365d}") Duration horizonte,
+                                  @Value("${reservas.archivo.tamano-lote:500}") int tamanoLote,
+                                  @Value("${reservas.archivo.pausa:1s}") Duration pausa,
+                                  @Value("${reservas.archivo.retraso-inicial:10m}") Duration retrasoInicial,
+                                  @Value("${reservas.archivo.intervalo:1d}") Duration intervalo) {
+        this.reservaRepository = reservaRepository;
+        this.habilitado = habilitado;
+        this.horizonte = horizonte;
+        this.tamanoLote = tamanoLote;
+        this.pausa = pausa;
+        this.tarea = new TareaPeriodica(retrasoInicial, intervalo,
+            () -> archivar().doOnNext(total -> {
+                if (total > 0) {
+                    log.info("Archivadas {} reservas anteriores a {}", total, limite());
+                }
+            }),
+            e -> log.error("No se pudo completar el archivo de reservas: {}", e.getMessage()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        if (habilitado) {
+            tarea.iniciar();
+        }
+    }
+
+    @PreDestroy
+    public void alDetener() {
+        tarea.detener();
+    }
+
+    // Archiva lote a lote, con una pausa entre lotes, hasta que no quedan reservas anteriores al horizonte
+    // Devuelve el número de reservas archivadas
+
+    public Mono<Long> archivar() {
+        LocalDateTime limite = limite();
+        return reservaRepository.archivarLote(limite, tamanoLote)
+            .expand(archivadas -> archivadas > 0
+                ? Mono.delay(pausa).then(reservaRepository.archivarLote(limite, tamanoLote))
+                : Mono.empty())
+            .reduce(0L, Long::sum);
+    }
+
+    // Fecha a partir de la cual las reservas siguen en la colección activa
+
+    public LocalDateTime limite() {
+        return LocalDateTime.now().minus(horizonte);
+    }
+}
@@ -0,0 +1,48 @@
+package com.restaurante.proyecto.service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.restaurante.proyecto.model.EventoReserva;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+// Bus de eventos de reservas en el propio proceso, para el perfil "memoria", las pruebas y los despliegues sin replica set
+// Los controladores publican cada cambio después de guardarlo; solo se reciben los cambios hechos por esta instancia
+
+@Component
+@ConditionalOnProperty(name = "reservas.eventos.fuente", havingValue = "bus")
+public class BusEventosReserva implements FuenteEventosReserva {
+
+    private final Sinks.Many<EventoReserva> bus = Sinks.many().multicast().directBestEffort();
+    private final Queue<EventoReserva> pendientes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger publicaciones = new AtomicInteger();
+
+    @Override
+    public Flux<EventoReserva> eventos() {
+        return bus.asFlux();
+    }
+
+    // Sin suscriptores el evento se descarta. Publicar nunca bloquea: el evento se encola y lo emite el hilo que esté
+    // publicando en ese momento, o este mismo si no hay ninguno, de modo que el sink solo se usa desde un hilo a la vez
+
+    @Override
+    public void publicar(EventoReserva evento) {
+        pendientes.offer(evento);
+        if (publicaciones.getAndIncrement() != 0) {
+            return;
+        }
+        int atendidas = 1;
+        do {
+            for (EventoReserva siguiente = pendientes.poll(); siguiente != null; siguiente = pendientes.poll()) {
+                bus.tryEmitNext(siguiente);
+            }
+            atendidas = publicaciones.addAndGet(-atendidas);
+        } while (atendidas != 0);
+    }
+}
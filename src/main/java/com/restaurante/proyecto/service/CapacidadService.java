@@ -0,0 +1,123 @@
+package com.restaurante.proyecto.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.restaurante.proyecto.repository.OcupacionTurnoRepository;
+import com.restaurante.proyecto.repository.ReservaRepository;
+
+import reactor.core.publisher.Mono;
+
+// Servicio para controlar la capacidad de los turnos del restaurante y evitar reservas por encima de las plazas disponibles
+// Cada turno tiene un contador en el repositorio de ocupación que se incrementa con una actualización condicional atómica:
+// solo se suman plazas si tras sumarlas no se supera la capacidad, sin bloqueos globales entre peticiones concurrentes
+// Una vista en memoria de la última ocupación conocida permite rechazar sin consultar la base de datos los turnos llenos
+// El contador de un turno se crea la primera vez que se reserva en él con las plazas de las reservas que ya tiene,
+// de modo que los turnos reservados antes de llevar la cuenta (o antes de perder los contadores) no admiten plazas de más
+
+@Service
+public class CapacidadService {
+
+    private final OcupacionTurnoRepository ocupacionRepository;
+    private final ReservaRepository reservaRepository;
+    private final int plazasPorTurno;
+    private final long minutosPorTurno;
+    private final Cache<LocalDateTime, Integer> vista;
+
+    public CapacidadService(OcupacionTurnoRepository ocupacionRepository, ReservaRepository reservaRepository,
+                            @Value("${reservas.capacidad.plazas-por-turno:40}") int plazasPorTurno,
+                            @Value("${reservas.capacidad.duracion-turno:30m}") Duration duracionTurno,
+                            @Value("${reservas.capacidad.vista.ttl:2s}") Duration ttlVista) {
+        this.ocupacionRepository = ocupacionRepository;
+        this.reservaRepository = reservaRepository;
+        this.plazasPorTurno = plazasPorTurno;
+        this.minutosPorTurno = Math.max(duracionTurno.toMinutes(), 1);
+        this.vista = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(ttlVista)
+                .build();
+    }
+
+    // Turno al que pertenece una fecha: la fecha truncada al inicio del turno dentro del día
+
+    public LocalDateTime turno(LocalDateTime fecha) {
+        LocalDateTime inicioDelDia = fecha.truncatedTo(ChronoUnit.DAYS);
+        long minutos = ChronoUnit.MINUTES.between(inicioDelDia, fecha);
+        return inicioDelDia.plusMinutes(minutos - minutos % minutosPorTurno);
+    }
+
+    // Reserva plazas en el turno de la fecha indicada; devuelve false si el turno no tiene plazas suficientes
+    // La condición "ocupadas <= capacidad - personas" y el incremento se aplican en una sola operación atómica
+
+    public Mono<Boolean> reservar(LocalDateTime fecha, int personas) {
+        LocalDateTime turno = turno(fecha);
+        if (personas > plazasPorTurno) {
+            return Mono.just(false);
+        }
+        Integer ocupadas = vista.getIfPresent(turno);
+        if (ocupadas != null && ocupadas + personas > plazasPorTurno) {
+            return Mono.just(false);
+        }
+        Mono<Integer> ocupadasAlCrear = reservaRepository.personasEnRango(Range.rightOpen(turno, turno.plusMinutes(minutosPorTurno)));
+        return ocupacionRepository.ocupar(turno, personas, plazasPorTurno, ocupadasAlCrear)
+                .doOnNext(ocupacion -> vista.put(turno, ocupacion))
+                .hasElement()
+                .doOnNext(reservado -> {
+                    // Si no hubo plazas se sabe que la ocupación supera "capacidad - personas"; se guarda esa cota inferior
+                    if (!reservado) {
+                        vista.asMap().merge(turno, plazasPorTurno - personas + 1, Math::max);
+                    }
+                });
+    }
+
+    // Libera las plazas de una reserva eliminada o modificada; las reservas sin fecha no ocupan plazas
+
+    public Mono<Void> liberar(LocalDateTime fecha, int personas) {
+        if (fecha == null || personas <= 0) {
+            return Mono.empty();
+        }
+        LocalDateTime turno = turno(fecha);
+        return ocupacionRepository.liberar(turno, personas)
+                .doOnSuccess(resultado -> vista.invalidate(turno));
+    }
+
+    // Cambiar una reserva de turno (o de número de personas en el mismo turno) cuando el turno nuevo no admite todas sus
+    // personas: con la reserva ya guardada se ocupan las plazas que faltan y, si caben, se liberan las que sobran en el
+    // turno anterior (ver ReservaController.actualizarReserva). En el mismo turno solo se ocupan o liberan las personas de diferencia
+
+    public Mono<Boolean> reservarCambio(LocalDateTime fechaAnterior, int personasAnteriores, LocalDateTime fechaNueva, int personasNuevas) {
+        if (mismoTurno(fechaAnterior, fechaNueva)) {
+            int diferencia = personasNuevas - personasAnteriores;
+            return diferencia > 0 ? reservar(fechaNueva, diferencia) : Mono.just(true);
+        }
+        return reservar(fechaNueva, personasNuevas);
+    }
+
+    // Libera las plazas que la reserva ya no ocupa una vez guardado el cambio
+
+    public Mono<Void> completarCambio(LocalDateTime fechaAnterior, int personasAnteriores, LocalDateTime fechaNueva, int personasNuevas) {
+        if (mismoTurno(fechaAnterior, fechaNueva)) {
+            return liberar(fechaAnterior, personasAnteriores - personasNuevas);
+        }
+        return liberar(fechaAnterior, personasAnteriores);
+    }
+
+    private boolean mismoTurno(LocalDateTime fechaAnterior, LocalDateTime fechaNueva) {
+        return fechaAnterior != null && turno(fechaAnterior).equals(turno(fechaNueva));
+    }
+
+    public int getPlazasPorTurno() {
+        return plazasPorTurno;
+    }
+
+    public long getMinutosPorTurno() {
+        return minutosPorTurno;
+    }
+}
@@ -0,0 +1,150 @@
+package com.restaurante.proyecto.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Range;
+import org.springframework.stereotype.Service;
+
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.ResumenCliente;
+import com.restaurante.proyecto.model.ResumenDiario;
+import com.restaurante.proyecto.model.ResumenTurno;
+import com.restaurante.proyecto.repository.ReservaRepository;
+import com.restaurante.proyecto.repository.ResumenDiarioRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Servicio de estadísticas de ocupación del restaurante: cubiertos por día, por turno y por cliente
+// Los totales por día se leen de los resúmenes diarios, que se actualizan de forma incremental con cada reserva creada,
+// modificada o eliminada, por lo que un panel lee un documento por día en lugar de recorrer todas las reservas
+// Los totales por turno y por cliente se calculan con agregaciones sobre las reservas del rango de fechas solicitado
+// Un fallo al actualizar un resumen no hace fallar la operación sobre la reserva: se registra y se corrige reconstruyendo los días afectados
+
+@Service
+public class EstadisticasService {
+
+    private static final Logger log = LoggerFactory.getLogger(EstadisticasService.class);
+
+    private final ReservaRepository reservaRepository;
+    private final ResumenDiarioRepository resumenRepository;
+    private final CapacidadService capacidadService;
+
+    public EstadisticasService(ReservaRepository reservaRepository, ResumenDiarioRepository resumenRepository,
+                               CapacidadService capacidadService) {
+        this.reservaRepository = reservaRepository;
+        this.resumenRepository = resumenRepository;
+        this.capacidadService = capacidadService;
+    }
+
+    // Suma una reserva nueva al resumen de su día
+
+    public Mono<Void> registrarAlta(LocalDateTime fecha, int personas) {
+        return sumar(fecha, 1, personas);
+    }
+
+    // Suma varias reservas nuevas con un solo incremento por día (importación masiva)
+
+    public Mono<Void> registrarAltas(List<Reserva> reservas) {
+        return sumarPorDia(reservas, 1);
+    }
+
+    // Resta una reserva eliminada del resumen de su día
+
+    public Mono<Void> registrarBaja(LocalDateTime fecha, int personas) {
+        return sumar(fecha, -1, -personas);
+    }
+
+    // Resta varias reservas eliminadas con un solo decremento por día (eliminación de las reservas de un cliente)
+
+    public Mono<Void> registrarBajas(List<Reserva> reservas) {
+        return sumarPorDia(reservas, -1);
+    }
+
+    // Mueve una reserva modificada entre los resúmenes de sus días; si no cambia de día solo se ajustan las personas
+
+    public Mono<Void> registrarCambio(LocalDateTime fechaAnterior, int personasAnteriores, LocalDateTime fechaNueva, int personasNuevas) {
+        if (fechaAnterior == null) {
+            return registrarAlta(fechaNueva, personasNuevas);
+        }
+        if (fechaAnterior.toLocalDate().equals(fechaNueva.toLocalDate())) {
+            return personasNuevas == personasAnteriores
+                ? Mono.empty()
+                : sumar(fechaNueva, 0, personasNuevas - personasAnteriores);
+        }
+        return registrarBaja(fechaAnterior, personasAnteriores).then(registrarAlta(fechaNueva, personasNuevas));
+    }
+
+    // Totales de los días entre "desde" y "hasta" (ambos incluidos) leídos de los resúmenes diarios
+
+    public Flux<ResumenDiario> porDia(LocalDate desde, LocalDate hasta) {
+        return resumenRepository.buscar(desde, hasta);
+    }
+
+    // Totales de cada turno con reservas entre "desde" y "hasta" (ambos incluidos)
+
+    public Flux<ResumenTurno> porTurno(LocalDate desde, LocalDate hasta) {
+        return reservaRepository.resumirPorTurno(rango(desde, hasta), capacidadService.getMinutosPorTurno());
+    }
+
+    // Clientes con más personas reservadas entre "desde" y "hasta" (ambos incluidos)
+
+    public Flux<ResumenCliente> porCliente(LocalDate desde, LocalDate hasta, int limite) {
+        return reservaRepository.resumirPorCliente(rango(desde, hasta), limite);
+    }
+
+    // Vuelve a calcular los resúmenes de los días entre "desde" y "hasta" a partir de los totales por turno de las reservas
+    // Se usa para crear los resúmenes de las reservas anteriores a esta funcionalidad o para corregir incrementos perdidos
+    // Devuelve el número de días con reservas
+
+    public Mono<Integer> reconstruir(LocalDate desde, LocalDate hasta) {
+        return porTurno(desde, hasta)
+            .collect(TreeMap<LocalDate, ResumenDiario>::new, (porDia, turno) -> porDia.merge(turno.getTurno().toLocalDate(),
+                new ResumenDiario(turno.getTurno().toLocalDate(), turno.getReservas(), turno.getPersonas()),
+                (actual, mas) -> new ResumenDiario(actual.getDia(), actual.getReservas() + mas.getReservas(),
+                    actual.getPersonas() + mas.getPersonas())))
+            .flatMap(porDia -> resumenRepository.reemplazar(desde, hasta, List.copyOf(porDia.values()))
+                .thenReturn(porDia.size()));
+    }
+
+    // Agrupa las reservas por día y suma (signo 1) o resta (signo -1) sus totales con una sola escritura por día
+    // Las reservas sin fecha no cuentan en los resúmenes
+
+    private Mono<Void> sumarPorDia(List<Reserva> reservas, int signo) {
+        Map<LocalDate, long[]> porDia = new TreeMap<>();
+        for (Reserva reserva : reservas) {
+            if (reserva.getFecha() == null) {
+                continue;
+            }
+            long[] totales = porDia.computeIfAbsent(reserva.getFecha().toLocalDate(), dia -> new long[2]);
+            totales[0] += signo;
+            totales[1] += signo * reserva.getNumeroPersonas();
+        }
+        return Flux.fromIterable(porDia.entrySet())
+            .concatMap(dia -> sumar(dia.getKey(), dia.getValue()[0], dia.getValue()[1]))
+            .then();
+    }
+
+    private Mono<Void> sumar(LocalDateTime fecha, long reservas, long personas) {
+        return fecha == null ? Mono.empty() : sumar(fecha.toLocalDate(), reservas, personas);
+    }
+
+    private Mono<Void> sumar(LocalDate dia, long reservas, long personas) {
+        return resumenRepository.sumar(dia, reservas, personas)
+            .onErrorResume(e -> {
+                log.warn("No se pudo actualizar el resumen del día {} ({} reservas, {} personas): {}",
+                    dia, reservas, personas, e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    private static Range<LocalDateTime> rango(LocalDate desde, LocalDate hasta) {
+        return Range.rightOpen(desde.atStartOfDay(), hasta.plusDays(1).atStartOfDay());
+    }
+}
@@ -0,0 +1,85 @@
+package com.restaurante.proyecto.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+
+import com.restaurante.proyecto.model.EventoReserva;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+// Servicio para repartir los cambios en las reservas a los clientes suscritos por Server-Sent Events
+// Todos los clientes comparten una única suscripción al origen de eventos (un solo change stream de MongoDB), que se abre
+// con el primer cliente y se cierra al irse el último; si el origen falla se vuelve a abrir con esperas crecientes
+// Cada cliente tiene su propio búfer: si no lee al ritmo de los eventos se descartan sus eventos más antiguos
+// (contador "reservas.eventos.descartados") sin frenar al origen ni a los demás clientes
+// Se envía un comentario periódico como latido para que los proxies no cierren las conexiones inactivas
+
+@Service
+public class EventosReservaService {
+
+    private static final Logger log = LoggerFactory.getLogger(EventosReservaService.class);
+
+    private final FuenteEventosReserva fuente;
+    private final Flux<EventoReserva> compartido;
+    private final int bufferPorCliente;
+    private final Duration latido;
+    private final Counter descartados;
+
+    public EventosReservaService(FuenteEventosReserva fuente, MeterRegistry meterRegistry,
+                                 @Value("${reservas.eventos.buffer-por-cliente:256}") int bufferPorCliente,
+                                 @Value("${reservas.eventos.latido:15s}") Duration latido) {
+        this.fuente = fuente;
+        this.bufferPorCliente = Math.max(bufferPorCliente, 1);
+        this.latido = latido;
+        this.descartados = Counter.builder("reservas.eventos.descartados")
+                .description("Eventos de reservas descartados por clientes que no los leen a tiempo")
+                .register(meterRegistry);
+        this.compartido = fuente.eventos()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofMinutes(1))
+                        .doBeforeRetry(senal -> log.warn("Se vuelve a abrir el origen de eventos de reservas tras un error: {}",
+                                senal.failure().getMessage())))
+                .publish()
+                .refCount();
+    }
+
+    // Notifica un cambio ya guardado; con el change stream de MongoDB no hace nada porque el cambio llega desde la base de datos
+
+    public void publicar(EventoReserva evento) {
+        fuente.publicar(evento);
+    }
+
+    // Eventos de las reservas con fecha entre "desde" y "hasta" (ambos incluidos; nulos para no limitar) como Server-Sent Events
+    // Las eliminaciones sin fecha se envían a todos los clientes, que las reconocen por el identificador de la reserva
+
+    public Flux<ServerSentEvent<EventoReserva>> suscribir(LocalDate desde, LocalDate hasta) {
+        Flux<ServerSentEvent<EventoReserva>> eventos = compartido
+                .filter(evento -> enRango(evento, desde, hasta))
+                .onBackpressureBuffer(bufferPorCliente, descartado -> descartados.increment(), BufferOverflowStrategy.DROP_OLDEST)
+                .map(evento -> ServerSentEvent.builder(evento)
+                        .event(evento.getTipo().name().toLowerCase())
+                        .build());
+        Flux<ServerSentEvent<EventoReserva>> latidos = Flux.interval(latido)
+                .map(n -> ServerSentEvent.<EventoReserva>builder().comment("latido").build())
+                .onBackpressureDrop();
+        return Flux.merge(eventos, latidos);
+    }
+
+    private static boolean enRango(EventoReserva evento, LocalDate desde, LocalDate hasta) {
+        if (evento.getFecha() == null) {
+            return true;
+        }
+        LocalDate dia = evento.getFecha().toLocalDate();
+        return (desde == null || !dia.isBefore(desde)) && (hasta == null || !dia.isAfter(hasta));
+    }
+}
@@ -0,0 +1,19 @@
+package com.restaurante.proyecto.service;
+
+import com.restaurante.proyecto.model.EventoReserva;
+
+import reactor.core.publisher.Flux;
+
+// Origen de los eventos de cambios en las reservas que se reparten a los clientes suscritos
+// Se elige con la propiedad "reservas.eventos.fuente": "mongo" (change streams de MongoDB) o "bus" (en el propio proceso)
+
+public interface FuenteEventosReserva {
+
+    // Flujo de eventos; cada suscripción abre su propia conexión con el origen, por lo que se comparte una sola
+
+    Flux<EventoReserva> eventos();
+
+    // Notifica un cambio ya guardado por esta instancia; el origen que recibe los cambios de la base de datos lo ignora
+
+    void publicar(EventoReserva evento);
+}
@@ -0,0 +1,11 @@
+package com.restaurante.proyecto.service;
+
+// Estrategia para generar los identificadores de las reservas al insertarlas en la base de datos
+// La implementación por defecto es GeneradorIdentificadoresOrdenados; para cambiarla basta con declarar otro bean marcado con @Primary
+
+public interface GeneradorIdentificadores {
+
+    // Devuelve un identificador nuevo; debe ser seguro llamarlo desde varios hilos a la vez
+
+    String nuevoId();
+}
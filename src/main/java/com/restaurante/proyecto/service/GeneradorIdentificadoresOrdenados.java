@@ -0,0 +1,52 @@
+package com.restaurante.proyecto.service;
+
+import java.time.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Generador de identificadores ordenados por tiempo, con el mismo formato que ULID
+// Cada identificador tiene 26 caracteres en base 32 de Crockford: 10 con los milisegundos de la fecha de creación
+// y 16 con 80 bits aleatorios, suficientes para que no haya colisiones aunque se generen millones por milisegundo
+// El alfabeto está en orden ASCII, así que los identificadores se ordenan como texto por fecha de creación
+// y el índice de "_id" sirve también para recorrer los documentos por orden de creación
+// Los bits aleatorios salen del generador del hilo actual, sin crear objetos Random ni sincronizar entre hilos
+
+public class GeneradorIdentificadoresOrdenados implements GeneradorIdentificadores {
+
+    private static final char[] ALFABETO = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LONGITUD = 26;
+
+    private final Clock reloj;
+
+    public GeneradorIdentificadoresOrdenados() {
+        this(Clock.systemUTC());
+    }
+
+    public GeneradorIdentificadoresOrdenados(Clock reloj) {
+        this.reloj = reloj;
+    }
+
+    @Override
+    public String nuevoId() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        return codificar(reloj.millis(), aleatorio.nextLong(), aleatorio.nextInt(1 << 16));
+    }
+
+    // Codifica 48 bits de tiempo seguidos de 80 bits aleatorios (64 + 16) en 26 caracteres de 5 bits
+
+    static String codificar(long milisegundos, long aleatorioAlto, int aleatorioBajo) {
+        char[] id = new char[LONGITUD];
+        // Tiempo: 10 caracteres, 50 bits de los que los 2 más altos son siempre cero
+        for (int i = 9; i >= 0; i--) {
+            id[i] = ALFABETO[(int) (milisegundos & 31)];
+            milisegundos >>>= 5;
+        }
+        // Aleatorio: 16 caracteres con los 80 bits formados por aleatorioAlto (64) y aleatorioBajo (16)
+        long bajo = aleatorioBajo & 0xFFFFL;
+        for (int i = LONGITUD - 1; i >= 10; i--) {
+            id[i] = ALFABETO[(int) (bajo & 31)];
+            bajo = (bajo >>> 5) | ((aleatorioAlto & 31) << 11);
+            aleatorioAlto >>>= 5;
+        }
+        return new String(id);
+    }
+}
@@ -0,0 +1,147 @@
+package com.restaurante.proyecto.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.model.ClaveIdempotencia;
+import com.restaurante.proyecto.model.Mensaje;
+import com.restaurante.proyecto.repository.ClaveIdempotenciaRepository;
+
+import reactor.core.publisher.Mono;
+
+// Servicio para ejecutar una sola vez las peticiones que llegan con la cabecera Idempotency-Key
+// La primera petición con una clave la reserva en la base de datos, ejecuta la operación y guarda su resultado;
+// los reintentos con la misma clave reciben el resultado guardado (con la cabecera Idempotent-Replayed) sin volver a ejecutarla
+// Las claves se guardan también en una caché acotada en memoria: las peticiones simultáneas con la misma clave
+// en una misma instancia comparten la misma ejecución, y las que llegan a otra instancia mientras la primera
+// sigue en curso reciben un 409 para que vuelvan a intentarlo
+// Si la operación falla con un error la clave se elimina para que el cliente pueda reintentar
+// Mientras la operación está en curso la clave solo se reserva por un plazo corto (reservas.idempotencia.en-curso):
+// si la instancia que la ejecutaba se cae, otra petición con la misma clave la toma al vencer el plazo en lugar de recibir
+// 409 durante todo el tiempo de vida de la clave, que solo se aplica al guardar el resultado
+// El resultado y la eliminación tras un error solo se aplican si la clave sigue reservada por la misma petición
+
+@Service
+public class IdempotenciaService {
+
+    public static final String CABECERA = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+    public static final int LONGITUD_MAXIMA = 255;
+
+    private final ClaveIdempotenciaRepository repository;
+    private final Mensajes mensajes;
+    private final Duration ttl;
+    private final Duration enCurso;
+    private final AsyncCache<String, ClaveIdempotencia> cache;
+
+    public IdempotenciaService(ClaveIdempotenciaRepository repository, Mensajes mensajes,
+                               @Value("${reservas.idempotencia.ttl:24h}") Duration ttl,
+                               @Value("${reservas.idempotencia.en-curso:30s}") Duration enCurso,
+                               @Value("${reservas.idempotencia.cache.max-size:10000}") long cacheMaxSize,
+                               @Value("${reservas.idempotencia.cache.ttl:10m}") Duration cacheTtl) {
+        this.repository = repository;
+        this.mensajes = mensajes;
+        this.ttl = ttl;
+        this.enCurso = enCurso;
+        // La caché no debe recordar una clave más tiempo que la base de datos
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl.compareTo(ttl) < 0 ? cacheTtl : ttl)
+                .buildAsync();
+    }
+
+    public static boolean esValida(String clave) {
+        return !clave.isBlank() && clave.length() <= LONGITUD_MAXIMA;
+    }
+
+    // Huella SHA-256 (en hexadecimal) de los campos de una petición, separados por un carácter nulo para que
+    // dos peticiones distintas no den el mismo texto al unirlos
+
+    public static String huella(Object... campos) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Object campo : campos) {
+            sha256.update(String.valueOf(campo).getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    // Ejecuta la operación una sola vez por propietario y clave y responde con su resultado en el idioma de cada petición
+    // La huella identifica los datos de la petición: una clave ya usada con otra huella se rechaza con un 422
+
+    public Mono<ResponseEntity<Mensaje>> ejecutar(String propietario, String clave, String huella, Locale locale,
+                                                  Supplier<Mono<ResponseEntity<Mensaje>>> operacion) {
+        String id = propietario + ":" + clave;
+        AtomicBoolean ejecutada = new AtomicBoolean();
+        // Se ignora la cancelación de un suscriptor para no cancelar la ejecución compartida con los demás
+        return Mono.fromFuture(() -> cache.get(id, (k, executor) -> {
+                    ejecutada.set(true);
+                    return resolver(id, huella, operacion).toFuture();
+                }), true)
+            .map(registro -> {
+                if (registro.enCurso()) {
+                    // Las claves en curso en otra instancia no se quedan en la caché para volver a consultarlas en el siguiente intento
+                    cache.synchronous().invalidate(id);
+                    return responder(409, "reservation.idempotency.in.progress", locale, false);
+                }
+                if (!registro.getHuella().equals(huella)) {
+                    return responder(422, "reservation.idempotency.mismatch", locale, false);
+                }
+                return responder(registro.getEstado(), registro.getCodigo(), locale, !ejecutada.get());
+            });
+    }
+
+    // Reserva la clave y ejecuta la operación, o recupera el resultado de la petición que la reservó antes
+
+    // El fin del plazo se redondea a milisegundos, la precisión con la que lo guarda MongoDB, para poder compararlo después
+
+    private Mono<ClaveIdempotencia> resolver(String id, String huella, Supplier<Mono<ResponseEntity<Mensaje>>> operacion) {
+        Instant finConcesion = Instant.now().plus(enCurso).truncatedTo(ChronoUnit.MILLIS);
+        ClaveIdempotencia registro = new ClaveIdempotencia(id, huella, ClaveIdempotencia.EN_CURSO, null, finConcesion);
+        return repository.reservar(registro)
+            .flatMap(reservada -> reservada
+                ? ejecutarYGuardar(registro, operacion)
+                : repository.buscar(id)
+                    .switchIfEmpty(Mono.defer(() -> resolver(id, huella, operacion))));
+    }
+
+    private Mono<ClaveIdempotencia> ejecutarYGuardar(ClaveIdempotencia registro, Supplier<Mono<ResponseEntity<Mensaje>>> operacion) {
+        Instant finConcesion = registro.getExpira();
+        return Mono.defer(operacion)
+            .flatMap(respuesta -> {
+                registro.setEstado(respuesta.getStatusCode().value());
+                registro.setCodigo(respuesta.getBody().getCodigo());
+                registro.setExpira(Instant.now().plus(ttl));
+                return repository.completar(registro, finConcesion).thenReturn(registro);
+            })
+            .onErrorResume(e -> repository.eliminar(registro.getId(), finConcesion).then(Mono.error(e)));
+    }
+
+    private ResponseEntity<Mensaje> responder(int estado, String codigo, Locale locale, boolean repetida) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.status(estado);
+        if (repetida) {
+            respuesta.header(CABECERA_REPETIDA, "true");
+        }
+        return respuesta.body(mensajes.get(codigo, locale));
+    }
+}
@@ -0,0 +1,156 @@
+package com.restaurante.proyecto.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.model.EventoReserva;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.ResultadoImportacion;
+import com.restaurante.proyecto.repository.ReservaRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Servicio para la importación masiva de reservas recibidas como un flujo NDJSON desde sistemas externos
+// Las reservas se agrupan en lotes de tamaño configurable: en cada lote se validan, se ocupan sus plazas en el turno
+// y se insertan con una única escritura masiva sin orden; como mucho se procesan a la vez los lotes configurados
+// Se devuelve un resultado por línea recibida, en el mismo orden de entrada, a medida que se completa cada lote
+// Las reservas insertadas de cada lote se suman a los resúmenes diarios con un incremento por día y se notifican como creadas
+
+@Service
+public class ImportacionReservasService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionReservasService.class);
+
+    private final ReservaRepository repository;
+    private final CapacidadService capacidadService;
+    private final EstadisticasService estadisticasService;
+    private final EventosReservaService eventosReservaService;
+    private final Mensajes mensajes;
+    private final int tamanoLote;
+    private final int lotesEnVuelo;
+
+    public ImportacionReservasService(ReservaRepository repository, CapacidadService capacidadService,
+                                      EstadisticasService estadisticasService, EventosReservaService eventosReservaService,
+                                      Mensajes mensajes,
+                                      @Value("${reservas.importacion.tamano-lote:500}") int tamanoLote,
+                                      @Value("${reservas.importacion.lotes-en-vuelo:4}") int lotesEnVuelo) {
+        this.repository = repository;
+        this.capacidadService = capacidadService;
+        this.estadisticasService = estadisticasService;
+        this.eventosReservaService = eventosReservaService;
+        this.mensajes = mensajes;
+        this.tamanoLote = Math.max(tamanoLote, 1);
+        this.lotesEnVuelo = Math.max(lotesEnVuelo, 1);
+    }
+
+    // Importa las reservas a nombre del usuario indicado, igual que al crear una reserva: el usuario y la cédula
+    // de cada reserva son siempre los del usuario autenticado, independientemente de lo que venga en la línea
+
+    public Flux<ResultadoImportacion> importar(Flux<Reserva> reservas, String usuario, String cedula, Locale locale) {
+        return reservas
+            .index((indice, reserva) -> new Linea(indice + 1, reserva))
+            .buffer(tamanoLote)
+            .flatMapSequential(lote -> importarLote(lote, usuario, cedula), lotesEnVuelo)
+            .flatMapIterable(lote -> lote)
+            .map(linea -> new ResultadoImportacion(linea.numero, linea.reserva.getId(), linea.estado,
+                mensajes.texto(linea.clave, locale)));
+    }
+
+    private Mono<List<Linea>> importarLote(List<Linea> lote, String usuario, String cedula) {
+        return Flux.fromIterable(lote)
+            .flatMapSequential(linea -> ocuparPlazas(linea, usuario, cedula))
+            .collectList()
+            .flatMap(lineas -> {
+                List<Linea> pendientes = lineas.stream().filter(Linea::pendiente).toList();
+                return repository.insertarSinOrden(pendientes.stream().map(linea -> linea.reserva).toList())
+                    .map(fallidas -> new Rechazo(fallidas, 409, "reservation.import.failed"))
+                    .onErrorResume(e -> {
+                        log.error("No se pudo insertar un lote de {} reservas importadas: {}", pendientes.size(), e.getMessage());
+                        Set<Integer> todas = IntStream.range(0, pendientes.size()).boxed().collect(Collectors.toSet());
+                        return Mono.just(new Rechazo(todas, 503, "reservation.import.batch.failed"));
+                    })
+                    .flatMap(rechazo -> resolverLote(pendientes, rechazo))
+                    .thenReturn(lineas);
+            });
+    }
+
+    // Valida la reserva y ocupa sus plazas; las líneas sin plazas o no válidas quedan resueltas antes de insertar
+
+    private Mono<Linea> ocuparPlazas(Linea linea, String usuario, String cedula) {
+        Reserva reserva = linea.reserva;
+        if (!reserva.esValida()) {
+            return Mono.just(linea.resolver(400, "reservation.invalid"));
+        }
+        reserva.setUsuario(usuario);
+        reserva.setCedula(cedula);
+        // El identificador siempre se genera al insertar, aunque la línea traiga uno
+        reserva.setId(null);
+        // La escritura masiva no inicializa la versión; se asigna la inicial de una reserva nueva
+        reserva.setVersion(0L);
+        return capacidadService.reservar(reserva.getFecha(), reserva.getNumeroPersonas())
+            .map(reservado -> reservado ? linea : linea.resolver(409, "reservation.slot.full"));
+    }
+
+    // Resuelve las líneas insertadas y las rechazadas por la base de datos, que devuelven sus plazas,
+    // y suma las insertadas a los resúmenes diarios y las notifica
+
+    private Mono<Void> resolverLote(List<Linea> pendientes, Rechazo rechazo) {
+        Set<Integer> fallidas = rechazo.lineas();
+        List<Reserva> insertadas = IntStream.range(0, pendientes.size())
+            .filter(i -> !fallidas.contains(i))
+            .mapToObj(i -> pendientes.get(i).reserva)
+            .toList();
+        return Flux.range(0, pendientes.size())
+            .flatMap(i -> {
+                Linea linea = pendientes.get(i);
+                if (!fallidas.contains(i)) {
+                    linea.resolver(201, "reservation.success");
+                    eventosReservaService.publicar(EventoReserva.de(EventoReserva.Tipo.CREADA, linea.reserva));
+                    return Mono.empty();
+                }
+                linea.resolver(rechazo.estado(), rechazo.clave());
+                return capacidadService.liberar(linea.reserva.getFecha(), linea.reserva.getNumeroPersonas());
+            })
+            .then(estadisticasService.registrarAltas(insertadas));
+    }
+
+    // Líneas de un lote que no se insertaron (posiciones entre las pendientes) con el estado y el mensaje de su resultado:
+    // 409 si la base de datos rechazó esas reservas, o 503 si falló la escritura del lote completo
+
+    private record Rechazo(Set<Integer> lineas, int estado, String clave) {
+    }
+
+    // Línea del flujo de importación con su número y el estado resuelto (0 mientras está pendiente de insertar)
+
+    private static final class Linea {
+        private final long numero;
+        private final Reserva reserva;
+        private int estado;
+        private String clave;
+
+        private Linea(long numero, Reserva reserva) {
+            this.numero = numero;
+            this.reserva = reserva;
+        }
+
+        private Linea resolver(int estado, String clave) {
+            this.estado = estado;
+            this.clave = clave;
+            return this;
+        }
+
+        private boolean pendiente() {
+            return estado == 0;
+        }
+    }
+}
@@ -2,41 +2,96 @@ package com.restaurante.proyecto.service;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+import javax.crypto.SecretKey;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.restaurante.proyecto.model.Usuario;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
 // Utilidad para la generación y validación de tokens JWT
 // Se establece la clave secreta y el tiempo de expiración del token en el archivo de propiedades de la aplicación
-/* Se generan métodos para generar un token JWT, validar un token JWT, extraer el nombre de usuario del token, 
+/* Se generan métodos para generar un token JWT, validar un token JWT, extraer el nombre de usuario del token,
         extraer la fecha de expiración del token, verificar si el token ha expirado y extraer una reclamación del token*/
+// La clave y el parser se construyen una sola vez y los tokens ya verificados se guardan en una caché acotada hasta su expiración
 
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secretKey;
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_CEDULA = "cedula";
+    public static final String CLAIM_VERSION = "ver";
+
+    private final long expirationTime;
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final Cache<String, Claims> tokensVerificados;
 
-    @Value("${jwt.expiration}")
-    private long expirationTime;
+    public JwtUtil(@Value("${jwt.secret}") String secretKey,
+                   @Value("${jwt.expiration}") long expirationTime,
+                   @Value("${jwt.cache.max-size:10000}") long cacheMaxSize) {
+        this.expirationTime = expirationTime;
+        this.key = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.tokensVerificados = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new ExpiracionDelToken())
+                .build();
+    }
+
+    // Se incluyen el rol, la cédula y la versión del token del usuario como reclamaciones firmadas
+    // para que el filtro de autenticación pueda construir la autenticación sin consultar la base de datos
 
-    public String generateToken(String username) {
+    public String generateToken(Usuario usuario) {
         return Jwts.builder()
-                .subject(username)
+                .subject(usuario.getUsername())
+                .claim(CLAIM_ROLE, usuario.getRole())
+                .claim(CLAIM_CEDULA, usuario.getCedula())
+                .claim(CLAIM_VERSION, usuario.getTokenVersion())
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expirationTime))
-                .signWith(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)))
+                .signWith(key)
                 .compact();
     }
 
+    // Verifica la firma y la expiración del token una sola vez y devuelve sus reclamaciones
+    // Si el token ya fue verificado y sigue vigente se devuelve desde la caché sin volver a calcular el HMAC
+    // Lanza JwtException si el token no es válido o ha expirado
+
+    public Claims verifyToken(String token) {
+        Claims cached = tokensVerificados.getIfPresent(token);
+        if (cached != null) {
+            if (!isExpired(cached)) {
+                return cached;
+            }
+            tokensVerificados.invalidate(token);
+        }
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        if (claims.getExpiration() != null) {
+            tokensVerificados.put(token, claims);
+        }
+        return claims;
+    }
+
     public boolean validateToken(String token, String username) {
-        String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        try {
+            Claims claims = verifyToken(token);
+            return username.equals(claims.getSubject()) && !isExpired(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
     }
 
     public String extractUsername(String token) {
@@ -51,12 +106,47 @@ public class JwtUtil {
         return extractExpiration(token).before(new Date());
     }
 
+    public String extractRole(Claims claims) {
+        return claims.get(CLAIM_ROLE, String.class);
+    }
+
+    public String extractCedula(Claims claims) {
+        return claims.get(CLAIM_CEDULA, String.class);
+    }
+
+    // Los tokens emitidos antes de existir la reclamación de versión se consideran de la versión 0
+
+    public long extractVersion(Claims claims) {
+        Number version = claims.get(CLAIM_VERSION, Number.class);
+        return version == null ? 0 : version.longValue();
+    }
+
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        Claims claims = Jwts.parser()
-                .verifyWith(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)))
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claimsResolver.apply(claims);
-    }
-}
\ No newline at end of file
+        return claimsResolver.apply(verifyToken(token));
+    }
+
+    private static boolean isExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().getTime() <= System.currentTimeMillis();
+    }
+
+    // Política de expiración de la caché: cada entrada vive exactamente hasta la fecha "exp" de su token
+
+    private static final class ExpiracionDelToken implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            long restante = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(restante, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.restaurante.proyecto.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.restaurante.proyecto.model.EventoReserva;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.repository.ReservaRepository;
+import com.restaurante.proyecto.repository.UsuarioRepository;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Servicio para eliminar las reservas de los clientes que ya no tienen usuario
+// Al eliminar un usuario sus reservas, activas y archivadas, se eliminan por lotes acotados; de cada lote se liberan las plazas
+// de las reservas eliminadas (una sola operación por turno), se restan de los resúmenes diarios y se publican los eventos de
+// eliminación, igual que al eliminar una reserva. Las plazas se descuentan de las mismas reservas que se eliminaron, por lo
+// que una reserva creada durante la eliminación se elimina y se descuenta en un lote posterior
+// Un proceso en segundo plano revisa periódicamente las cédulas de las reservas por lotes y elimina las reservas huérfanas:
+// las que quedaron de usuarios eliminados antes de esta funcionalidad o cuya eliminación en cascada falló
+// El proceso espera entre lote y lote para no competir con las peticiones y no se solapa consigo mismo
+
+@Service
+public class LimpiezaReservasService {
+
+    private static final Logger log = LoggerFactory.getLogger(LimpiezaReservasService.class);
+
+    private final ReservaRepository reservaRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final CapacidadService capacidadService;
+    private final EstadisticasService estadisticasService;
+    private final EventosReservaService eventosReservaService;
+    private final boolean habilitada;
+    private final int tamanoLote;
+    private final Duration pausa;
+    private final TareaPeriodica tarea;
+
+    public LimpiezaReservasService(ReservaRepository reservaRepository, UsuarioRepository usuarioRepository,
+                                   CapacidadService capacidadService, EstadisticasService estadisticasService,
+                                   EventosReservaService eventosReservaService,
+                                   @Value("${reservas.limpieza.habilitada:true}") boolean habilitada,
+                                   @Value("${reservas.limpieza.tamano-lote:100}") int tamanoLote,
+                                   @Value("${reservas.limpieza.pausa:1s}") Duration pausa,
+                                   @Value("${reservas.limpieza.retraso-inicial:5m}") Duration retrasoInicial,
+                                   @Value("${reservas.limpieza.intervalo:6h}") Duration intervalo) {
+        this.reservaRepository = reservaRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.capacidadService = capacidadService;
+        this.estadisticasService = estadisticasService;
+        this.eventosReservaService = eventosReservaService;
+        this.habilitada = habilitada;
+        this.tamanoLote = tamanoLote;
+        this.pausa = pausa;
+        this.tarea = new TareaPeriodica(retrasoInicial, intervalo,
+            () -> eliminarHuerfanas().doOnNext(total -> {
+                if (total > 0) {
+                    log.info("Eliminadas {} reservas huérfanas de clientes sin usuario", total);
+                }
+            }),
+            e -> log.error("No se pudo completar la revisión de reservas huérfanas: {}", e.getMessage()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        if (habilitada) {
+            tarea.iniciar();
+        }
+    }
+
+    @PreDestroy
+    public void alDetener() {
+        tarea.detener();
+    }
+
+    // Elimina todas las reservas del cliente con la cédula indicada, también las archivadas, y devuelve cuántas se descontaron
+    // El histórico va primero: la copia archivada de una reserva que sigue en la colección activa (archivado interrumpido)
+    // se elimina sin descontarla, porque se descuenta al eliminar la reserva activa
+
+    public Mono<Long> eliminarDeCliente(String cedula) {
+        return eliminarPorLotes(cedula, true)
+            .concatWith(eliminarPorLotes(cedula, false))
+            .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> eliminarPorLotes(String cedula, boolean historico) {
+        return eliminarLote(cedula, historico)
+            .expand(lote -> lote.eliminadas() == 0 ? Mono.empty() : eliminarLote(cedula, historico))
+            .reduce(0L, (total, lote) -> total + lote.descontadas());
+    }
+
+    private Mono<LoteCliente> eliminarLote(String cedula, boolean historico) {
+        return reservaRepository.eliminarLotePorCedula(cedula, historico, tamanoLote)
+            .collectList()
+            .flatMap(eliminadas -> sinCopiaActiva(eliminadas, historico)
+                .flatMap(descontables -> descontar(descontables)
+                    .thenReturn(new LoteCliente(eliminadas.size(), descontables.size()))));
+    }
+
+    private Mono<List<Reserva>> sinCopiaActiva(List<Reserva> eliminadas, boolean historico) {
+        if (!historico || eliminadas.isEmpty()) {
+            return Mono.just(eliminadas);
+        }
+        return reservaRepository.findAllById(eliminadas.stream().map(Reserva::getId).toList())
+            .map(Reserva::getId)
+            .collect(Collectors.toSet())
+            .map(activas -> eliminadas.stream().filter(reserva -> !activas.contains(reserva.getId())).toList());
+    }
+
+    // Recorre las cédulas con reservas por lotes y elimina las reservas de las que no tienen usuario
+    // Devuelve el número de reservas eliminadas
+
+    public Mono<Long> eliminarHuerfanas() {
+        return revisarLote(null)
+            .expand(lote -> lote.siguiente() == null
+                ? Mono.empty()
+                : Mono.delay(pausa).then(revisarLote(lote.siguiente())))
+            .reduce(0L, (total, lote) -> total + lote.eliminadas());
+    }
+
+    private Mono<Lote> revisarLote(String despues) {
+        return reservaRepository.cedulasConReservas(despues, tamanoLote)
+            .collectList()
+            .flatMap(cedulas -> {
+                if (cedulas.isEmpty()) {
+                    return Mono.just(new Lote(null, 0));
+                }
+                String ultima = cedulas.get(cedulas.size() - 1);
+                String siguiente = cedulas.size() < tamanoLote ? null : ultima;
+                return usuarioRepository.findByCedulaIn(cedulas)
+                    .map(Usuario::getCedula)
+                    .collect(Collectors.toSet())
+                    .flatMapMany(conUsuario -> Flux.fromIterable(huerfanas(cedulas, conUsuario)))
+                    .concatMap(this::eliminarDeCliente)
+                    .reduce(0L, Long::sum)
+                    .map(eliminadas -> new Lote(siguiente, eliminadas));
+            });
+    }
+
+    private static List<String> huerfanas(List<String> cedulas, Set<String> conUsuario) {
+        return cedulas.stream().filter(cedula -> !conUsuario.contains(cedula)).toList();
+    }
+
+    private Mono<Void> descontar(List<Reserva> reservas) {
+        if (reservas.isEmpty()) {
+            return Mono.empty();
+        }
+        reservas.forEach(reserva -> eventosReservaService.publicar(EventoReserva.de(EventoReserva.Tipo.ELIMINADA, reserva)));
+        Map<LocalDateTime, Integer> personasPorTurno = reservas.stream()
+            .filter(reserva -> reserva.getFecha() != null)
+            .collect(Collectors.groupingBy(reserva -> capacidadService.turno(reserva.getFecha()),
+                Collectors.summingInt(Reserva::getNumeroPersonas)));
+        return Flux.fromIterable(personasPorTurno.entrySet())
+            .concatMap(turno -> capacidadService.liberar(turno.getKey(), turno.getValue()))
+            .then(estadisticasService.registrarBajas(reservas));
+    }
+
+    // Resultado de revisar un lote de cédulas: cédula desde la que sigue el recorrido (nula al terminar) y reservas eliminadas
+
+    private record Lote(String siguiente, long eliminadas) {
+    }
+
+    // Resultado de eliminar un lote de reservas de un cliente: reservas eliminadas y, de ellas, las descontadas
+
+    private record LoteCliente(int eliminadas, int descontadas) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.restaurante.proyecto.service;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Service;
+
+import com.restaurante.proyecto.model.AuthResponse;
+
+import reactor.core.publisher.Mono;
+
+// Servicio para iniciar sesión y generar el token JWT de forma reactiva
+// La comprobación de la contraseña con BCrypt se ejecuta en el planificador acotado del administrador de autenticación, fuera del bucle de eventos de Netty
+// Se limita el número de inicios de sesión en curso; al superarse el límite se rechaza de inmediato para no retrasar el resto del tráfico
+
+@Service
+public class LoginService {
+
+    private final ReactiveAuthenticationManager reactiveAuthenticationManager;
+    private final UsuarioService usuarioService;
+    private final JwtUtil jwtUtil;
+    private final int maxEnCurso;
+    private final AtomicInteger enCurso = new AtomicInteger();
+
+    public LoginService(ReactiveAuthenticationManager reactiveAuthenticationManager, UsuarioService usuarioService, JwtUtil jwtUtil,
+                        @Value("${login.hash.max-concurrent:4}") int maxConcurrent,
+                        @Value("${login.hash.max-pending:64}") int maxPending) {
+        this.reactiveAuthenticationManager = reactiveAuthenticationManager;
+        this.usuarioService = usuarioService;
+        this.jwtUtil = jwtUtil;
+        this.maxEnCurso = maxConcurrent + maxPending;
+    }
+
+    // Autentica al usuario y genera su token; falla con LoginSaturadoException si hay demasiados inicios de sesión en curso
+    // o con AuthenticationException si las credenciales no son válidas
+
+    public Mono<AuthResponse> login(String username, String password) {
+        return Mono.defer(() -> {
+            if (enCurso.incrementAndGet() > maxEnCurso) {
+                enCurso.decrementAndGet();
+                return Mono.error(new LoginSaturadoException());
+            }
+            return reactiveAuthenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password))
+                    .then(usuarioService.buscarPorUsername(username))
+                    // El usuario puede haberse eliminado después de comprobar la contraseña: se responde como a unas credenciales incorrectas
+                    .switchIfEmpty(Mono.error(() -> new BadCredentialsException("Bad credentials")))
+                    .map(usuario -> new AuthResponse(jwtUtil.generateToken(usuario)))
+                    .onErrorMap(RejectedExecutionException.class, e -> new LoginSaturadoException())
+                    .doFinally(signal -> enCurso.decrementAndGet());
+        });
+    }
+
+    // Se lanza cuando se alcanza el límite de comprobaciones de contraseña simultáneas o en espera
+
+    public static class LoginSaturadoException extends RuntimeException {
+        public LoginSaturadoException() {
+            super("Demasiados inicios de sesión en curso");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.restaurante.proyecto.service;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Tarea en segundo plano que se ejecuta cada cierto intervalo, usada por los servicios de archivo y limpieza de reservas
+// Las ejecuciones no se solapan: si una dura más que el intervalo se omiten las que coinciden con ella
+// Un error en una ejecución se notifica y no detiene las siguientes
+
+final class TareaPeriodica {
+
+    private final Duration retrasoInicial;
+    private final Duration intervalo;
+    private final Supplier<Mono<?>> ejecucion;
+    private final Consumer<Throwable> alFallar;
+    private Disposable ejecuciones;
+
+    TareaPeriodica(Duration retrasoInicial, Duration intervalo, Supplier<Mono<?>> ejecucion, Consumer<Throwable> alFallar) {
+        this.retrasoInicial = retrasoInicial;
+        this.intervalo = intervalo;
+        this.ejecucion = ejecucion;
+        this.alFallar = alFallar;
+    }
+
+    void iniciar() {
+        ejecuciones = Flux.interval(retrasoInicial, intervalo)
+            .onBackpressureDrop()
+            .concatMap(n -> Mono.defer(ejecucion)
+                .onErrorResume(e -> {
+                    alFallar.accept(e);
+                    return Mono.empty();
+                }), 1)
+            .subscribe();
+    }
+
+    void detener() {
+        if (ejecuciones != null) {
+            ejecuciones.dispose();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.restaurante.proyecto.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.repository.UsuarioRepository;
+
+import reactor.core.publisher.Mono;
+
+// Servicio para invalidar los tokens JWT de un usuario cuando cambian su rol o sus datos, o cuando se elimina
+// La versión vigente de los tokens de cada usuario es la guardada en la base de datos (Usuario.tokenVersion), por lo que
+// la revocación sobrevive a los reinicios y la ven todas las instancias de la aplicación
+// Para no consultar la base de datos en cada petición la versión se guarda en una caché con una vigencia corta:
+// las escrituras de esta instancia la invalidan al momento y las de otras instancias se aplican al expirar la entrada
+// Un usuario que no existe no tiene versión vigente y todos sus tokens se consideran revocados; una entrada descartada
+// de la caché se vuelve a leer, nunca se interpreta como no revocada
+
+@Service
+public class TokenRevocationService {
+
+    // Versión guardada en la caché para los usuarios que no existen: ningún token la alcanza
+    private static final long SIN_USUARIO = Long.MAX_VALUE;
+
+    private final UsuarioRepository usuarioRepository;
+    private final AsyncCache<String, Long> versiones;
+
+    public TokenRevocationService(UsuarioRepository usuarioRepository,
+                                  @Value("${jwt.revocation.cache.max-size:100000}") long maxSize,
+                                  @Value("${jwt.revocation.cache.ttl:30s}") Duration ttl) {
+        this.usuarioRepository = usuarioRepository;
+        this.versiones = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .buildAsync();
+    }
+
+    // Olvida la versión en caché del usuario tras una escritura para que la siguiente petición lea la versión guardada
+
+    public void registrarCambio(String username) {
+        versiones.synchronous().invalidate(username);
+    }
+
+    // Un token está revocado si su versión es anterior a la vigente del usuario o si el usuario ya no existe
+    // Se ignora la cancelación de un suscriptor para no cancelar la consulta compartida con los demás
+
+    public Mono<Boolean> estaRevocado(String username, long versionDelToken) {
+        return Mono.fromFuture(() -> versiones.get(username, (k, executor) -> usuarioRepository.findByUsername(k)
+                        .map(Usuario::getTokenVersion)
+                        .defaultIfEmpty(SIN_USUARIO)
+                        .toFuture()), true)
+                .map(vigente -> versionDelToken < vigente);
+    }
+}
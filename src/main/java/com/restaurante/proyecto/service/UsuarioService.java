@@ -1,5 +1,13 @@
 package com.restaurante.proyecto.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -7,6 +15,9 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.restaurante.proyecto.model.Usuario;
 import com.restaurante.proyecto.repository.UsuarioRepository;
 
@@ -14,21 +25,33 @@ import reactor.core.publisher.Mono;
 
 // Servicio para autenticar a los usuarios con Spring Security y JWT (JSON Web Token)
 // Se implementa la interfaz ReactiveUserDetailsService para buscar usuarios por su nombre de usuario y autenticarlos con Spring Security
+// y ReactiveUserDetailsPasswordService para volver a codificar las contraseñas cuando cambia el coste de BCrypt
+// Los usuarios se guardan en una caché acotada con expiración por nombre de usuario y por cédula
+// Las búsquedas simultáneas de una misma clave comparten una sola consulta y las escrituras invalidan las entradas afectadas
 
 @Service
-public class UsuarioService implements ReactiveUserDetailsService {
+public class UsuarioService implements ReactiveUserDetailsService, ReactiveUserDetailsPasswordService {
 
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TokenRevocationService tokenRevocationService;
+    private final AsyncCache<String, Usuario> porUsername;
+    private final AsyncCache<String, Usuario> porCedula;
 
-    public UsuarioService(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder) {
+    public UsuarioService(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder,
+                          TokenRevocationService tokenRevocationService,
+                          @Value("${usuarios.cache.max-size:10000}") long cacheMaxSize,
+                          @Value("${usuarios.cache.ttl:5m}") Duration cacheTtl) {
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
+        this.tokenRevocationService = tokenRevocationService;
+        this.porUsername = crearCache(cacheMaxSize, cacheTtl);
+        this.porCedula = crearCache(cacheMaxSize, cacheTtl);
     }
 
     @Override
     public Mono<UserDetails> findByUsername(String username) {
-        return usuarioRepository.findByUsername(username)
+        return buscarPorUsername(username)
                 .switchIfEmpty(Mono.error(new UsernameNotFoundException("Usuario no encontrado")))
                 .map(usuario -> User.builder()
                         .username(usuario.getUsername())
@@ -37,9 +60,132 @@ public class UsuarioService implements ReactiveUserDetailsService {
                         .build());
     }
 
+    // Guarda el nuevo hash de la contraseña cuando el administrador de autenticación detecta que se codificó con un coste anterior
+
+    @Override
+    public Mono<UserDetails> updatePassword(UserDetails user, String newPassword) {
+        return usuarioRepository.findByUsername(user.getUsername())
+                .flatMap(usuario -> {
+                    usuario.setPassword(newPassword);
+                    usuario.setModificado(Instant.now());
+                    return usuarioRepository.save(usuario);
+                })
+                .doOnNext(this::invalidar)
+                .thenReturn(User.withUserDetails(user).password(newPassword).build());
+    }
+
+    public Mono<Usuario> buscarPorUsername(String username) {
+        return desdeCache(porUsername, username, usuarioRepository::findByUsername);
+    }
+
+    public Mono<Usuario> buscarPorCedula(String cedula) {
+        return desdeCache(porCedula, cedula, usuarioRepository::findByCedula);
+    }
+
     public Mono<Usuario> registrarUsuario(Usuario usuario) {
         usuario.setPassword(passwordEncoder.encode(usuario.getPassword()));
         usuario.setRole("ROLE_" + usuario.getRole().toUpperCase());
-        return usuarioRepository.save(usuario);
+        // Un usuario nuevo con el nombre de uno eliminado no debe aceptar los tokens del usuario anterior: la versión inicial
+        // es el instante del registro en milisegundos, mayor que cualquier versión alcanzada por un usuario registrado antes
+        Instant ahora = Instant.now();
+        usuario.setTokenVersion(ahora.toEpochMilli());
+        usuario.setModificado(ahora);
+        return usuarioRepository.save(usuario)
+                .doOnNext(guardado -> {
+                    invalidar(guardado);
+                    tokenRevocationService.registrarCambio(guardado.getUsername());
+                });
+    }
+
+    // Actualiza el nombre de usuario, la contraseña o el rol del usuario con la cédula indicada
+    // Se lee directamente de la base de datos para no modificar la instancia compartida de la caché
+    // Se invalidan los tokens emitidos antes del cambio para que el nuevo rol se aplique de inmediato
+
+    public Mono<Usuario> actualizarUsuario(String cedula, Usuario usuarioActualizado) {
+        return usuarioRepository.findByCedula(cedula)
+                .flatMap(usuario -> {
+                    String usernameAnterior = usuario.getUsername();
+                    if (usuarioActualizado.getUsername() != null && !usuarioActualizado.getUsername().isEmpty()) {
+                        usuario.setUsername(usuarioActualizado.getUsername());
+                    }
+                    if (usuarioActualizado.getPassword() != null && !usuarioActualizado.getPassword().isEmpty()) {
+                        usuario.setPassword(passwordEncoder.encode(usuarioActualizado.getPassword()));
+                    }
+                    if (usuarioActualizado.getRole() != null) {
+                        usuario.setRole(usuarioActualizado.getRole());
+                    }
+                    usuario.setTokenVersion(usuario.getTokenVersion() + 1);
+                    usuario.setModificado(Instant.now());
+                    return usuarioRepository.save(usuario)
+                            .doOnNext(guardado -> {
+                                porUsername.synchronous().invalidate(usernameAnterior);
+                                invalidar(guardado);
+                                tokenRevocationService.registrarCambio(usernameAnterior);
+                                tokenRevocationService.registrarCambio(guardado.getUsername());
+                            });
+                });
+    }
+
+    // Elimina el usuario con la cédula indicada y devuelve el usuario eliminado, o vacío si no existe
+
+    public Mono<Usuario> eliminarUsuario(String cedula) {
+        return usuarioRepository.findByCedula(cedula)
+                .flatMap(usuario -> usuarioRepository.delete(usuario)
+                        .then(Mono.fromRunnable(() -> {
+                            invalidar(usuario);
+                            tokenRevocationService.registrarCambio(usuario.getUsername());
+                        }))
+                        .thenReturn(usuario));
+    }
+
+    // ETag débil del usuario a partir de su versión de token y su fecha de modificación, que cambian con cada escritura
+    // Los usuarios guardados antes de registrar la fecha de modificación dependen solo de la versión de token
+
+    public static String etag(Usuario usuario) {
+        return "W/\"" + usuario.getTokenVersion() + "-"
+                + (usuario.getModificado() == null ? 0 : usuario.getModificado().toEpochMilli()) + "\"";
+    }
+
+    // Contadores de aciertos, fallos y desalojos de las cachés de usuarios para dimensionarlas
+
+    public Map<String, Long> estadisticasCache() {
+        Map<String, Long> estadisticas = new LinkedHashMap<>();
+        agregarEstadisticas(estadisticas, "username", porUsername);
+        agregarEstadisticas(estadisticas, "cedula", porCedula);
+        return estadisticas;
+    }
+
+    private void invalidar(Usuario usuario) {
+        if (usuario.getUsername() != null) {
+            porUsername.synchronous().invalidate(usuario.getUsername());
+        }
+        if (usuario.getCedula() != null) {
+            porCedula.synchronous().invalidate(usuario.getCedula());
+        }
+    }
+
+    // Las consultas que no encuentran el usuario completan con null y Caffeine no guarda la entrada
+    // Se ignora la cancelación de un suscriptor para no cancelar la consulta compartida con los demás
+
+    private static Mono<Usuario> desdeCache(AsyncCache<String, Usuario> cache, String clave,
+                                            Function<String, Mono<Usuario>> consulta) {
+        return Mono.fromFuture(() -> cache.get(clave, (k, executor) -> consulta.apply(k).toFuture()), true);
+    }
+
+    private static AsyncCache<String, Usuario> crearCache(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    private static void agregarEstadisticas(Map<String, Long> estadisticas, String nombre,
+                                            AsyncCache<String, Usuario> cache) {
+        CacheStats stats = cache.synchronous().stats();
+        estadisticas.put(nombre + ".hits", stats.hitCount());
+        estadisticas.put(nombre + ".misses", stats.missCount());
+        estadisticas.put(nombre + ".evictions", stats.evictionCount());
+        estadisticas.put(nombre + ".size", cache.synchronous().estimatedSize());
     }
-}
\ No newline at end of file
+}
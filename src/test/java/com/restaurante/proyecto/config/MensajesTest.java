@@ -0,0 +1,55 @@
+package com.restaurante.proyecto.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.proyecto.model.Mensaje;
+
+// Pruebas de los mensajes localizados precalculados y de su codificación JSON
+
+class MensajesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Mensajes mensajes = new Mensajes(new ApplicationConfig().messageSource(), objectMapper, false);
+
+    @Test
+    void testMensajePorIdiomaConIdiomaPorDefecto() {
+        assertThat(mensajes.texto("reservation.success", Locale.ENGLISH)).isEqualTo("Reservation created successfully.");
+        assertThat(mensajes.texto("reservation.success", Locale.forLanguageTag("es-CO")))
+            .isEqualTo(mensajes.texto("reservation.success", Locale.forLanguageTag("es")))
+            .isNotEqualTo(mensajes.texto("reservation.success", Locale.ENGLISH));
+        assertThat(mensajes.get("reservation.success", Locale.GERMAN))
+            .isSameAs(mensajes.get("reservation.success", Locale.ENGLISH));
+    }
+
+    @Test
+    void testMismoMensajeEnCadaPeticion() {
+        assertThat(mensajes.get("user.not.found", Locale.FRENCH)).isSameAs(mensajes.get("user.not.found", Locale.FRENCH));
+        assertThatThrownBy(() -> mensajes.get("no.existe", Locale.ENGLISH)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testJsonPrecalculadoIgualAlDeJackson() throws Exception {
+        for (String idioma : new String[] {"en", "es", "fr"}) {
+            Mensaje mensaje = mensajes.get("reservation.version.conflict", Locale.forLanguageTag(idioma));
+            DataBuffer buffer = new MensajeEncoder().encodeValue(mensaje, DefaultDataBufferFactory.sharedInstance,
+                ResolvableType.forClass(Mensaje.class), MediaType.APPLICATION_JSON, null);
+
+            JsonNode json = objectMapper.readTree(buffer.toString(StandardCharsets.UTF_8));
+            assertThat(json.get("codigo").asText()).isEqualTo("reservation.version.conflict");
+            assertThat(json.get("mensaje").asText()).isEqualTo(mensaje.getMensaje());
+            assertThat(json.size()).isEqualTo(2);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.restaurante.proyecto.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.event.CommandStartedEvent;
+
+// Pruebas unitarias para la forma de los comandos de MongoDB que se registran como lentos
+// Se valida que se conservan los campos y operadores y que no aparece ningún valor de la consulta,
+// y que sin activar la forma del filtro no se lee el documento de cada comando
+
+class MongoComandosListenerTest {
+
+    @Test
+    void testFormaDeUnFindSinValores() {
+        BsonDocument comando = BsonDocument.parse("""
+            {find: "reservas", filter: {cedula: "1234567890", fecha: {$gte: {$date: "2025-05-10T00:00:00Z"}}},
+             sort: {fecha: 1}, limit: 50}""");
+
+        String forma = MongoComandosListener.forma("find", comando);
+
+        assertThat(forma).isEqualTo("reservas {cedula: ?, fecha: {$gte: ?}} sort {fecha: ?}");
+        assertThat(forma).doesNotContain("1234567890");
+    }
+
+    @Test
+    void testFormaDeUnaActualizacionYDeUnaAgregacion() {
+        BsonDocument actualizacion = BsonDocument.parse("""
+            {update: "reservas", updates: [{q: {_id: "01J", usuario: "ana", $or: [{version: 1}, {version: {$exists: false}}]},
+             u: {$set: {nombreCliente: "Ana"}}}]}""");
+        BsonDocument agregacion = BsonDocument.parse("""
+            {aggregate: "reservas", pipeline: [{$match: {cedula: {$in: ["1", "2", "3"]}}}, {$group: {_id: "$cedula"}}]}""");
+
+        assertThat(MongoComandosListener.forma("update", actualizacion))
+            .isEqualTo("reservas {_id: ?, usuario: ?, $or: [{version: ?}, {version: {$exists: ?}}]}");
+        assertThat(MongoComandosListener.forma("aggregate", agregacion))
+            .isEqualTo("reservas [{$match: {cedula: {$in: [?]}}}, {$group: {_id: ?}}]");
+    }
+
+    @Test
+    void testSinFormaDelFiltroNoSeLeeElComando() {
+        MongoComandosListener listener = new MongoComandosListener(Duration.ofMillis(100), false);
+        CommandStartedEvent evento = mock(CommandStartedEvent.class);
+
+        listener.commandStarted(evento);
+
+        verify(evento, never()).getCommand();
+    }
+}
@@ -0,0 +1,32 @@
+package com.restaurante.proyecto.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+
+// Pruebas unitarias para la interpretación de las fechas en texto de la migración de reservas
+
+class ReservaFechaMigrationTest {
+
+    private final ReservaFechaMigration migracion = new ReservaFechaMigration(null, true, 500, LocalTime.of(20, 0));
+
+    @Test
+    void testFormatosAceptados() {
+        assertThat(migracion.interpretar("2025-05-10T21:30:00")).isEqualTo(LocalDateTime.of(2025, 5, 10, 21, 30));
+        assertThat(migracion.interpretar("2025-05-10 21:30")).isEqualTo(LocalDateTime.of(2025, 5, 10, 21, 30));
+        assertThat(migracion.interpretar("10/05/2025 21:30")).isEqualTo(LocalDateTime.of(2025, 5, 10, 21, 30));
+        // Las fechas sin hora se completan con la hora por defecto
+        assertThat(migracion.interpretar(" 2025-05-10 ")).isEqualTo(LocalDateTime.of(2025, 5, 10, 20, 0));
+        assertThat(migracion.interpretar("10/05/2025")).isEqualTo(LocalDateTime.of(2025, 5, 10, 20, 0));
+    }
+
+    @Test
+    void testFechasNoInterpretables() {
+        assertThat(migracion.interpretar("mañana por la noche")).isNull();
+        assertThat(migracion.interpretar("2025-13-40")).isNull();
+        assertThat(migracion.interpretar(null)).isNull();
+    }
+}
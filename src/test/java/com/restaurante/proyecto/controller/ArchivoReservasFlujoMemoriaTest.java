@@ -0,0 +1,128 @@
+package com.restaurante.proyecto.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.restaurante.proyecto.model.AuthResponse;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.repository.ReservaRepository;
+import com.restaurante.proyecto.service.ArchivoReservasService;
+
+// Prueba de extremo a extremo del archivo de reservas antiguas con el perfil "memoria"
+// Se valida que las reservas anteriores al horizonte salen de la colección activa sin perderse: los admins las siguen
+// consultando con "historico=true", las estadísticas las siguen contando y una segunda ejecución no archiva nada más
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"reservas.archivo.habilitado=false", "reservas.archivo.tamano-lote=1", "reservas.archivo.pausa=10ms"})
+@AutoConfigureWebTestClient
+@ActiveProfiles("memoria")
+class ArchivoReservasFlujoMemoriaTest {
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> LISTA = new ParameterizedTypeReference<>() { };
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private ArchivoReservasService archivoReservasService;
+
+    @Test
+    void testArchivarMueveLasReservasAntiguasAlHistorico() {
+        String admin = registrarEIniciarSesion("7770001", "archivera", "admin");
+        String cliente = registrarEIniciarSesion("7770002", "veterano", "user");
+        crear(cliente, LocalDateTime.of(2020, 4, 1, 20, 0), 2);
+        crear(cliente, LocalDateTime.of(2020, 4, 1, 21, 0), 3);
+        crear(cliente, LocalDateTime.of(2034, 4, 1, 20, 0), 4);
+
+        assertThat(archivoReservasService.archivar().block()).isEqualTo(2);
+        assertThat(reservaRepository.findByCedula("7770002").count().block()).isEqualTo(1);
+
+        // El cliente solo ve sus reservas activas y no puede pedir el histórico
+        assertThat(listar(cliente, "/reservas/7770002")).hasSize(1);
+        webTestClient.get().uri("/reservas/7770002?historico=true")
+            .header(HttpHeaders.AUTHORIZATION, cliente)
+            .exchange()
+            .expectStatus().isForbidden();
+
+        // Los admins reciben las activas y las archivadas ordenadas por fecha
+        List<Map<String, Object>> todas = listar(admin, "/reservas/7770002?historico=true");
+        assertThat(todas).extracting(reserva -> reserva.get("numeroPersonas")).containsExactly(2, 3, 4);
+        assertThat(listar(admin, "/reservas?desde=2020-04-01&hasta=2020-04-01&historico=true")).hasSize(2);
+        assertThat(listar(admin, "/reservas?desde=2020-04-01&hasta=2020-04-01")).isEmpty();
+
+        // Las estadísticas siguen contando las reservas archivadas
+        List<Map<String, Object>> dias = listar(admin, "/reservas/estadisticas/dias?desde=2020-04-01&hasta=2020-04-01");
+        assertThat(dias).hasSize(1);
+        assertThat(dias.get(0)).containsEntry("reservas", 2).containsEntry("personas", 5);
+
+        // Una segunda ejecución ya no encuentra nada que archivar
+        assertThat(archivoReservasService.archivar().block()).isZero();
+        assertThat(listar(admin, "/reservas/7770002?historico=true")).hasSize(3);
+    }
+
+    @Test
+    void testEliminarUnUsuarioEliminaSusReservasArchivadas() {
+        String admin = registrarEIniciarSesion("7770101", "custodia", "admin");
+        String cliente = registrarEIniciarSesion("7770102", "pasajero", "user");
+        crear(cliente, LocalDateTime.of(2020, 5, 1, 20, 0), 2);
+        crear(cliente, LocalDateTime.of(2034, 5, 1, 20, 0), 2);
+        archivoReservasService.archivar().block();
+
+        webTestClient.delete().uri("/usuarios/7770102")
+            .header(HttpHeaders.AUTHORIZATION, admin)
+            .exchange()
+            .expectStatus().isOk();
+
+        assertThat(reservaRepository.buscarConHistorico("7770102", Range.unbounded(), null, Limit.unlimited()).count().block()).isZero();
+    }
+
+    private List<Map<String, Object>> listar(String bearer, String uri) {
+        return webTestClient.get().uri(uri)
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(LISTA)
+            .returnResult().getResponseBody();
+    }
+
+    private void crear(String bearer, LocalDateTime fecha, int personas) {
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Cliente", fecha, personas))
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    private String registrarEIniciarSesion(String cedula, String username, String rol) {
+        webTestClient.post().uri("/usuarios/registro")
+            .bodyValue(new Usuario(cedula, username, "secreto", rol))
+            .exchange()
+            .expectStatus().isOk();
+
+        AuthResponse login = webTestClient.post().uri("/usuarios/login")
+            .headers(h -> h.setBasicAuth(username, "secreto"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(AuthResponse.class)
+            .returnResult().getResponseBody();
+        return "Bearer " + login.getToken();
+    }
+}
@@ -0,0 +1,129 @@
+package com.restaurante.proyecto.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.restaurante.proyecto.model.AuthResponse;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+
+// Prueba de extremo a extremo de las estadísticas de ocupación con el perfil "memoria", sin MongoDB
+// Se crean, modifican y eliminan reservas y se comprueba que los resúmenes diarios, los turnos y los clientes cuadran,
+// y que reconstruir los resúmenes a partir de las reservas da el mismo resultado que los incrementos
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@ActiveProfiles("memoria")
+class EstadisticasFlujoMemoriaTest {
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> LISTA = new ParameterizedTypeReference<>() { };
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void testResumenesIncrementalesYAgregaciones() {
+        String admin = registrarEIniciarSesion("7770001", "gerente", "admin");
+        String cliente = registrarEIniciarSesion("7770002", "comensal", "user");
+
+        crear(cliente, LocalDateTime.of(2031, 3, 1, 20, 10), 2);
+        crear(cliente, LocalDateTime.of(2031, 3, 1, 20, 20), 4);
+        crear(admin, LocalDateTime.of(2031, 3, 2, 13, 0), 3);
+
+        // Se mueve la reserva del admin al día 1 con más personas y luego se elimina una del cliente
+        List<Map<String, Object>> delAdmin = listar(admin, "/reservas/7770001");
+        Reserva cambios = new Reserva(null, null, "Gerente", LocalDateTime.of(2031, 3, 1, 21, 0), 5);
+        webTestClient.put().uri("/reservas/" + delAdmin.get(0).get("id"))
+            .header(HttpHeaders.AUTHORIZATION, admin)
+            .bodyValue(cambios)
+            .exchange()
+            .expectStatus().isOk();
+        List<Map<String, Object>> delCliente = listar(cliente, "/reservas/7770002");
+        webTestClient.delete().uri("/reservas/" + delCliente.get(0).get("id"))
+            .header(HttpHeaders.AUTHORIZATION, cliente)
+            .exchange()
+            .expectStatus().isOk();
+
+        String rango = "?desde=2031-03-01&hasta=2031-03-02";
+        List<Map<String, Object>> dias = listar(admin, "/reservas/estadisticas/dias" + rango);
+        assertThat(dias).hasSize(2);
+        assertThat(dias.get(0)).containsEntry("dia", "2031-03-01").containsEntry("reservas", 2).containsEntry("personas", 9);
+        assertThat(dias.get(1)).containsEntry("dia", "2031-03-02").containsEntry("reservas", 0).containsEntry("personas", 0);
+
+        List<Map<String, Object>> turnos = listar(admin, "/reservas/estadisticas/turnos" + rango);
+        assertThat(turnos).extracting(turno -> turno.get("turno")).containsExactly("2031-03-01T20:00:00", "2031-03-01T21:00:00");
+        assertThat(turnos).extracting(turno -> turno.get("personas")).containsExactly(4, 5);
+
+        List<Map<String, Object>> clientes = listar(admin, "/reservas/estadisticas/clientes" + rango);
+        assertThat(clientes).extracting(c -> c.get("cedula")).containsExactly("7770001", "7770002");
+
+        // La reconstrucción solo deja los días con reservas y con los mismos totales
+        webTestClient.post().uri("/reservas/estadisticas/dias/reconstruccion" + rango)
+            .header(HttpHeaders.AUTHORIZATION, admin)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(Integer.class).isEqualTo(1);
+        assertThat(listar(admin, "/reservas/estadisticas/dias" + rango)).containsExactly(dias.get(0));
+    }
+
+    @Test
+    void testRangoObligatorioYSoloAdmins() {
+        String admin = registrarEIniciarSesion("7770003", "auditor", "admin");
+        String cliente = registrarEIniciarSesion("7770004", "visitante", "user");
+
+        webTestClient.get().uri("/reservas/estadisticas/dias?desde=2031-03-02&hasta=2031-03-01")
+            .header(HttpHeaders.AUTHORIZATION, admin)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody().jsonPath("$.codigo").isEqualTo("reservation.stats.range.invalid");
+
+        webTestClient.get().uri("/reservas/estadisticas/dias?desde=2031-03-01&hasta=2031-03-02")
+            .header(HttpHeaders.AUTHORIZATION, cliente)
+            .exchange()
+            .expectStatus().isForbidden();
+    }
+
+    private void crear(String bearer, LocalDateTime fecha, int personas) {
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Cliente", fecha, personas))
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    private List<Map<String, Object>> listar(String bearer, String uri) {
+        return webTestClient.get().uri(uri)
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(LISTA)
+            .returnResult().getResponseBody();
+    }
+
+    private String registrarEIniciarSesion(String cedula, String username, String rol) {
+        webTestClient.post().uri("/usuarios/registro")
+            .bodyValue(new Usuario(cedula, username, "secreto", rol))
+            .exchange()
+            .expectStatus().isOk();
+
+        AuthResponse login = webTestClient.post().uri("/usuarios/login")
+            .headers(h -> h.setBasicAuth(username, "secreto"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(AuthResponse.class)
+            .returnResult().getResponseBody();
+        return "Bearer " + login.getToken();
+    }
+}
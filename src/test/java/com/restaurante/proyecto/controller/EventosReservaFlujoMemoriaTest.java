@@ -0,0 +1,106 @@
+package com.restaurante.proyecto.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.restaurante.proyecto.model.AuthResponse;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+
+import reactor.core.publisher.Flux;
+
+// Prueba de extremo a extremo del flujo de eventos de reservas con el perfil "memoria", sin MongoDB
+// Se abre el flujo de Server-Sent Events limitado a un día, se crea, modifica y elimina una reserva de ese día
+// y otra de un día distinto, y se comprueba que solo llegan los eventos del día pedido y en orden
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "reservas.eventos.latido=100ms")
+@AutoConfigureWebTestClient
+@ActiveProfiles("memoria")
+class EventosReservaFlujoMemoriaTest {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<Map<String, Object>>> EVENTO = new ParameterizedTypeReference<>() { };
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void testEventosDelDiaPedido() {
+        String bearer = registrarEIniciarSesion("8880001", "oyente");
+
+        // El primer latido confirma la respuesta, así que al volver la suscripción ya está activa
+        Flux<ServerSentEvent<Map<String, Object>>> flujo = webTestClient.get().uri("/reservas/eventos?desde=2032-04-01&hasta=2032-04-01")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(EVENTO)
+            .getResponseBody();
+
+        crear(bearer, LocalDateTime.of(2032, 4, 2, 20, 0), 6);
+        crear(bearer, LocalDateTime.of(2032, 4, 1, 20, 0), 2);
+        String id = (String) webTestClient.get().uri("/reservas/8880001")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<Map<String, Object>>>() { })
+            .returnResult().getResponseBody()
+            .stream().filter(reserva -> reserva.get("numeroPersonas").equals(2)).findFirst().orElseThrow().get("id");
+        webTestClient.put().uri("/reservas/" + id)
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Cliente", LocalDateTime.of(2032, 4, 1, 21, 0), 3))
+            .exchange()
+            .expectStatus().isOk();
+        webTestClient.delete().uri("/reservas/" + id)
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isOk();
+
+        List<ServerSentEvent<Map<String, Object>>> eventos = flujo
+            .filter(evento -> evento.event() != null)
+            .take(3)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertThat(eventos).extracting(ServerSentEvent::event).containsExactly("creada", "actualizada", "eliminada");
+        assertThat(eventos).extracting(evento -> evento.data().get("id")).containsOnly(id);
+        assertThat(eventos).extracting(evento -> evento.data().get("numeroPersonas")).containsExactly(2, 3, 3);
+    }
+
+    private void crear(String bearer, LocalDateTime fecha, int personas) {
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Cliente", fecha, personas))
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    private String registrarEIniciarSesion(String cedula, String username) {
+        webTestClient.post().uri("/usuarios/registro")
+            .bodyValue(new Usuario(cedula, username, "secreto", "user"))
+            .exchange()
+            .expectStatus().isOk();
+
+        AuthResponse login = webTestClient.post().uri("/usuarios/login")
+            .headers(h -> h.setBasicAuth(username, "secreto"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(AuthResponse.class)
+            .returnResult().getResponseBody();
+        return "Bearer " + login.getToken();
+    }
+}
@@ -0,0 +1,115 @@
+package com.restaurante.proyecto.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.restaurante.proyecto.config.FormatosBinarios;
+import com.restaurante.proyecto.model.AuthResponse;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+
+// Prueba de extremo a extremo de los formatos binarios con el perfil "memoria", sin MongoDB
+// Se piden los listados de reservas como CBOR y Smile y el streaming como secuencia CBOR y flujo Smile,
+// y se comprueba que contienen los mismos datos que el JSON con menos bytes
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@ActiveProfiles("memoria")
+class FormatosBinariosFlujoMemoriaTest {
+
+    private static final TypeReference<List<Map<String, Object>>> LISTA = new TypeReference<>() { };
+    private static final TypeReference<Map<String, Object>> OBJETO = new TypeReference<>() { };
+
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void testListadosYStreamingEnCborYSmile() throws IOException {
+        String bearer = registrarEIniciarSesion("6660001", "quiosco");
+        for (int i = 0; i < 3; i++) {
+            webTestClient.post().uri("/reservas")
+                .header(HttpHeaders.AUTHORIZATION, bearer)
+                .bodyValue(new Reserva(null, null, "Quiosco " + i, LocalDateTime.of(2033, 1, 10, 20, 0).plusDays(i), 2 + i))
+                .exchange()
+                .expectStatus().isOk();
+        }
+
+        byte[] json = pedir(bearer, "/reservas/6660001", MediaType.APPLICATION_JSON_VALUE);
+        List<Map<String, Object>> reservas = new ObjectMapper().readValue(json, LISTA);
+        assertThat(reservas).hasSize(3);
+
+        // Los clientes que aceptan cualquier tipo siguen recibiendo JSON
+        webTestClient.get().uri("/reservas/6660001")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .accept(MediaType.ALL)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON);
+
+        byte[] enCbor = pedir(bearer, "/reservas/6660001", FormatosBinarios.CBOR);
+        assertThat(cbor.readValue(enCbor, LISTA)).isEqualTo(reservas);
+        assertThat(enCbor.length).isLessThan(json.length);
+        assertThat(smile.readValue(pedir(bearer, "/reservas/6660001", FormatosBinarios.SMILE), LISTA)).isEqualTo(reservas);
+
+        // En streaming cada reserva es un objeto completo, sin array que lo envuelva
+        List<Map<String, Object>> secuencia = leerSecuencia(cbor, pedir(bearer, "/reservas?desde=2033-01-01&hasta=2033-01-31",
+            FormatosBinarios.CBOR_SECUENCIA));
+        assertThat(secuencia).isEqualTo(reservas);
+        List<Map<String, Object>> flujo = leerSecuencia(smile, pedir(bearer, "/reservas?desde=2033-01-01&hasta=2033-01-31",
+            FormatosBinarios.SMILE_FLUJO));
+        assertThat(flujo).isEqualTo(reservas);
+    }
+
+    private List<Map<String, Object>> leerSecuencia(ObjectMapper mapper, byte[] contenido) throws IOException {
+        try (MappingIterator<Map<String, Object>> iterador = mapper.readerFor(OBJETO).readValues(contenido)) {
+            return iterador.readAll();
+        }
+    }
+
+    private byte[] pedir(String bearer, String uri, String tipo) {
+        return webTestClient.get().uri(uri)
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .accept(MediaType.valueOf(tipo))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(tipo)
+            .expectBody(byte[].class)
+            .returnResult().getResponseBody();
+    }
+
+    private String registrarEIniciarSesion(String cedula, String username) {
+        webTestClient.post().uri("/usuarios/registro")
+            .bodyValue(new Usuario(cedula, username, "secreto", "admin"))
+            .exchange()
+            .expectStatus().isOk();
+
+        AuthResponse login = webTestClient.post().uri("/usuarios/login")
+            .headers(h -> h.setBasicAuth(username, "secreto"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(AuthResponse.class)
+            .returnResult().getResponseBody();
+        return "Bearer " + login.getToken();
+    }
+}
@@ -0,0 +1,119 @@
+package com.restaurante.proyecto.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.restaurante.proyecto.model.AuthResponse;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.repository.ReservaRepository;
+import com.restaurante.proyecto.repository.UsuarioRepository;
+import com.restaurante.proyecto.service.LimpiezaReservasService;
+
+// Prueba de extremo a extremo de la eliminación de las reservas de los clientes sin usuario con el perfil "memoria"
+// Se valida que eliminar un usuario elimina sus reservas y las resta de las estadísticas, y que la revisión por lotes
+// elimina las reservas huérfanas sin tocar las de los clientes que siguen teniendo usuario
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"reservas.limpieza.tamano-lote=1", "reservas.limpieza.pausa=10ms"})
+@AutoConfigureWebTestClient
+@ActiveProfiles("memoria")
+class LimpiezaReservasFlujoMemoriaTest {
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> LISTA = new ParameterizedTypeReference<>() { };
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private LimpiezaReservasService limpiezaReservasService;
+
+    @Test
+    void testEliminarUnUsuarioEliminaSusReservas() {
+        String admin = registrarEIniciarSesion("8880001", "encargado", "admin");
+        String cliente = registrarEIniciarSesion("8880002", "habitual", "user");
+        crear(cliente, LocalDateTime.of(2034, 2, 1, 20, 0), 2);
+        crear(cliente, LocalDateTime.of(2034, 2, 1, 21, 0), 4);
+        crear(admin, LocalDateTime.of(2034, 2, 1, 21, 30), 3);
+
+        webTestClient.delete().uri("/usuarios/8880002")
+            .header(HttpHeaders.AUTHORIZATION, admin)
+            .exchange()
+            .expectStatus().isOk();
+
+        assertThat(reservaRepository.findByCedula("8880002").count().block()).isZero();
+        assertThat(reservaRepository.findByCedula("8880001").count().block()).isEqualTo(1);
+        List<Map<String, Object>> dias = webTestClient.get().uri("/reservas/estadisticas/dias?desde=2034-02-01&hasta=2034-02-01")
+            .header(HttpHeaders.AUTHORIZATION, admin)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(LISTA)
+            .returnResult().getResponseBody();
+        assertThat(dias).hasSize(1);
+        assertThat(dias.get(0)).containsEntry("reservas", 1).containsEntry("personas", 3);
+    }
+
+    @Test
+    void testLaRevisionEliminaLasReservasHuerfanas() {
+        String admin = registrarEIniciarSesion("8880101", "jefa", "admin");
+        String primero = registrarEIniciarSesion("8880102", "antiguo", "user");
+        String segundo = registrarEIniciarSesion("8880103", "olvidado", "user");
+        crear(admin, LocalDateTime.of(2034, 3, 1, 20, 0), 2);
+        crear(primero, LocalDateTime.of(2034, 3, 1, 20, 0), 2);
+        crear(primero, LocalDateTime.of(2034, 3, 2, 20, 0), 2);
+        crear(segundo, LocalDateTime.of(2034, 3, 3, 20, 0), 5);
+
+        // Usuarios eliminados sin la eliminación en cascada, como los anteriores a esta funcionalidad
+        usuarioRepository.findByCedula("8880102").flatMap(usuarioRepository::delete).block();
+        usuarioRepository.findByCedula("8880103").flatMap(usuarioRepository::delete).block();
+
+        assertThat(limpiezaReservasService.eliminarHuerfanas().block()).isEqualTo(3);
+        assertThat(reservaRepository.findByCedula("8880102").count().block()).isZero();
+        assertThat(reservaRepository.findByCedula("8880103").count().block()).isZero();
+        assertThat(reservaRepository.findByCedula("8880101").count().block()).isEqualTo(1);
+
+        // Una segunda revisión ya no encuentra nada que eliminar
+        assertThat(limpiezaReservasService.eliminarHuerfanas().block()).isZero();
+    }
+
+    private void crear(String bearer, LocalDateTime fecha, int personas) {
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Cliente", fecha, personas))
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    private String registrarEIniciarSesion(String cedula, String username, String rol) {
+        webTestClient.post().uri("/usuarios/registro")
+            .bodyValue(new Usuario(cedula, username, "secreto", rol))
+            .exchange()
+            .expectStatus().isOk();
+
+        AuthResponse login = webTestClient.post().uri("/usuarios/login")
+            .headers(h -> h.setBasicAuth(username, "secreto"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(AuthResponse.class)
+            .returnResult().getResponseBody();
+        return "Bearer " + login.getToken();
+    }
+}
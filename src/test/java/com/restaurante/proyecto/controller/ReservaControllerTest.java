@@ -1,6 +1,9 @@
 package com.restaurante.proyecto.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
@@ -22,7 +25,7 @@ class ReservaControllerTest {
 
     @Test
     void testCreateReserva() {
-        Reserva nuevaReserva = new Reserva("usuario", "1234567890", "Cliente de Prueba", "2025-05-10", 10);
+        Reserva nuevaReserva = new Reserva("usuario", "1234567890", "Cliente de Prueba", LocalDateTime.of(2025, 5, 10, 20, 0), 10);
 
         webTestClient
             // Simulamos la autenticación de un usuario con el rol USER
@@ -0,0 +1,372 @@
+package com.restaurante.proyecto.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.restaurante.proyecto.model.AuthResponse;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.repository.ReservaRepository;
+
+// Prueba de extremo a extremo del ciclo de vida de una reserva con el perfil "memoria", sin MongoDB
+// Se registra un usuario, se inicia sesión y se crea, consulta, actualiza y elimina una reserva con el token obtenido
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@ActiveProfiles("memoria")
+class ReservaFlujoMemoriaTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Test
+    void testCicloDeVidaDeUnaReserva() {
+        String bearer = registrarEIniciarSesion("5550001", "cliente");
+
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Cliente", LocalDateTime.of(2025, 5, 10, 20, 0), 2))
+            .exchange()
+            .expectStatus().isOk();
+
+        List<Map<String, Object>> reservas = webTestClient.get().uri("/reservas/5550001")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<Map<String, Object>>>() { })
+            .returnResult().getResponseBody();
+        assertThat(reservas).hasSize(1);
+        String id = (String) reservas.get(0).get("id");
+        assertThat(id).hasSize(26);
+
+        Reserva cambios = new Reserva(null, null, "Cliente", LocalDateTime.of(2025, 5, 10, 21, 0), 4);
+        cambios.setVersion(0L);
+        webTestClient.put().uri("/reservas/" + id)
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(cambios)
+            .exchange()
+            .expectStatus().isOk();
+
+        // La misma versión ya no es la actual: la segunda actualización se rechaza
+        webTestClient.put().uri("/reservas/" + id)
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(cambios)
+            .exchange()
+            .expectStatus().isEqualTo(409)
+            .expectBody().jsonPath("$.codigo").isEqualTo("reservation.version.conflict");
+
+        webTestClient.delete().uri("/reservas/" + id)
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isOk();
+
+        webTestClient.delete().uri("/reservas/" + id)
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    // Un usuario solo accede a los datos de su propia cédula y los endpoints de admins responden 403 con el mensaje localizado
+
+    @Test
+    void testReglasDeAcceso() {
+        String bearer = registrarEIniciarSesion("5550002", "vecino");
+
+        webTestClient.get().uri("/usuarios/5550002")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.username").isEqualTo("vecino");
+
+        webTestClient.get().uri("/reservas/5550001")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isForbidden()
+            .expectBody().jsonPath("$.codigo").isEqualTo("error.access.denied");
+
+        webTestClient.put().uri("/usuarios/5550002")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Usuario(null, null, null, "ROLE_ADMIN"))
+            .exchange()
+            .expectStatus().isForbidden()
+            .expectBody().jsonPath("$.codigo").isEqualTo("error.access.denied");
+
+        webTestClient.get().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isForbidden();
+    }
+
+    // Los reintentos con la misma cabecera Idempotency-Key reciben la respuesta guardada sin crear otra reserva,
+    // y la misma clave con otra reserva se rechaza
+
+    @Test
+    void testReintentosConClaveDeIdempotencia() {
+        String bearer = registrarEIniciarSesion("5550003", "movil");
+        Reserva reserva = new Reserva(null, null, "Movil", LocalDateTime.of(2025, 6, 1, 21, 0), 2);
+
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .header("Idempotency-Key", "pedido-42")
+            .bodyValue(reserva)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().doesNotExist("Idempotent-Replayed");
+        for (int intento = 0; intento < 2; intento++) {
+            webTestClient.post().uri("/reservas")
+                .header(HttpHeaders.AUTHORIZATION, bearer)
+                .header("Idempotency-Key", "pedido-42")
+                .bodyValue(reserva)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Idempotent-Replayed", "true")
+                .expectBody().jsonPath("$.codigo").isEqualTo("reservation.success");
+        }
+
+        webTestClient.get().uri("/reservas/5550003")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.length()").isEqualTo(1);
+
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .header("Idempotency-Key", "pedido-42")
+            .bodyValue(new Reserva(null, null, "Movil", LocalDateTime.of(2025, 6, 1, 21, 0), 4))
+            .exchange()
+            .expectStatus().isEqualTo(422)
+            .expectBody().jsonPath("$.codigo").isEqualTo("reservation.idempotency.mismatch");
+    }
+
+    // Las consultas condicionales con el ETag recibido responden 304 mientras no cambian las reservas o el usuario
+
+    @Test
+    void testConsultasCondicionalesConETag() {
+        String bearer = registrarEIniciarSesion("5550004", "sondeo");
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Sondeo", LocalDateTime.of(2025, 7, 1, 20, 0), 2))
+            .exchange()
+            .expectStatus().isOk();
+
+        String etag = etag(bearer, "/reservas/5550004");
+        webTestClient.get().uri("/reservas/5550004")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+            .expectBody().isEmpty();
+
+        // Una reserva nueva cambia el ETag y la consulta condicional vuelve a devolver la lista completa
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Sondeo", LocalDateTime.of(2025, 7, 2, 20, 0), 3))
+            .exchange()
+            .expectStatus().isOk();
+        webTestClient.get().uri("/reservas/5550004")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.length()").isEqualTo(2);
+
+        String etagUsuario = etag(bearer, "/usuarios/5550004");
+        webTestClient.get().uri("/usuarios/5550004")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .header(HttpHeaders.IF_NONE_MATCH, etagUsuario)
+            .exchange()
+            .expectStatus().isNotModified();
+    }
+
+    // Un turno con reservas guardadas antes de llevar la cuenta de sus plazas no admite más de su capacidad
+
+    @Test
+    void testTurnoConReservasAnterioresNoAdmiteMasPlazas() {
+        String bearer = registrarEIniciarSesion("5550006", "tardio");
+        reservaRepository.save(new Reserva("antiguo", "5550099", "Antiguo", LocalDateTime.of(2035, 2, 1, 20, 10), 38)).block();
+
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Tardío", LocalDateTime.of(2035, 2, 1, 20, 0), 3))
+            .exchange()
+            .expectStatus().isEqualTo(409)
+            .expectBody().jsonPath("$.codigo").isEqualTo("reservation.slot.full");
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Tardío", LocalDateTime.of(2035, 2, 1, 20, 0), 2))
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    // Mover una reserva a un turno lleno se rechaza sin modificarla; con menos personas el cambio cabe y se guarda
+
+    @Test
+    void testActualizarAUnTurnoLlenoNoModificaLaReserva() {
+        String bearer = registrarEIniciarSesion("5550007", "mudanza");
+        reservaRepository.save(new Reserva("ocupante", "5550098", "Ocupante", LocalDateTime.of(2035, 3, 1, 20, 0), 38)).block();
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Mudanza", LocalDateTime.of(2035, 3, 1, 19, 0), 4))
+            .exchange()
+            .expectStatus().isOk();
+        Reserva creada = reservaRepository.findByCedula("5550007").blockFirst();
+
+        webTestClient.put().uri("/reservas/" + creada.getId())
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Mudanza", LocalDateTime.of(2035, 3, 1, 20, 0), 4))
+            .exchange()
+            .expectStatus().isEqualTo(409)
+            .expectBody().jsonPath("$.codigo").isEqualTo("reservation.slot.full");
+        Reserva sinCambios = reservaRepository.findById(creada.getId()).block();
+        assertThat(sinCambios.getFecha()).isEqualTo(LocalDateTime.of(2035, 3, 1, 19, 0));
+        assertThat(sinCambios.getNumeroPersonas()).isEqualTo(4);
+
+        webTestClient.put().uri("/reservas/" + creada.getId())
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Mudanza", LocalDateTime.of(2035, 3, 1, 20, 0), 2))
+            .exchange()
+            .expectStatus().isOk();
+
+        // El turno queda lleno (38 + 2): un cambio de nombre en el mismo turno se sigue admitiendo
+        webTestClient.put().uri("/reservas/" + creada.getId())
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(new Reserva(null, null, "Mudanza y familia", LocalDateTime.of(2035, 3, 1, 20, 0), 2))
+            .exchange()
+            .expectStatus().isOk();
+        assertThat(reservaRepository.findById(creada.getId()).block().getNombreCliente()).isEqualTo("Mudanza y familia");
+    }
+
+    // El identificador enviado al crear una reserva se ignora: no puede sustituir la reserva de otro cliente
+
+    @Test
+    void testCrearIgnoraElIdentificadorDelCliente() {
+        String bearer = registrarEIniciarSesion("5550008", "intruso");
+        Reserva ajena = reservaRepository.save(new Reserva("ajeno", "5550097", "Ajeno", LocalDateTime.of(2035, 4, 1, 20, 0), 2)).block();
+
+        Reserva conId = new Reserva(null, null, "Intruso", LocalDateTime.of(2035, 4, 1, 21, 0), 2);
+        conId.setId(ajena.getId());
+        webTestClient.post().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .bodyValue(conId)
+            .exchange()
+            .expectStatus().isOk();
+
+        assertThat(reservaRepository.findById(ajena.getId()).block().getCedula()).isEqualTo("5550097");
+        assertThat(reservaRepository.findByCedula("5550008").collectList().block())
+            .extracting(Reserva::getId).doesNotContain(ajena.getId()).hasSize(1);
+    }
+
+    // El listado por fechas se recorre completo con el cursor de fecha e identificador aunque todas las reservas compartan turno
+
+    @Test
+    void testListadoPorFechasPaginadoPorCursor() {
+        String bearer = registrarEIniciarSesion("5550005", "recepcion", "admin");
+        for (int i = 0; i < 5; i++) {
+            webTestClient.post().uri("/reservas")
+                .header(HttpHeaders.AUTHORIZATION, bearer)
+                .bodyValue(new Reserva(null, null, "Recepción " + i, LocalDateTime.of(2035, 1, 5, 20, 0), 2))
+                .exchange()
+                .expectStatus().isOk();
+        }
+
+        for (String historico : List.of("false", "true")) {
+            List<Object> ids = new ArrayList<>();
+            String cursor = null;
+            int paginas = 0;
+            do {
+                String uri = "/reservas?desde=2035-01-05&hasta=2035-01-05&limite=2&historico=" + historico
+                    + (cursor == null ? "" : "&despues=" + cursor);
+                EntityExchangeResult<List<Map<String, Object>>> pagina = webTestClient.get().uri(uri)
+                    .header(HttpHeaders.AUTHORIZATION, bearer)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(new ParameterizedTypeReference<List<Map<String, Object>>>() { })
+                    .returnResult();
+                pagina.getResponseBody().forEach(reserva -> ids.add(reserva.get("id")));
+                cursor = pagina.getResponseHeaders().getFirst(Paginacion.CABECERA_SIGUIENTE);
+                paginas++;
+            } while (cursor != null);
+            assertThat(ids).hasSize(5).doesNotHaveDuplicates();
+            assertThat(paginas).isEqualTo(3);
+        }
+
+        webTestClient.get().uri("/reservas?desde=2035-01-05&despues=no-es-un-cursor")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody().jsonPath("$.codigo").isEqualTo("pagination.cursor.invalid");
+
+        // En streaming el cursor de fecha también se respeta
+        EntityExchangeResult<List<Map<String, Object>>> primera = webTestClient.get().uri("/reservas?desde=2035-01-05&hasta=2035-01-05&limite=2")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectBody(new ParameterizedTypeReference<List<Map<String, Object>>>() { })
+            .returnResult();
+        List<Map<String, Object>> resto = webTestClient.get()
+            .uri("/reservas?desde=2035-01-05&hasta=2035-01-05&despues=" + primera.getResponseHeaders().getFirst(Paginacion.CABECERA_SIGUIENTE))
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(new ParameterizedTypeReference<Map<String, Object>>() { })
+            .getResponseBody().collectList().block();
+        assertThat(resto).hasSize(3);
+        assertThat(resto).extracting(reserva -> reserva.get("id"))
+            .doesNotContainAnyElementsOf(primera.getResponseBody().stream().map(reserva -> reserva.get("id")).toList());
+
+        webTestClient.get().uri("/reservas?desde=2035-01-05&despues=no-es-un-cursor")
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    private String etag(String bearer, String uri) {
+        String etag = webTestClient.get().uri(uri)
+            .header(HttpHeaders.AUTHORIZATION, bearer)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class)
+            .getResponseHeaders().getETag();
+        assertThat(etag).startsWith("W/");
+        return etag;
+    }
+
+    private String registrarEIniciarSesion(String cedula, String username) {
+        return registrarEIniciarSesion(cedula, username, "user");
+    }
+
+    private String registrarEIniciarSesion(String cedula, String username, String rol) {
+        webTestClient.post().uri("/usuarios/registro")
+            .bodyValue(new Usuario(cedula, username, "secreto", rol))
+            .exchange()
+            .expectStatus().isOk();
+
+        AuthResponse login = webTestClient.post().uri("/usuarios/login")
+            .headers(h -> h.setBasicAuth(username, "secreto"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(AuthResponse.class)
+            .returnResult().getResponseBody();
+        return "Bearer " + login.getToken();
+    }
+}
@@ -0,0 +1,118 @@
+package com.restaurante.proyecto.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.proyecto.config.ApplicationConfig;
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.service.JwtUtil;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+// Pruebas del filtro de limitación de peticiones
+// Se valida que cada regla limita por separado a cada dirección IP y a cada usuario del token, que las peticiones
+// rechazadas reciben un 429 con Retry-After y que la cubeta recupera las fichas con el paso del tiempo
+
+class LimitePeticionesFilterTest {
+
+    private static final String SECRET = "MugbvXMWoJKJsZYNuU9HvEuJk7y9tC0Fuh01Lo9UZkY=";
+    private static final WebFilterChain CADENA = exchange -> Mono.empty();
+
+    private final JwtUtil jwtUtil = new JwtUtil(SECRET, 60000, 100);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LimitePeticionesFilter filtro = new LimitePeticionesFilter(
+        List.of("POST /usuarios/login=2/1h", "/reservas/**=3/1h"), 1000, jwtUtil,
+        new Mensajes(new ApplicationConfig().messageSource(), new ObjectMapper(), false), meterRegistry);
+
+    @Test
+    void testLimitePorDireccionIp() {
+        assertThat(estado(login("10.0.0.1"))).isNull();
+        assertThat(estado(login("10.0.0.1"))).isNull();
+
+        MockServerWebExchange rechazada = login("10.0.0.1");
+        assertThat(estado(rechazada)).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(Long.parseLong(rechazada.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)))
+            .isBetween(1L, 1800L);
+        assertThat(rechazada.getResponse().getBodyAsString().block()).contains("error.rate.limited");
+        assertThat(meterRegistry.counter("http.peticiones.limitadas", "regla", "POST /usuarios/login").count()).isEqualTo(1);
+
+        // Otra dirección IP tiene su propia cubeta y las rutas sin regla no se limitan
+        assertThat(estado(login("10.0.0.2"))).isNull();
+        assertThat(estado(peticion(MockServerHttpRequest.get("/usuarios/login"), "10.0.0.1"))).isNull();
+    }
+
+    @Test
+    void testLimitePorUsuarioDelToken() {
+        String ana = "Bearer " + jwtUtil.generateToken(new Usuario("1", "ana", "secreto", "ROLE_USER"));
+        String luis = "Bearer " + jwtUtil.generateToken(new Usuario("2", "luis", "secreto", "ROLE_USER"));
+
+        // Las peticiones de un mismo usuario cuentan juntas aunque lleguen desde direcciones distintas
+        for (int i = 0; i < 3; i++) {
+            assertThat(estado(reservas(ana, "10.0.1." + i))).isNull();
+        }
+        assertThat(estado(reservas(ana, "10.0.1.9"))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(estado(reservas(luis, "10.0.1.0"))).isNull();
+
+        // Un token no válido cuenta para la dirección IP
+        assertThat(estado(reservas("Bearer no-es-un-token", "10.0.1.0"))).isNull();
+    }
+
+    @Test
+    void testLaCubetaSeRecuperaConElTiempo() {
+        LimitePeticionesFilter.Cubeta cubeta = new LimitePeticionesFilter.Cubeta();
+        long intervalo = TimeUnit.SECONDS.toNanos(1);
+        long tolerancia = 2 * intervalo;
+
+        assertThat(cubeta.consumir(0, intervalo, tolerancia)).isZero();
+        assertThat(cubeta.consumir(0, intervalo, tolerancia)).isZero();
+        assertThat(cubeta.consumir(0, intervalo, tolerancia)).isZero();
+        assertThat(cubeta.consumir(0, intervalo, tolerancia)).isEqualTo(intervalo);
+        assertThat(cubeta.consumir(intervalo / 2, intervalo, tolerancia)).isEqualTo(intervalo / 2);
+        assertThat(cubeta.consumir(intervalo, intervalo, tolerancia)).isZero();
+        // Tras un periodo largo sin peticiones la ráfaga vuelve a estar disponible, pero no se acumula más
+        long despues = 100 * intervalo;
+        for (int i = 0; i < 3; i++) {
+            assertThat(cubeta.consumir(despues, intervalo, tolerancia)).isZero();
+        }
+        assertThat(cubeta.consumir(despues, intervalo, tolerancia)).isPositive();
+    }
+
+    @Test
+    void testReglaNoValida() {
+        assertThatThrownBy(() -> new LimitePeticionesFilter(List.of("/reservas=0/1m"), 10, jwtUtil, null, meterRegistry))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LimitePeticionesFilter(List.of("/reservas"), 10, jwtUtil, null, meterRegistry))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private MockServerWebExchange login(String ip) {
+        return peticion(MockServerHttpRequest.post("/usuarios/login"), ip);
+    }
+
+    private MockServerWebExchange reservas(String bearer, String ip) {
+        return peticion(MockServerHttpRequest.get("/reservas/123").header(HttpHeaders.AUTHORIZATION, bearer), ip);
+    }
+
+    private static MockServerWebExchange peticion(MockServerHttpRequest.BaseBuilder<?> builder, String ip) {
+        return MockServerWebExchange.from(builder.remoteAddress(new InetSocketAddress(ip, 40000)));
+    }
+
+    private HttpStatus estado(MockServerWebExchange exchange) {
+        filtro.filter(exchange, CADENA).block();
+        return (HttpStatus) exchange.getResponse().getStatusCode();
+    }
+}
@@ -0,0 +1,44 @@
+package com.restaurante.proyecto.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+// Pruebas del endpoint de métricas en formato Prometheus con el perfil "memoria"
+// Se valida que se publican la validación de tokens, las respuestas de error y los histogramas de latencia por endpoint
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@AutoConfigureObservability
+@ActiveProfiles("memoria")
+class MetricasPrometheusTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void testMetricasPublicadas() {
+        webTestClient.get().uri("/reservas")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer token-no-valido")
+            .exchange()
+            .expectStatus().isUnauthorized();
+
+        String metricas = webTestClient.get().uri("/actuator/prometheus")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class)
+            .returnResult().getResponseBody();
+
+        assertThat(metricas)
+            .contains("jwt_validacion_seconds_count{resultado=\"invalido\"} 1")
+            .contains("http_respuestas_error_total{estado=\"401\",ruta=\"UNKNOWN\"} 1.0")
+            .contains("http_server_requests_seconds_bucket");
+    }
+}
@@ -0,0 +1,126 @@
+package com.restaurante.proyecto.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.changestream.OperationType;
+import com.restaurante.proyecto.model.EventoReserva;
+import com.restaurante.proyecto.model.Reserva;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Prueba del punto de reanudación del change stream sin MongoDB: se simula el ReactiveMongoTemplate y se comprueba
+// con qué opciones se abre cada change stream
+
+class EventosReservaMongoTest {
+
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final List<Optional<BsonValue>> reanudaciones = new ArrayList<>();
+    private final List<Flux<ChangeStreamEvent<Reserva>>> aperturas = new ArrayList<>();
+    private EventosReservaMongo eventos;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.changeStream(eq("reservas"), any(ChangeStreamOptions.class), eq(Reserva.class)))
+            .thenAnswer(invocacion -> {
+                reanudaciones.add(invocacion.<ChangeStreamOptions>getArgument(1).getResumeToken());
+                return aperturas.remove(0);
+            });
+        eventos = new EventosReservaMongo(mongoTemplate);
+    }
+
+    // Tras cerrarse la suscripción el siguiente cliente no recibe de nuevo los cambios ya repartidos
+
+    @Test
+    void testSinClientesSeOlvidaElUltimoEvento() {
+        aperturas.add(Flux.concat(Flux.just(insercion("a")), Flux.never()));
+        aperturas.add(Flux.never());
+
+        List<EventoReserva> recibidos = new ArrayList<>();
+        eventos.eventos().subscribe(recibidos::add).dispose();
+        eventos.eventos().subscribe(recibidos::add).dispose();
+
+        assertThat(recibidos).hasSize(1);
+        assertThat(reanudaciones).containsExactly(Optional.empty(), Optional.empty());
+    }
+
+    // Tras un error se reanuda desde el último evento, salvo que MongoDB ya no lo conserve
+
+    @Test
+    void testReanudaTrasErrorYEmpiezaDeNuevoSiSePerdioLaHistoria() {
+        aperturas.add(Flux.concat(Flux.just(insercion("a")), Flux.error(new IllegalStateException("red"))));
+        aperturas.add(Flux.error(historiaPerdida()));
+        aperturas.add(Flux.never());
+
+        List<EventoReserva> recibidos = new ArrayList<>();
+        Disposable suscripcion = eventos.eventos().retry(2).subscribe(recibidos::add);
+        suscripcion.dispose();
+
+        assertThat(recibidos).hasSize(1);
+        assertThat(reanudaciones).containsExactly(Optional.empty(), Optional.of(new BsonString("a")), Optional.empty());
+    }
+
+    // Las eliminaciones de reservas que ya están en el histórico vienen del archivado y no se reparten
+
+    @Test
+    void testNoRepartirLasEliminacionesDelArchivado() {
+        when(mongoTemplate.exists(any(Query.class), eq(Reserva.COLECCION_HISTORICO)))
+            .thenAnswer(invocacion -> Mono.just(invocacion.<Query>getArgument(0).getQueryObject().get("_id").equals("archivada")));
+        aperturas.add(Flux.concat(Flux.just(eliminacion("archivada"), eliminacion("cancelada")), Flux.never()));
+
+        List<EventoReserva> recibidos = new ArrayList<>();
+        eventos.eventos().subscribe(recibidos::add).dispose();
+
+        assertThat(recibidos).extracting(EventoReserva::getId).containsExactly("cancelada");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamEvent<Reserva> eliminacion(String id) {
+        ChangeStreamEvent<Reserva> cambio = mock(ChangeStreamEvent.class);
+        when(cambio.getOperationType()).thenReturn(OperationType.DELETE);
+        Reserva anterior = new Reserva("cliente", "5550001", "Cliente", LocalDateTime.of(2035, 1, 1, 20, 0), 2);
+        anterior.setId(id);
+        when(cambio.getBodyBeforeChange()).thenReturn(anterior);
+        when(cambio.getResumeToken()).thenReturn(new BsonString(id));
+        return cambio;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamEvent<Reserva> insercion(String token) {
+        ChangeStreamEvent<Reserva> cambio = mock(ChangeStreamEvent.class);
+        when(cambio.getOperationType()).thenReturn(OperationType.INSERT);
+        when(cambio.getBody()).thenReturn(new Reserva(token, "5550001", "Cliente", LocalDateTime.of(2035, 1, 1, 20, 0), 2));
+        when(cambio.getResumeToken()).thenReturn(new BsonString(token));
+        return cambio;
+    }
+
+    private static UncategorizedMongoDbException historiaPerdida() {
+        MongoCommandException causa = new MongoCommandException(new BsonDocument("code",
+            new BsonInt32(EventosReservaMongo.HISTORIA_PERDIDA)), new ServerAddress());
+        return new UncategorizedMongoDbException("ChangeStreamHistoryLost", causa);
+    }
+}
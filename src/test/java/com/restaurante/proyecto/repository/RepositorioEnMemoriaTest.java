@@ -0,0 +1,88 @@
+package com.restaurante.proyecto.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.service.GeneradorIdentificadoresOrdenados;
+
+// Pruebas unitarias de las consultas con ordenación y por ejemplo de los repositorios en memoria
+// Se valida que se comportan como las de MongoDB en los casos que usan las pruebas con el perfil "memoria"
+
+class RepositorioEnMemoriaTest {
+
+    private static final LocalDateTime FECHA = LocalDateTime.of(2035, 5, 10, 20, 0);
+
+    private ReservaRepositoryEnMemoria repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ReservaRepositoryEnMemoria(new GeneradorIdentificadoresOrdenados());
+        repository.save(new Reserva("ana", "123", "Ana", FECHA, 2)).block();
+        repository.save(new Reserva("luis", "456", "Luis", FECHA.plusHours(1), 4)).block();
+        repository.save(new Reserva("ana", "123", "Ana María", null, 3)).block();
+    }
+
+    @Test
+    void testFindAllOrdenado() {
+        assertThat(repository.findAll(Sort.by(Sort.Direction.DESC, "numeroPersonas")).collectList().block())
+            .extracting(Reserva::getNumeroPersonas).containsExactly(4, 3, 2);
+        // Los valores nulos van primero en orden ascendente, como en MongoDB
+        assertThat(repository.findAll(Sort.by("fecha")).collectList().block())
+            .extracting(Reserva::getNumeroPersonas).containsExactly(3, 2, 4);
+        assertThat(repository.findAll(Sort.by(Sort.Order.asc("fecha").nullsLast())).collectList().block())
+            .extracting(Reserva::getNumeroPersonas).containsExactly(2, 4, 3);
+    }
+
+    @Test
+    void testConsultasPorEjemplo() {
+        ExampleMatcher sinPersonas = ExampleMatcher.matching().withIgnorePaths("numeroPersonas");
+        Example<Reserva> deAna = Example.of(new Reserva("ana", null, null, null, 0), sinPersonas);
+
+        assertThat(repository.count(deAna).block()).isEqualTo(2);
+        assertThat(repository.findAll(deAna, Sort.by("numeroPersonas")).collectList().block())
+            .extracting(Reserva::getNumeroPersonas).containsExactly(2, 3);
+        assertThat(repository.exists(Example.of(new Reserva(null, "789", null, null, 0), sinPersonas)).block()).isFalse();
+        assertThatThrownBy(() -> repository.findOne(deAna).block())
+            .isInstanceOf(IncorrectResultSizeDataAccessException.class);
+
+        Example<Reserva> nombre = Example.of(new Reserva(null, null, "maría", null, 0),
+            sinPersonas.withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING).withIgnoreCase());
+        assertThat(repository.findOne(nombre).block().getNombreCliente()).isEqualTo("Ana María");
+
+        // Los tipos primitivos se comparan como en MongoDB aunque no se indiquen
+        assertThat(repository.findAll(Example.of(new Reserva("ana", null, null, null, 2))).collectList().block())
+            .extracting(Reserva::getNombreCliente).containsExactly("Ana");
+    }
+
+    @Test
+    void testConsultaFluidaPorEjemplo() {
+        Example<Reserva> todas = Example.of(new Reserva(null, null, null, null, 0),
+            ExampleMatcher.matching().withIgnorePaths("numeroPersonas"));
+
+        Page<Reserva> pagina = repository.findBy(todas,
+            consulta -> consulta.sortBy(Sort.by("numeroPersonas")).page(PageRequest.of(1, 2))).block();
+        assertThat(pagina.getTotalElements()).isEqualTo(3);
+        assertThat(pagina.getContent()).extracting(Reserva::getNumeroPersonas).containsExactly(4);
+
+        Personas primera = repository.findBy(todas,
+            consulta -> consulta.sortBy(Sort.by(Sort.Direction.DESC, "numeroPersonas")).as(Personas.class).first()).block();
+        assertThat(primera.getNumeroPersonas()).isEqualTo(4);
+        assertThat(repository.findBy(todas, consulta -> consulta.limit(2).all()).collectList().block()).hasSize(2);
+    }
+
+    interface Personas {
+        int getNumeroPersonas();
+    }
+}
@@ -0,0 +1,179 @@
+package com.restaurante.proyecto.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.restaurante.proyecto.config.MongoIndexManager;
+import com.restaurante.proyecto.model.CursorFecha;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.Usuario;
+
+import reactor.core.publisher.Flux;
+
+// Pruebas de los planes de consulta de los repositorios contra un servidor MongoDB local en un contenedor
+// Se capturan los comandos que envía cada método de búsqueda, se ejecuta "explain" sobre cada uno
+// y se falla si alguno recorre la colección completa (COLLSCAN) en lugar de usar un índice
+// Las pruebas se omiten si Docker no está disponible
+
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+@Import({MongoIndexManager.class, RepositoryQueryPlanTest.CapturaDeComandos.class})
+class RepositoryQueryPlanTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    // Comandos de lectura cuyo plan de consulta se analiza
+    private static final Set<String> COMANDOS_DE_LECTURA = Set.of("find", "count", "aggregate");
+
+    // Campos de sesión y de conexión que el comando "explain" no acepta
+    private static final Set<String> CAMPOS_DE_CONEXION = Set.of("$db", "lsid", "$clusterTime", "txnNumber", "$readPreference");
+
+    static final List<BsonDocument> comandos = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoIndexManager mongoIndexManager;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(Reserva.class)
+            .then(mongoTemplate.dropCollection(Usuario.class))
+            .then(mongoIndexManager.verificarYCrear())
+            .block();
+
+        Flux.range(0, 50)
+            .flatMap(i -> usuarioRepository.save(new Usuario("ced" + i, "usuario" + i, "hash", "ROLE_USER"))
+                .then(reservaRepository.save(new Reserva("usuario" + i, "ced" + i, "Cliente " + i, LocalDateTime.of(2025, 5, 10, 20, 0), 2))))
+            .blockLast();
+        comandos.clear();
+    }
+
+    @Test
+    void testLosMetodosDeBusquedaUsanIndices() {
+        usuarioRepository.findByUsername("usuario7").block();
+        usuarioRepository.findByCedula("ced7").block();
+        usuarioRepository.findAllByOrderByIdAsc(Limit.of(10)).collectList().block();
+        usuarioRepository.findByIdGreaterThanOrderByIdAsc("000000000000000000000000", Limit.of(10)).collectList().block();
+        reservaRepository.findByCedula("ced7").collectList().block();
+        reservaRepository.findAllByOrderByIdAsc(Limit.of(10)).collectList().block();
+        reservaRepository.findByIdGreaterThanOrderByIdAsc("0", Limit.of(10)).collectList().block();
+        reservaRepository.findByFechaBetweenOrderByFechaAsc(
+            Range.closed(LocalDateTime.of(2025, 5, 10, 0, 0), LocalDateTime.of(2025, 5, 11, 0, 0)), Limit.of(10)).collectList().block();
+        reservaRepository.buscarPorFecha(Range.closed(LocalDateTime.of(2025, 5, 10, 0, 0), LocalDateTime.of(2025, 5, 11, 0, 0)),
+            new CursorFecha(LocalDateTime.of(2025, 5, 10, 20, 0), "0"), Limit.of(10)).collectList().block();
+        reservaRepository.findByCedulaAndFechaBetweenOrderByFechaAsc(
+            "ced7", Range.closed(LocalDateTime.of(2025, 5, 10, 0, 0), LocalDateTime.of(2025, 5, 11, 0, 0))).collectList().block();
+        reservaRepository.deleteByCedula("ced8").block();
+
+        List<BsonDocument> lecturas = comandos.stream()
+            .filter(comando -> COMANDOS_DE_LECTURA.contains(comando.getFirstKey()))
+            .toList();
+        assertThat(lecturas).isNotEmpty();
+
+        for (BsonDocument comando : lecturas) {
+            Document explain = mongoTemplate.executeCommand(new Document("explain", comandoSinCamposDeConexion(comando))
+                    .append("verbosity", "queryPlanner"))
+                .block();
+            Object plan = ((Document) explain.get("queryPlanner")).get("winningPlan");
+            assertThat(contieneEtapa(plan, "COLLSCAN"))
+                .as("El comando %s recorre la colección completa: %s", comando.toJson(), plan)
+                .isFalse();
+        }
+    }
+
+    @Test
+    void testLosIndicesDeclaradosExisten() {
+        assertThat(mongoTemplate.indexOps(Usuario.class).getIndexInfo().collectList().block())
+            .anySatisfy(indice -> {
+                assertThat(indice.getName()).isEqualTo("username");
+                assertThat(indice.isUnique()).isTrue();
+            })
+            .anySatisfy(indice -> {
+                assertThat(indice.getName()).isEqualTo("cedula");
+                assertThat(indice.isUnique()).isTrue();
+            });
+        assertThat(mongoTemplate.indexOps(Reserva.class).getIndexInfo().collectList().block())
+            .anySatisfy(indice -> assertThat(indice.getName()).isEqualTo("cedula_fecha"));
+    }
+
+    private static BsonDocument comandoSinCamposDeConexion(BsonDocument comando) {
+        BsonDocument limpio = new BsonDocument();
+        comando.forEach((campo, valor) -> {
+            if (!CAMPOS_DE_CONEXION.contains(campo)) {
+                limpio.put(campo, valor);
+            }
+        });
+        return limpio;
+    }
+
+    // Se busca la etapa en todo el árbol del plan, incluidas las etapas de entrada anidadas
+
+    private static boolean contieneEtapa(Object plan, String etapa) {
+        if (plan instanceof Document documento) {
+            if (etapa.equals(documento.get("stage"))) {
+                return true;
+            }
+            return documento.values().stream().anyMatch(valor -> contieneEtapa(valor, etapa));
+        }
+        if (plan instanceof List<?> lista) {
+            return lista.stream().anyMatch(valor -> contieneEtapa(valor, etapa));
+        }
+        return false;
+    }
+
+    // Registra los comandos enviados a la colección de la aplicación por el cliente reactivo de MongoDB
+
+    @TestConfiguration
+    static class CapturaDeComandos {
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer capturaDeComandos() {
+            return settings -> settings.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    BsonValue coleccion = event.getCommand().get(event.getCommandName());
+                    if (coleccion instanceof BsonString nombre
+                            && (nombre.getValue().equals("reservas") || nombre.getValue().equals("usuarios"))) {
+                        comandos.add(event.getCommand().clone());
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.restaurante.proyecto.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.restaurante.proyecto.model.CursorFecha;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.ResumenCliente;
+import com.restaurante.proyecto.model.ResumenTurno;
+
+// Pruebas de las actualizaciones y eliminaciones condicionales de reservas, de su archivo y de las agregaciones de ocupación contra un servidor MongoDB en un contenedor
+// Las pruebas se omiten si Docker no está disponible
+
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+class ReservaRepositoryCustomTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static final LocalDateTime FECHA = LocalDateTime.of(2025, 5, 10, 20, 0);
+
+    @Autowired
+    private ReservaRepository repository;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private Reserva reserva;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll().block();
+        mongoTemplate.remove(new Query(), Reserva.COLECCION_HISTORICO).block();
+        reserva = repository.save(new Reserva("ana", "123", "Ana", FECHA, 2)).block();
+    }
+
+    @Test
+    void testActualizarCompruebaPropietarioYVersion() {
+        Reserva cambios = new Reserva(null, null, "Ana López", FECHA.plusHours(1), 4);
+
+        assertThat(repository.actualizarSiPermitido(reserva.getId(), "otro", null, cambios).block()).isNull();
+
+        Reserva anterior = repository.actualizarSiPermitido(reserva.getId(), "ana", reserva.getVersion(), cambios).block();
+        assertThat(anterior.getNumeroPersonas()).isEqualTo(2);
+
+        // La versión leída al principio ya no es la actual: la segunda actualización no se aplica
+        assertThat(repository.actualizarSiPermitido(reserva.getId(), "ana", reserva.getVersion(), cambios).block()).isNull();
+
+        Reserva guardada = repository.findById(reserva.getId()).block();
+        assertThat(guardada.getNumeroPersonas()).isEqualTo(4);
+        assertThat(guardada.getVersion()).isEqualTo(reserva.getVersion() + 1);
+    }
+
+    @Test
+    void testEliminarCompruebaPropietario() {
+        assertThat(repository.eliminarSiPermitido(reserva.getId(), "otro").block()).isNull();
+        assertThat(repository.eliminarSiPermitido(reserva.getId(), "ana").block().getId()).isEqualTo(reserva.getId());
+        assertThat(repository.findById(reserva.getId()).block()).isNull();
+    }
+
+    @Test
+    void testVersionPorCedulaCambiaConCadaEscritura() {
+        String inicial = repository.versionPorCedula("123").block().etag();
+        assertThat(repository.versionPorCedula("999").block().getReservas()).isZero();
+
+        Reserva cambios = new Reserva(null, null, "Ana", FECHA, 3);
+        repository.actualizarSiPermitido(reserva.getId(), "ana", null, cambios).block();
+        String actualizada = repository.versionPorCedula("123").block().etag();
+        assertThat(actualizada).isNotEqualTo(inicial);
+
+        repository.eliminarSiPermitido(reserva.getId(), "ana").block();
+        assertThat(repository.versionPorCedula("123").block().etag()).isNotIn(inicial, actualizada);
+        // Las reservas de otros clientes no cambian la versión
+        repository.save(new Reserva("luis", "456", "Luis", FECHA, 2)).block();
+        assertThat(repository.versionPorCedula("123").block().getReservas()).isZero();
+    }
+
+    @Test
+    void testCedulasConReservasPorCursor() {
+        repository.save(new Reserva("luis", "456", "Luis", FECHA, 2)).block();
+        repository.save(new Reserva("luis", "456", "Luis", FECHA.plusDays(1), 2)).block();
+        repository.save(new Reserva("eva", "789", "Eva", FECHA, 2)).block();
+        repository.save(new Reserva("anonimo", null, "Sin cédula", FECHA, 2)).block();
+
+        assertThat(repository.cedulasConReservas(null, 2).collectList().block()).containsExactly("123", "456");
+        assertThat(repository.cedulasConReservas("456", 2).collectList().block()).containsExactly("789");
+        assertThat(repository.cedulasConReservas("789", 2).collectList().block()).isEmpty();
+    }
+
+    @Test
+    void testBuscarPorFechaConCursor() {
+        repository.save(new Reserva("luis", "456", "Luis", FECHA, 3)).block();
+        repository.save(new Reserva("eva", "789", "Eva", FECHA.plusHours(1), 4)).block();
+        Range<LocalDateTime> dia = Range.rightOpen(FECHA.toLocalDate().atStartOfDay(), FECHA.toLocalDate().plusDays(1).atStartOfDay());
+
+        List<Reserva> primera = repository.buscarPorFecha(dia, null, Limit.of(2)).collectList().block();
+        assertThat(primera).extracting(Reserva::getFecha).containsExactly(FECHA, FECHA);
+        // Las reservas del mismo turno se siguen por identificador desde la última recibida
+        List<Reserva> segunda = repository.buscarPorFecha(dia, CursorFecha.de(primera.get(1)), Limit.of(2)).collectList().block();
+        assertThat(segunda).extracting(Reserva::getNumeroPersonas).containsExactly(4);
+    }
+
+    @Test
+    void testResumenesPorTurnoYPorCliente() {
+        repository.save(new Reserva("luis", "456", "Luis", FECHA.plusMinutes(25), 3)).block();
+        repository.save(new Reserva("luis", "456", "Luis Pérez", FECHA.plusMinutes(40), 4)).block();
+        repository.save(new Reserva("ana", "123", "Ana", FECHA.plusDays(1), 6)).block();
+        Range<LocalDateTime> dia = Range.rightOpen(FECHA.toLocalDate().atStartOfDay(), FECHA.toLocalDate().plusDays(1).atStartOfDay());
+
+        List<ResumenTurno> turnos = repository.resumirPorTurno(dia, 30).collectList().block();
+        assertThat(turnos).extracting(ResumenTurno::getTurno).containsExactly(FECHA, FECHA.plusMinutes(30));
+        assertThat(turnos).extracting(ResumenTurno::getReservas).containsExactly(2L, 1L);
+        assertThat(turnos).extracting(ResumenTurno::getPersonas).containsExactly(5L, 4L);
+
+        List<ResumenCliente> clientes = repository.resumirPorCliente(dia, 10).collectList().block();
+        assertThat(clientes).extracting(ResumenCliente::getCedula).containsExactly("456", "123");
+        assertThat(clientes.get(0).getPersonas()).isEqualTo(7);
+        assertThat(clientes.get(0).getUltimaFecha()).isEqualTo(FECHA.plusMinutes(40));
+    }
+
+    @Test
+    void testArchivarPorLotesYConsultarConHistorico() {
+        repository.save(new Reserva("ana", "123", "Ana", FECHA.minusDays(2), 3)).block();
+        repository.save(new Reserva("luis", "456", "Luis", FECHA.minusDays(1), 4)).block();
+
+        // Se archivan las dos reservas anteriores a FECHA, de una en una
+        assertThat(repository.archivarLote(FECHA, 1).block()).isEqualTo(1);
+        assertThat(repository.archivarLote(FECHA, 1).block()).isEqualTo(1);
+        assertThat(repository.archivarLote(FECHA, 1).block()).isZero();
+        assertThat(repository.findAll().collectList().block()).extracting(Reserva::getId).containsExactly(reserva.getId());
+
+        Range<LocalDateTime> todo = Range.unbounded();
+        assertThat(repository.buscarConHistorico("123", todo, null, Limit.unlimited()).collectList().block())
+            .extracting(Reserva::getNumeroPersonas).containsExactly(3, 2);
+        assertThat(repository.buscarConHistorico(null, todo, null, Limit.of(2)).collectList().block())
+            .extracting(Reserva::getNumeroPersonas).containsExactly(3, 4);
+
+        // Las agregaciones incluyen las reservas archivadas
+        Range<LocalDateTime> dias = Range.rightOpen(FECHA.minusDays(2).toLocalDate().atStartOfDay(), FECHA.plusDays(1));
+        assertThat(repository.resumirPorCliente(dias, 10).collectList().block())
+            .extracting(ResumenCliente::getCedula).containsExactlyInAnyOrder("123", "456");
+
+        // Una reserva copiada al histórico que sigue en la colección activa (archivado interrumpido) se cuenta una sola vez
+        mongoTemplate.save(reserva, Reserva.COLECCION_HISTORICO).block();
+        assertThat(repository.resumirPorCliente(dias, 10).collectList().block())
+            .filteredOn(cliente -> cliente.getCedula().equals("123"))
+            .extracting(ResumenCliente::getReservas).containsExactly(2L);
+        assertThat(repository.resumirPorTurno(dias, 30).collectList().block())
+            .extracting(ResumenTurno::getReservas).containsExactly(1L, 1L, 1L);
+        mongoTemplate.remove(reserva, Reserva.COLECCION_HISTORICO).block();
+
+        assertThat(repository.eliminarLotePorCedula("123", true, 10).collectList().block())
+            .extracting(Reserva::getNumeroPersonas).containsExactly(3);
+        assertThat(repository.buscarConHistorico("123", todo, null, Limit.unlimited()).collectList().block())
+            .extracting(Reserva::getId).containsExactly(reserva.getId());
+    }
+}
@@ -0,0 +1,102 @@
+package com.restaurante.proyecto.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.restaurante.proyecto.model.OcupacionTurno;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.repository.OcupacionTurnoRepositoryMongo;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+// Prueba de estrés del control de capacidad contra un servidor MongoDB local en un contenedor
+// Se lanzan cientos de reservas simultáneas para el mismo turno y se comprueba que nunca se supera la capacidad
+// y que el contador de un turno se crea con las plazas de las reservas que ya tenía
+// Las pruebas se omiten si Docker no está disponible
+
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+@Import({CapacidadService.class, OcupacionTurnoRepositoryMongo.class})
+@TestPropertySource(properties = {
+    "reservas.capacidad.plazas-por-turno=40",
+    "reservas.capacidad.duracion-turno=30m",
+    "reservas.capacidad.vista.ttl=2s"
+})
+class CapacidadServiceConcurrencyTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static final LocalDateTime TURNO = LocalDateTime.of(2025, 5, 10, 20, 0);
+
+    @Autowired
+    private CapacidadService capacidadService;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(OcupacionTurno.class).block();
+        mongoTemplate.dropCollection(Reserva.class).block();
+    }
+
+    @Test
+    void testReservasSimultaneasNoSuperanLaCapacidad() {
+        // 400 peticiones de 3 personas para un turno de 40 plazas: como máximo caben 13 reservas
+        List<Boolean> resultados = Flux.range(0, 400)
+            .parallel(32)
+            .runOn(Schedulers.parallel())
+            .flatMap(i -> capacidadService.reservar(TURNO.plusMinutes(i % 30), 3))
+            .sequential()
+            .collectList()
+            .block();
+
+        long aceptadas = resultados.stream().filter(Boolean::booleanValue).count();
+        OcupacionTurno ocupacion = mongoTemplate.findById(TURNO, OcupacionTurno.class).block();
+
+        assertThat(aceptadas).isEqualTo(13);
+        assertThat(ocupacion.getOcupadas()).isEqualTo(39).isLessThanOrEqualTo(capacidadService.getPlazasPorTurno());
+    }
+
+    @Test
+    void testElContadorNuevoCuentaLasReservasExistentes() {
+        // Reservas guardadas sin pasar por el control de capacidad, como las anteriores a los contadores
+        mongoTemplate.insert(new Reserva("ana", "123", "Ana", TURNO.plusMinutes(5), 30)).block();
+        mongoTemplate.insert(new Reserva("luis", "456", "Luis", TURNO.plusMinutes(20), 8)).block();
+        mongoTemplate.insert(new Reserva("eva", "789", "Eva", TURNO.plusMinutes(30), 40)).block();
+
+        assertThat(capacidadService.reservar(TURNO, 3).block()).isFalse();
+        assertThat(capacidadService.reservar(TURNO, 2).block()).isTrue();
+        assertThat(mongoTemplate.findById(TURNO, OcupacionTurno.class).block().getOcupadas()).isEqualTo(40);
+    }
+
+    @Test
+    void testLiberarDevuelvePlazas() {
+        Flux.range(0, 200)
+            .flatMap(i -> capacidadService.reservar(TURNO, 4))
+            .blockLast();
+        assertThat(capacidadService.reservar(TURNO, 1).block()).isFalse();
+
+        capacidadService.liberar(TURNO, 4).block();
+
+        assertThat(capacidadService.reservar(TURNO, 4).block()).isTrue();
+        assertThat(mongoTemplate.findById(TURNO, OcupacionTurno.class).block().getOcupadas()).isEqualTo(40);
+    }
+}
@@ -0,0 +1,40 @@
+package com.restaurante.proyecto.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+// Pruebas unitarias para el generador de identificadores ordenados por tiempo
+
+class GeneradorIdentificadoresOrdenadosTest {
+
+    @Test
+    void testFormatoYOrdenPorTiempo() {
+        String anterior = GeneradorIdentificadoresOrdenados.codificar(1_700_000_000_000L, -1L, 0xFFFF);
+        String posterior = GeneradorIdentificadoresOrdenados.codificar(1_700_000_000_001L, 0L, 0);
+
+        assertThat(anterior).hasSize(26).matches("[0-9A-HJKMNP-TV-Z]{26}");
+        assertThat(anterior.substring(10)).isEqualTo("ZZZZZZZZZZZZZZZZ");
+        assertThat(posterior.substring(10)).isEqualTo("0000000000000000");
+        assertThat(anterior).isLessThan(posterior);
+    }
+
+    @Test
+    void testSinColisionesEntreHilos() {
+        // Con el reloj detenido todos los identificadores comparten el tiempo y solo se distinguen por la parte aleatoria
+        Clock detenido = Clock.fixed(Instant.parse("2025-05-10T20:00:00Z"), ZoneOffset.UTC);
+        GeneradorIdentificadores generador = new GeneradorIdentificadoresOrdenados(detenido);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 200_000).parallel().forEach(i -> ids.add(generador.nuevoId()));
+
+        assertThat(ids).hasSize(200_000);
+    }
+}
@@ -0,0 +1,150 @@
+package com.restaurante.proyecto.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.model.ClaveIdempotencia;
+import com.restaurante.proyecto.model.Mensaje;
+import com.restaurante.proyecto.repository.ClaveIdempotenciaRepositoryEnMemoria;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Pruebas unitarias de las claves de idempotencia con el repositorio en memoria
+// Se valida que las peticiones simultáneas con la misma clave ejecutan la operación una sola vez,
+// que los errores liberan la clave y que una clave en curso en otra instancia responde 409 hasta que vence su plazo
+
+class IdempotenciaServiceTest {
+
+    private ClaveIdempotenciaRepositoryEnMemoria repository;
+    private Mensajes mensajes;
+    private IdempotenciaService idempotencia;
+    private AtomicInteger ejecuciones;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ClaveIdempotenciaRepositoryEnMemoria();
+        StaticMessageSource source = new StaticMessageSource();
+        source.setUseCodeAsDefaultMessage(true);
+        mensajes = new Mensajes(source, new ObjectMapper(), true);
+        idempotencia = new IdempotenciaService(repository, mensajes, Duration.ofHours(1), Duration.ofSeconds(30), 100, Duration.ofMinutes(1));
+        ejecuciones = new AtomicInteger();
+    }
+
+    @Test
+    void testLasPeticionesSimultaneasSeEjecutanUnaVez() {
+        Mono<ResponseEntity<Mensaje>> operacion = Mono.delay(Duration.ofMillis(100))
+            .map(n -> {
+                ejecuciones.incrementAndGet();
+                return ResponseEntity.ok(mensajes.get("reservation.success", Locale.ROOT));
+            });
+
+        List<ResponseEntity<Mensaje>> respuestas = Flux.range(0, 5)
+            .flatMap(i -> idempotencia.ejecutar("ana", "clave", "h1", Locale.ROOT, () -> operacion))
+            .collectList()
+            .block();
+
+        assertThat(ejecuciones).hasValue(1);
+        assertThat(respuestas).extracting(respuesta -> respuesta.getStatusCode().value()).containsOnly(200);
+        assertThat(respuestas).filteredOn(respuesta -> respuesta.getHeaders().containsKey(IdempotenciaService.CABECERA_REPETIDA))
+            .hasSize(4);
+        assertThat(repository.buscar("ana:clave").block().getCodigo()).isEqualTo("reservation.success");
+    }
+
+    @Test
+    void testUnErrorLiberaLaClave() {
+        assertThatThrownBy(() -> idempotencia.ejecutar("ana", "clave", "h1", Locale.ROOT,
+                () -> Mono.error(new IllegalStateException("caída"))).block())
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(repository.buscar("ana:clave").block()).isNull();
+
+        ResponseEntity<Mensaje> respuesta = idempotencia.ejecutar("ana", "clave", "h1", Locale.ROOT,
+            () -> Mono.just(ResponseEntity.status(409).body(mensajes.get("reservation.slot.full", Locale.ROOT)))).block();
+        assertThat(respuesta.getStatusCode().value()).isEqualTo(409);
+        assertThat(respuesta.getHeaders().containsKey(IdempotenciaService.CABECERA_REPETIDA)).isFalse();
+    }
+
+    @Test
+    void testClaveEnCursoEnOtraInstancia() {
+        repository.reservar(new ClaveIdempotencia("ana:clave", "h1", ClaveIdempotencia.EN_CURSO, null,
+            Instant.now().plusSeconds(60))).block();
+
+        ResponseEntity<Mensaje> respuesta = idempotencia.ejecutar("ana", "clave", "h1", Locale.ROOT, () -> {
+            ejecuciones.incrementAndGet();
+            return Mono.empty();
+        }).block();
+
+        assertThat(respuesta.getStatusCode().value()).isEqualTo(409);
+        assertThat(respuesta.getBody().getCodigo()).isEqualTo("reservation.idempotency.in.progress");
+        assertThat(ejecuciones).hasValue(0);
+        // La clave sigue en la base de datos pero no queda en la caché: otro usuario con la misma clave no se ve afectado
+        assertThat(idempotencia.ejecutar("luis", "clave", "h1", Locale.ROOT,
+            () -> Mono.just(ResponseEntity.ok(mensajes.get("reservation.success", Locale.ROOT)))).block()
+            .getStatusCode().value()).isEqualTo(200);
+    }
+
+    // Una clave en curso cuyo plazo venció (la instancia que la tenía se cayó) la toma la siguiente petición
+
+    @Test
+    void testUnaClaveEnCursoVencidaSeToma() {
+        repository.reservar(new ClaveIdempotencia("ana:clave", "h1", ClaveIdempotencia.EN_CURSO, null,
+            Instant.now().minusSeconds(1))).block();
+
+        ResponseEntity<Mensaje> respuesta = idempotencia.ejecutar("ana", "clave", "h1", Locale.ROOT, () -> {
+            ejecuciones.incrementAndGet();
+            return Mono.just(ResponseEntity.ok(mensajes.get("reservation.success", Locale.ROOT)));
+        }).block();
+
+        assertThat(respuesta.getStatusCode().value()).isEqualTo(200);
+        assertThat(ejecuciones).hasValue(1);
+        ClaveIdempotencia guardada = repository.buscar("ana:clave").block();
+        assertThat(guardada.getCodigo()).isEqualTo("reservation.success");
+        assertThat(guardada.getExpira()).isAfter(Instant.now().plus(Duration.ofMinutes(59)));
+    }
+
+    // La petición que perdió la clave por vencer su plazo no sobrescribe el resultado de la que la tomó
+
+    @Test
+    void testLaPeticionQuePerdioLaClaveNoGuardaSuResultado() {
+        IdempotenciaService primera = new IdempotenciaService(repository, mensajes, Duration.ofHours(1), Duration.ofMillis(50),
+            100, Duration.ofMinutes(1));
+        IdempotenciaService segunda = new IdempotenciaService(repository, mensajes, Duration.ofHours(1), Duration.ofMillis(50),
+            100, Duration.ofMinutes(1));
+
+        Mono<ResponseEntity<Mensaje>> lenta = primera.ejecutar("ana", "clave", "h1", Locale.ROOT,
+            () -> Mono.delay(Duration.ofMillis(300))
+                .map(n -> ResponseEntity.status(409).body(mensajes.get("reservation.slot.full", Locale.ROOT))))
+            .cache();
+        lenta.subscribe();
+        Mono.delay(Duration.ofMillis(100)).block();
+        ResponseEntity<Mensaje> rapida = segunda.ejecutar("ana", "clave", "h1", Locale.ROOT,
+            () -> Mono.just(ResponseEntity.ok(mensajes.get("reservation.success", Locale.ROOT)))).block();
+        lenta.block();
+
+        assertThat(rapida.getStatusCode().value()).isEqualTo(200);
+        assertThat(repository.buscar("ana:clave").block().getCodigo()).isEqualTo("reservation.success");
+    }
+
+    // La huella distingue peticiones cuyos campos tienen el mismo hashCode o que solo difieren en cómo se reparten los campos
+
+    @Test
+    void testHuellaDeLosCampos() {
+        assertThat(IdempotenciaService.huella("Aa", 2)).hasSize(64)
+            .isNotEqualTo(IdempotenciaService.huella("BB", 2));
+        assertThat(IdempotenciaService.huella("a", "bc")).isNotEqualTo(IdempotenciaService.huella("ab", "c"));
+        assertThat(IdempotenciaService.huella("Ana", 2)).isEqualTo(IdempotenciaService.huella("Ana", 2));
+    }
+}
@@ -0,0 +1,117 @@
+package com.restaurante.proyecto.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.proyecto.config.Mensajes;
+import com.restaurante.proyecto.model.Reserva;
+import com.restaurante.proyecto.model.ResultadoImportacion;
+import com.restaurante.proyecto.repository.ReservaRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Pruebas unitarias para la importación masiva de reservas
+// Se valida que cada línea recibe su resultado en orden, que las plazas de las reservas no insertadas se liberan
+// y que solo las reservas insertadas se suman a los resúmenes diarios
+
+class ImportacionReservasServiceTest {
+
+    private static final LocalDateTime FECHA = LocalDateTime.of(2025, 5, 10, 20, 0);
+    private static final LocalDateTime TURNO_LLENO = LocalDateTime.of(2025, 5, 10, 21, 0);
+
+    private ReservaRepository repository;
+    private CapacidadService capacidadService;
+    private EstadisticasService estadisticasService;
+    private ImportacionReservasService importacion;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ReservaRepository.class);
+        capacidadService = mock(CapacidadService.class);
+        when(capacidadService.reservar(eq(FECHA), anyInt())).thenReturn(Mono.just(true));
+        when(capacidadService.reservar(eq(TURNO_LLENO), anyInt())).thenReturn(Mono.just(false));
+        when(capacidadService.liberar(any(), anyInt())).thenReturn(Mono.empty());
+        estadisticasService = mock(EstadisticasService.class);
+        when(estadisticasService.registrarAltas(anyList())).thenReturn(Mono.empty());
+
+        StaticMessageSource mensajes = new StaticMessageSource();
+        mensajes.setUseCodeAsDefaultMessage(true);
+        importacion = new ImportacionReservasService(repository, capacidadService, estadisticasService, mock(EventosReservaService.class),
+            new Mensajes(mensajes, new ObjectMapper(), true), 2, 2);
+    }
+
+    @Test
+    void testUnResultadoPorLineaEnOrden() {
+        // Lotes de 2: el segundo lote contiene la reserva sin plazas y una reserva que la base de datos rechaza
+        when(repository.insertarSinOrden(anyList()))
+            .thenReturn(Mono.just(Set.of()))
+            .thenReturn(Mono.just(Set.of(0)));
+
+        List<ResultadoImportacion> resultados = importacion.importar(Flux.just(
+                new Reserva(null, null, "Ana", FECHA, 2),
+                new Reserva(null, null, "Sin fecha", null, 2),
+                new Reserva(null, null, "Luis", TURNO_LLENO, 4),
+                new Reserva(null, null, "Marta", FECHA, 3)),
+            "ana", "123", Locale.ROOT).collectList().block();
+
+        assertThat(resultados).extracting(ResultadoImportacion::getLinea).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(resultados).extracting(ResultadoImportacion::getEstado).containsExactly(201, 400, 409, 409);
+        assertThat(resultados).extracting(ResultadoImportacion::getMensaje).containsExactly(
+            "reservation.success", "reservation.invalid", "reservation.slot.full", "reservation.import.failed");
+        verify(capacidadService, times(1)).liberar(FECHA, 3);
+        // Solo la reserva insertada se suma a los resúmenes diarios
+        verify(estadisticasService).registrarAltas(argThat(insertadas -> insertadas.size() == 1
+            && insertadas.get(0).getNombreCliente().equals("Ana")));
+        verify(estadisticasService).registrarAltas(List.of());
+    }
+
+    // Si falla la escritura del lote completo sus líneas se rechazan con un mensaje propio y devuelven sus plazas
+
+    @Test
+    void testUnFalloDelLoteRechazaTodasSusLineas() {
+        when(repository.insertarSinOrden(anyList())).thenReturn(Mono.error(new IllegalStateException("sin conexión")));
+
+        List<ResultadoImportacion> resultados = importacion.importar(Flux.just(
+                new Reserva(null, null, "Ana", FECHA, 2),
+                new Reserva(null, null, "Marta", FECHA, 3)),
+            "ana", "123", Locale.ROOT).collectList().block();
+
+        assertThat(resultados).extracting(ResultadoImportacion::getEstado).containsExactly(503, 503);
+        assertThat(resultados).extracting(ResultadoImportacion::getMensaje)
+            .containsOnly("reservation.import.batch.failed");
+        verify(capacidadService).liberar(FECHA, 2);
+        verify(capacidadService).liberar(FECHA, 3);
+    }
+
+    @Test
+    void testLasReservasSeImportanANombreDelUsuario() {
+        when(repository.insertarSinOrden(anyList())).thenReturn(Mono.just(Set.of()));
+        Reserva ajena = new Reserva("otro", "999", "Ana", FECHA, 2);
+        ajena.setId("01JTV8Z5Q7AJENA00000000000");
+
+        importacion.importar(Flux.just(ajena), "ana", "123", Locale.ROOT).blockLast();
+
+        assertThat(ajena.getUsuario()).isEqualTo("ana");
+        assertThat(ajena.getCedula()).isEqualTo("123");
+        assertThat(ajena.getId()).isNull();
+    }
+}
@@ -0,0 +1,69 @@
+package com.restaurante.proyecto.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.restaurante.proyecto.model.Usuario;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+// Pruebas unitarias para la verificación de tokens JWT
+// Se valida que el token se verifica una sola vez, que se reutiliza desde la caché y que se rechazan tokens expirados o alterados
+
+class JwtUtilTest {
+
+    private static final String SECRET = "MugbvXMWoJKJsZYNuU9HvEuJk7y9tC0Fuh01Lo9UZkY=";
+
+    @Test
+    void testVerifyTokenDevuelveReclamaciones() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60000, 100);
+        String token = jwtUtil.generateToken(usuario());
+
+        Claims claims = jwtUtil.verifyToken(token);
+
+        assertThat(claims.getSubject()).isEqualTo("usuario");
+        assertThat(jwtUtil.validateToken(token, "usuario")).isTrue();
+        assertThat(jwtUtil.validateToken(token, "otro")).isFalse();
+        // La segunda verificación se sirve desde la caché con las mismas reclamaciones
+        assertThat(jwtUtil.verifyToken(token)).isSameAs(claims);
+    }
+
+    @Test
+    void testTokenIncluyeRolCedulaYVersion() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60000, 100);
+        Usuario usuario = usuario();
+        usuario.setTokenVersion(3);
+
+        Claims claims = jwtUtil.verifyToken(jwtUtil.generateToken(usuario));
+
+        assertThat(jwtUtil.extractRole(claims)).isEqualTo("ROLE_USER");
+        assertThat(jwtUtil.extractCedula(claims)).isEqualTo("1234567890");
+        assertThat(jwtUtil.extractVersion(claims)).isEqualTo(3);
+    }
+
+    @Test
+    void testTokenExpiradoSeRechaza() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, -1000, 100);
+        String token = jwtUtil.generateToken(usuario());
+
+        assertThatThrownBy(() -> jwtUtil.verifyToken(token)).isInstanceOf(ExpiredJwtException.class);
+        assertThat(jwtUtil.validateToken(token, "usuario")).isFalse();
+    }
+
+    @Test
+    void testTokenAlteradoSeRechaza() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60000, 100);
+        String token = jwtUtil.generateToken(usuario());
+        String alterado = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> jwtUtil.verifyToken(alterado)).isInstanceOf(SignatureException.class);
+    }
+
+    private static Usuario usuario() {
+        return new Usuario("1234567890", "usuario", "password", "ROLE_USER");
+    }
+}
@@ -0,0 +1,84 @@
+package com.restaurante.proyecto.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import com.restaurante.proyecto.model.Usuario;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+// Pruebas unitarias para el inicio de sesión reactivo
+// Se valida que se rechazan las credenciales incorrectas y que se responde de inmediato cuando se alcanza el límite de inicios de sesión
+
+class LoginServiceTest {
+
+    private static final String SECRET = "MugbvXMWoJKJsZYNuU9HvEuJk7y9tC0Fuh01Lo9UZkY=";
+
+    @Test
+    void testLoginGeneraToken() {
+        ReactiveAuthenticationManager manager = mock(ReactiveAuthenticationManager.class);
+        UsuarioService usuarioService = mock(UsuarioService.class);
+        when(manager.authenticate(any())).thenReturn(Mono.just(new UsernamePasswordAuthenticationToken("usuario", null)));
+        when(usuarioService.buscarPorUsername("usuario"))
+                .thenReturn(Mono.just(new Usuario("1234567890", "usuario", "hash", "ROLE_USER")));
+        LoginService loginService = new LoginService(manager, usuarioService, new JwtUtil(SECRET, 60000, 10), 1, 0);
+
+        assertThat(loginService.login("usuario", "password").block().getToken()).isNotBlank();
+    }
+
+    @Test
+    void testCredencialesIncorrectas() {
+        ReactiveAuthenticationManager manager = mock(ReactiveAuthenticationManager.class);
+        UsuarioService usuarioService = mock(UsuarioService.class);
+        when(manager.authenticate(any())).thenReturn(Mono.error(new BadCredentialsException("Bad credentials")));
+        when(usuarioService.buscarPorUsername(any())).thenReturn(Mono.empty());
+        LoginService loginService = new LoginService(manager, usuarioService, new JwtUtil(SECRET, 60000, 10), 1, 0);
+
+        assertThatThrownBy(() -> loginService.login("usuario", "incorrecta").block())
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void testUsuarioEliminadoTrasComprobarLaContrasena() {
+        ReactiveAuthenticationManager manager = mock(ReactiveAuthenticationManager.class);
+        UsuarioService usuarioService = mock(UsuarioService.class);
+        when(manager.authenticate(any())).thenReturn(Mono.just(new UsernamePasswordAuthenticationToken("usuario", null)));
+        when(usuarioService.buscarPorUsername("usuario")).thenReturn(Mono.empty());
+        LoginService loginService = new LoginService(manager, usuarioService, new JwtUtil(SECRET, 60000, 10), 1, 0);
+
+        assertThatThrownBy(() -> loginService.login("usuario", "password").block())
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void testLimiteDeLoginsSimultaneos() {
+        ReactiveAuthenticationManager manager = mock(ReactiveAuthenticationManager.class);
+        UsuarioService usuarioService = mock(UsuarioService.class);
+        when(manager.authenticate(any())).thenReturn(Mono.never());
+        when(usuarioService.buscarPorUsername(any())).thenReturn(Mono.empty());
+        LoginService loginService = new LoginService(manager, usuarioService, new JwtUtil(SECRET, 60000, 10), 1, 0);
+
+        // El primer inicio de sesión ocupa la única plaza disponible
+        Disposable enCurso = loginService.login("usuario", "password").subscribe();
+
+        assertThatThrownBy(() -> loginService.login("otro", "password").block(Duration.ofSeconds(1)))
+                .isInstanceOf(LoginService.LoginSaturadoException.class);
+
+        // Al cancelar el primero se libera la plaza
+        enCurso.dispose();
+        when(manager.authenticate(any())).thenReturn(Mono.error(new BadCredentialsException("Bad credentials")));
+        assertThatThrownBy(() -> loginService.login("otro", "password").block(Duration.ofSeconds(1)))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+}
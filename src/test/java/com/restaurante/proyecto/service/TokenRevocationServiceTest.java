@@ -0,0 +1,66 @@
+package com.restaurante.proyecto.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.repository.UsuarioRepository;
+
+import reactor.core.publisher.Mono;
+
+// Pruebas unitarias de la revocación de tokens a partir de la versión guardada de cada usuario
+// Se valida que una instancia nueva (como tras un reinicio) sigue rechazando los tokens revocados, que los usuarios
+// inexistentes no aceptan ningún token y que las escrituras locales se aplican sin esperar a que expire la caché
+
+class TokenRevocationServiceTest {
+
+    private UsuarioRepository usuarioRepository;
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        usuarioRepository = mock(UsuarioRepository.class);
+        tokenRevocationService = new TokenRevocationService(usuarioRepository, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void testLaVersionGuardadaRevocaLosTokensAnteriores() {
+        Usuario usuario = new Usuario("1234567890", "usuario", "hash", "ROLE_USER");
+        usuario.setTokenVersion(3);
+        when(usuarioRepository.findByUsername("usuario")).thenReturn(Mono.just(usuario));
+
+        assertThat(tokenRevocationService.estaRevocado("usuario", 2).block()).isTrue();
+        assertThat(tokenRevocationService.estaRevocado("usuario", 3).block()).isFalse();
+        verify(usuarioRepository, times(1)).findByUsername("usuario");
+    }
+
+    @Test
+    void testUsuarioInexistenteRevocaTodosSusTokens() {
+        when(usuarioRepository.findByUsername("eliminado")).thenReturn(Mono.empty());
+
+        assertThat(tokenRevocationService.estaRevocado("eliminado", 0).block()).isTrue();
+        assertThat(tokenRevocationService.estaRevocado("eliminado", Long.MAX_VALUE - 1).block()).isTrue();
+    }
+
+    @Test
+    void testRegistrarCambioVuelveALeerLaVersion() {
+        Usuario usuario = new Usuario("1234567890", "usuario", "hash", "ROLE_USER");
+        usuario.setTokenVersion(1);
+        when(usuarioRepository.findByUsername("usuario")).thenReturn(Mono.just(usuario));
+        assertThat(tokenRevocationService.estaRevocado("usuario", 1).block()).isFalse();
+
+        usuario.setTokenVersion(2);
+        tokenRevocationService.registrarCambio("usuario");
+
+        assertThat(tokenRevocationService.estaRevocado("usuario", 1).block()).isTrue();
+        verify(usuarioRepository, times(2)).findByUsername("usuario");
+    }
+}
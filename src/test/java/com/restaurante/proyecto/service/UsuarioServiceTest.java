@@ -0,0 +1,79 @@
+package com.restaurante.proyecto.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.restaurante.proyecto.model.Usuario;
+import com.restaurante.proyecto.repository.UsuarioRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Pruebas unitarias para la caché de usuarios del servicio de usuarios
+// Se valida que las búsquedas simultáneas comparten una consulta y que las escrituras invalidan las entradas
+
+class UsuarioServiceTest {
+
+    private UsuarioRepository usuarioRepository;
+    private UsuarioService usuarioService;
+
+    @BeforeEach
+    void setUp() {
+        usuarioRepository = mock(UsuarioRepository.class);
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(any())).thenAnswer(inv -> "hash:" + inv.getArgument(0));
+        usuarioService = new UsuarioService(usuarioRepository, passwordEncoder,
+                new TokenRevocationService(usuarioRepository, 100, Duration.ofSeconds(30)), 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void testBusquedasSimultaneasCompartenUnaConsulta() {
+        Usuario usuario = new Usuario("1234567890", "usuario", "hash", "ROLE_USER");
+        when(usuarioRepository.findByUsername("usuario"))
+                .thenReturn(Mono.just(usuario).delayElement(Duration.ofMillis(50)));
+
+        Long encontrados = Flux.range(0, 20)
+                .flatMap(i -> usuarioService.buscarPorUsername("usuario"))
+                .count()
+                .block();
+
+        assertThat(encontrados).isEqualTo(20);
+        verify(usuarioRepository, times(1)).findByUsername("usuario");
+        assertThat(usuarioService.estadisticasCache()).containsEntry("username.misses", 1L);
+    }
+
+    @Test
+    void testUsuarioInexistenteNoSeGuardaEnCache() {
+        when(usuarioRepository.findByCedula("999")).thenReturn(Mono.empty());
+
+        assertThat(usuarioService.buscarPorCedula("999").block()).isNull();
+        assertThat(usuarioService.buscarPorCedula("999").block()).isNull();
+
+        verify(usuarioRepository, times(2)).findByCedula("999");
+    }
+
+    @Test
+    void testActualizarInvalidaLaCache() {
+        Usuario usuario = new Usuario("1234567890", "usuario", "hash", "ROLE_USER");
+        when(usuarioRepository.findByCedula("1234567890")).thenReturn(Mono.just(usuario));
+        when(usuarioRepository.save(any(Usuario.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        usuarioService.buscarPorCedula("1234567890").block();
+        Usuario cambios = new Usuario(null, null, null, "ROLE_ADMIN");
+        usuarioService.actualizarUsuario("1234567890", cambios).block();
+        usuarioService.buscarPorCedula("1234567890").block();
+
+        // Una consulta para llenar la caché, otra para la actualización y otra tras la invalidación
+        verify(usuarioRepository, times(3)).findByCedula("1234567890");
+    }
+}